@@ -0,0 +1,51 @@
+package io.avaje.config.appconfig;
+
+/**
+ * Adaptive polling interval.
+ * <p>
+ * After a new version is seen the fast interval is used for the fast window as deployments
+ * typically arrive in stages. Otherwise the interval starts at the base interval and doubles
+ * with each poll up to the maximum while the version stays stable.
+ * <p>
+ * Jitter is added by the scheduler ({@code config.schedule.jitterPercent}).
+ */
+final class AdaptivePolling {
+
+  private final long baseMillis;
+  private final long fastMillis;
+  private final long fastWindowNanos;
+  private final long maxMillis;
+
+  private long fastUntilNanos;
+  private boolean fast;
+  private long currentMillis;
+
+  AdaptivePolling(long baseMillis, long fastMillis, long fastWindowMillis, long maxMillis) {
+    this.baseMillis = baseMillis;
+    this.fastMillis = Math.min(fastMillis, baseMillis);
+    this.fastWindowNanos = fastWindowMillis * 1_000_000L;
+    this.maxMillis = Math.max(maxMillis, baseMillis);
+    this.currentMillis = baseMillis;
+  }
+
+  /**
+   * Return the delay until the next poll.
+   *
+   * @param changed  True when a new version was seen by the last poll
+   * @param nowNanos The current {@link System#nanoTime()}
+   */
+  synchronized long next(boolean changed, long nowNanos) {
+    if (changed) {
+      fast = true;
+      fastUntilNanos = nowNanos + fastWindowNanos;
+    }
+    if (fast && nowNanos - fastUntilNanos < 0) {
+      currentMillis = baseMillis;
+      return fastMillis;
+    }
+    fast = false;
+    long delay = currentMillis;
+    currentMillis = Math.min(maxMillis, currentMillis * 2);
+    return delay;
+  }
+}
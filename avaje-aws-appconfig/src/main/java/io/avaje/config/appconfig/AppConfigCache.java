@@ -0,0 +1,185 @@
+package io.avaje.config.appconfig;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Local cache file of the last successfully fetched AppConfig payload and its version.
+ * <p>
+ * The file has a header line with the version and a line with the content type followed
+ * by the payload. The payload is written to a temporary file as it is streamed into the
+ * parser and moved into place only when the payload has been successfully applied.
+ */
+final class AppConfigCache {
+
+  private static final String HEADER = "avaje-appconfig-cache:1";
+
+  private final Path file;
+
+  AppConfigCache(Path file) {
+    this.file = file;
+  }
+
+  Path file() {
+    return file;
+  }
+
+  /**
+   * Return the cached payload or null if there is no cache file.
+   */
+  AppConfigFetcher.Result read() throws IOException {
+    InputStream in;
+    try {
+      in = new BufferedInputStream(Files.newInputStream(file));
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+    try {
+      if (!HEADER.equals(line(in))) {
+        throw new IOException("Invalid AppConfig cache file " + file);
+      }
+      String version = line(in);
+      String contentType = line(in);
+      return new DResult(version, contentType, in, false, 0);
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Return the body wrapped such that it is written to the cache as it is read.
+   */
+  Tee tee(AppConfigFetcher.Result result) throws IOException {
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+    OutputStream out = Files.newOutputStream(tmp);
+    out.write((HEADER + '\n' + result.version() + '\n' + result.contentType() + '\n').getBytes(StandardCharsets.UTF_8));
+    return new Tee(result.body(), out, tmp);
+  }
+
+  private static String line(InputStream in) throws IOException {
+    var line = new ByteArrayOutputStream();
+    int b;
+    while ((b = in.read()) != '\n') {
+      if (b == -1) {
+        throw new IOException("Unexpected end of AppConfig cache header");
+      }
+      line.write(b);
+    }
+    return line.toString(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Copies the body to the temporary cache file as it is read.
+   */
+  final class Tee extends FilterInputStream {
+
+    private final OutputStream out;
+    private final Path tmp;
+    private boolean eof;
+    private boolean inClosed;
+    private boolean outClosed;
+
+    private Tee(InputStream in, OutputStream out, Path tmp) {
+      super(in);
+      this.out = out;
+      this.tmp = tmp;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b == -1) {
+        eof = true;
+      } else {
+        out.write(b);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int off, int len) throws IOException {
+      int count = super.read(buffer, off, len);
+      if (count == -1) {
+        eof = true;
+      } else if (count > 0) {
+        out.write(buffer, off, count);
+      }
+      return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      // read rather than skip such that the cache is complete
+      return Math.max(0, read(new byte[(int) Math.min(n, 8192)]));
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    /**
+     * Close the body (as parsers generally do when they have read it).
+     */
+    @Override
+    public void close() throws IOException {
+      if (!inClosed) {
+        inClosed = true;
+        super.close();
+      }
+    }
+
+    /**
+     * Copy any unread remainder and move the temporary file into place.
+     */
+    void commit() throws IOException {
+      if (!eof) {
+        if (inClosed) {
+          throw new IOException("Body closed before it was fully read");
+        }
+        in.transferTo(out);
+      }
+      closeOut();
+      try {
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+
+    /**
+     * Close and remove the temporary file (if not committed).
+     */
+    void discard() {
+      try {
+        close();
+        closeOut();
+        Files.deleteIfExists(tmp);
+      } catch (IOException e) {
+        // ignore
+      }
+    }
+
+    private void closeOut() throws IOException {
+      if (!outClosed) {
+        outClosed = true;
+        out.close();
+      }
+    }
+  }
+}
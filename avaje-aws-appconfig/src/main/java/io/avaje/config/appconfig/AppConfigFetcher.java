@@ -1,7 +1,9 @@
 package io.avaje.config.appconfig;
 
+import java.io.InputStream;
 import java.net.ConnectException;
 import java.net.URI;
+import java.net.http.HttpClient;
 
 interface AppConfigFetcher {
 
@@ -9,7 +11,12 @@ interface AppConfigFetcher {
     return new DAppConfigFetcher.Builder();
   }
 
-  Result fetch() throws ConnectException, FetchException;
+  /**
+   * Fetch the configuration skipping the body when the version matches the current version.
+   *
+   * @param currentVersion The version of the configuration currently loaded
+   */
+  Result fetch(String currentVersion) throws ConnectException, FetchException;
 
   URI uri();
 
@@ -20,13 +27,32 @@ interface AppConfigFetcher {
     }
   }
 
-  interface Result {
+  interface Result extends AutoCloseable {
 
     String version();
 
     String contentType();
 
-    String body();
+    /**
+     * Return true if the configuration is unchanged such that the body was not read.
+     */
+    boolean unchanged();
+
+    /**
+     * Return the (decompressed) body to stream into the parser.
+     */
+    InputStream body();
+
+    /**
+     * Return the poll interval in seconds suggested by the server (0 when not provided).
+     */
+    int nextPollSeconds();
+
+    /**
+     * Close the body.
+     */
+    @Override
+    void close();
   }
 
   interface Builder {
@@ -39,6 +65,33 @@ interface AppConfigFetcher {
 
     AppConfigFetcher.Builder port(int port);
 
+    /**
+     * Use the AppConfig data plane session API at the given endpoint rather than the agent.
+     */
+    AppConfigFetcher.Builder dataPlane(String endpoint);
+
+    /**
+     * The AWS region used to sign data plane requests.
+     */
+    AppConfigFetcher.Builder region(String region);
+
+    /**
+     * The AWS credentials used to sign data plane requests. When not set these are read from
+     * the {@code AWS_ACCESS_KEY_ID}, {@code AWS_SECRET_ACCESS_KEY} and {@code AWS_SESSION_TOKEN}
+     * environment variables.
+     */
+    AppConfigFetcher.Builder credentials(String accessKey, String secretKey, String sessionToken);
+
+    /**
+     * The minimum poll interval in seconds requested when starting a data plane session.
+     */
+    AppConfigFetcher.Builder minPollSeconds(int minPollSeconds);
+
+    /**
+     * The HttpClient to use such that it can be shared by multiple fetchers.
+     */
+    AppConfigFetcher.Builder httpClient(HttpClient httpClient);
+
     AppConfigFetcher build();
   }
 
@@ -6,11 +6,26 @@ import static java.lang.System.Logger.Level.INFO;
 import static java.lang.System.Logger.Level.TRACE;
 import static java.lang.System.Logger.Level.WARNING;
 
-import java.io.StringReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.lang.System.Logger.Level;
 import java.net.ConnectException;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.LockSupport;
@@ -32,7 +47,16 @@ public final class AppConfigPlugin implements ConfigurationSource {
 
   private static final System.Logger log = AppLog.getLogger("io.avaje.config.AwsAppConfig");
 
-  private Loader loader;
+  private volatile Loader loader;
+
+  /**
+   * AppConfig only depends on the initially loaded configuration so can be loaded
+   * concurrently with other independent sources.
+   */
+  @Override
+  public boolean independent() {
+    return true;
+  }
 
   @Override
   public void load(Configuration configuration) {
@@ -40,10 +64,24 @@ public final class AppConfigPlugin implements ConfigurationSource {
       log.log(INFO, "AwsAppConfig plugin is disabled");
       return;
     }
-    loader = new Loader(configuration);
+    var newLoader = new Loader(configuration);
+    loader = newLoader;
+    if (newLoader.loadCached()) {
+      // started with the last known good values, reconcile with AppConfig in the background
+      // once they are applied (such that they are not applied over the live values)
+      newLoader.whenApplied(() -> configuration.schedule(0, 0, () -> initialLoad(newLoader)));
+    } else if (configuration.enabled("aws.appconfig.initialLoadAsync", false)) {
+      // startup continues with the local configuration, AppConfig values applied when they arrive
+      configuration.schedule(0, 0, () -> initialLoad(newLoader));
+    } else {
+      initialLoad(newLoader);
+    }
+  }
+
+  private static void initialLoad(Loader loader) {
     int attempts = loader.initialLoad();
-    if (attempts > 1){
-      log.log(INFO, "AwsAppConfig loaded after {0} attempts", attempts + 1);
+    if (attempts > 1) {
+      log.log(INFO, "AwsAppConfig loaded after {0} attempts", attempts);
     }
   }
 
@@ -57,17 +95,48 @@ public final class AppConfigPlugin implements ConfigurationSource {
   static final class Loader {
 
     private final Configuration configuration;
-    private final AppConfigFetcher fetcher;
+    private final List<Profile> profiles = new ArrayList<>();
+    private final ExecutorService executor;
     private final ConfigParser yamlParser;
     private final ConfigParser propertiesParser;
+    private final FeatureFlags featureFlags;
     private final AtomicInteger connectErrorCount = new AtomicInteger();
     private final ReentrantLock lock = new ReentrantLock();
     private final AtomicReference<Instant> validUntil;
     private final long nextRefreshSeconds;
     private final int initialLoadAttempts;
     private final long initialLoadRetryMillis;
-
-    private String currentVersion = "none";
+    private final long initialLoadMaxRetryMillis;
+    private final long startupDeadlineMillis;
+    private final String flagsPrefix;
+    /**
+     * The merged key values last applied (the keys owned by AppConfig).
+     */
+    private Map<String, String> published = Map.of();
+    /**
+     * True when published changes are staged and not yet applied (loaded concurrently with
+     * other sources at startup or via reloadSources).
+     */
+    private boolean pending;
+    /**
+     * True when a load was requested while changes are pending, loaded once they are applied.
+     */
+    private boolean deferred;
+    /**
+     * The actions to run once the pending changes are applied.
+     */
+    private final List<Runnable> onApplied = new ArrayList<>();
+    /**
+     * The local values of keys that AppConfig has overridden, restored when AppConfig no
+     * longer defines the key.
+     */
+    private final Map<String, String> localValues = new LinkedHashMap<>();
+    /**
+     * The adaptive polling interval (null when polling at a fixed interval).
+     */
+    private final AdaptivePolling adaptivePolling;
+    private volatile long nextPollMillis;
+    private boolean loaded;
 
     Loader(Configuration configuration) {
       this.validUntil = new AtomicReference<>(Instant.now().minusSeconds(1));
@@ -77,56 +146,156 @@ public final class AppConfigPlugin implements ConfigurationSource {
       if (yamlParser == null) {
         log.log(WARNING, "No Yaml parser registered");
       }
+      this.featureFlags = FeatureFlags.of(configuration);
 
       var app = configuration.get("aws.appconfig.application");
       var env = configuration.get("aws.appconfig.environment");
-      var con = configuration.get("aws.appconfig.configuration", "default");
-
-      this.fetcher = AppConfigFetcher.builder()
-        .application(app)
-        .environment(env)
-        .configuration(con)
-        .build();
-
-      log.log(DEBUG, "AwsAppConfig uri {0}", fetcher.uri());
+      var names = configuration.list().of("aws.appconfig.configuration", "default");
 
       boolean pollEnabled = configuration.enabled("aws.appconfig.pollingEnabled", true);
       long pollSeconds = configuration.getLong("aws.appconfig.pollingSeconds", 45L);
+      boolean dataMode = "data".equals(configuration.get("aws.appconfig.mode", "agent"));
+      var region = dataMode ? configuration.getOptional("aws.appconfig.region").orElse(System.getenv("AWS_REGION")) : null;
+      var endpoint = dataMode ? configuration.get("aws.appconfig.endpoint", "https://appconfigdata." + region + ".amazonaws.com") : null;
+      var minPollSeconds = configuration.getInt("aws.appconfig.minPollSeconds", 15);
+      var accessKey = dataMode ? configuration.getNullable("aws.appconfig.accessKeyId") : null;
+      var port = configuration.getInt("aws.appconfig.port", 2772);
+      var cacheFile = configuration.getOptional("aws.appconfig.cacheFile").map(Path::of).orElse(null);
+
+      // multiple configurations are fetched concurrently sharing the one HttpClient
+      this.executor = names.size() > 1 ? executor() : null;
+      var httpClientBuilder = HttpClient.newBuilder();
+      if (executor != null) {
+        httpClientBuilder.executor(executor);
+      }
+      var httpClient = httpClientBuilder.build();
+      for (String name : names) {
+        var builder = AppConfigFetcher.builder()
+          .application(app)
+          .environment(env)
+          .configuration(name)
+          .port(port)
+          .httpClient(httpClient);
+        if (dataMode) {
+          builder.dataPlane(endpoint)
+            .region(region)
+            .minPollSeconds(minPollSeconds);
+          if (accessKey != null) {
+            builder.credentials(accessKey, configuration.get("aws.appconfig.secretAccessKey"), configuration.getNullable("aws.appconfig.sessionToken"));
+          }
+        }
+        AppConfigCache cache = null;
+        if (cacheFile != null) {
+          cache = new AppConfigCache(names.size() == 1 ? cacheFile : cacheFile.resolveSibling(cacheFile.getFileName() + "-" + name));
+        }
+        var type = configuration.getNullable("aws.appconfig." + name + ".type");
+        var profile = new Profile(name, type, builder.build(), cache);
+        log.log(DEBUG, "AwsAppConfig uri {0}", profile.fetcher.uri());
+        profiles.add(profile);
+      }
+
       this.nextRefreshSeconds = configuration.getLong("aws.appconfig.refreshSeconds", pollSeconds - 1);
       this.initialLoadAttempts = configuration.getInt("aws.appconfig.initialLoadAttempts", 60);
-      this.initialLoadRetryMillis = configuration.getLong("aws.appconfig.initialLoadRetryMillis", 500L);
-      if (pollEnabled) {
-        configuration.schedule(pollSeconds * 1000L, pollSeconds * 1000L, this::reload);
+      this.initialLoadRetryMillis = configuration.getLong("aws.appconfig.initialLoadRetryMillis", 100L);
+      this.initialLoadMaxRetryMillis = configuration.getLong("aws.appconfig.initialLoadMaxRetryMillis", 5000L);
+      this.startupDeadlineMillis = configuration.getLong("aws.appconfig.startupDeadlineMillis", 30_000L);
+      this.flagsPrefix = configuration.get("aws.appconfig.flagsPrefix", "flags.");
+      this.nextPollMillis = pollSeconds * 1000L;
+      if (pollEnabled && configuration.enabled("aws.appconfig.adaptivePolling", false)) {
+        this.adaptivePolling = new AdaptivePolling(nextPollMillis,
+          configuration.getLong("aws.appconfig.fastPollingSeconds", 5L) * 1000L,
+          configuration.getLong("aws.appconfig.fastPollingWindowSeconds", 300L) * 1000L,
+          configuration.getLong("aws.appconfig.maxPollingSeconds", 300L) * 1000L);
+        schedulePoll();
+      } else {
+        this.adaptivePolling = null;
+        if (pollEnabled) {
+          configuration.schedule(pollSeconds * 1000L, pollSeconds * 1000L, this::reload);
+        }
       }
     }
 
     /**
-     * Potential race condition with AWS AppConfig sidecar so use simple retry loop.
+     * Schedule the next adaptive poll.
+     */
+    private void schedulePoll() {
+      try {
+        configuration.schedule(Duration.ofMillis(nextPollMillis), Duration.ZERO, this::poll);
+      } catch (IllegalStateException e) {
+        log.log(DEBUG, "AwsAppConfig polling stopped, {0}", e.getMessage());
+      }
+    }
+
+    private void poll() {
+      try {
+        reload();
+      } finally {
+        schedulePoll();
+      }
+    }
+
+    private static ExecutorService executor() {
+      var counter = new AtomicInteger();
+      return Executors.newCachedThreadPool(runnable -> {
+        var thread = new Thread(runnable, "AwsAppConfig-" + counter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+
+    /**
+     * Potential race condition with AWS AppConfig sidecar so retry with exponential backoff.
      * <p>
-     * The number of attempts and the delay between attempts can be tuned via
-     * {@code aws.appconfig.initialLoadAttempts} (default 60) and
-     * {@code aws.appconfig.initialLoadRetryMillis} (default 500).
+     * The delay between attempts starts at {@code aws.appconfig.initialLoadRetryMillis}
+     * (default 100) and doubles up to {@code aws.appconfig.initialLoadMaxRetryMillis}
+     * (default 5000) with jitter. Attempts stop after {@code aws.appconfig.initialLoadAttempts}
+     * (default 60) or when {@code aws.appconfig.startupDeadlineMillis} (default 30000) has
+     * passed. The lock is not held between attempts.
+     *
+     * @return The number of attempts taken or -1 if the load failed
      */
     int initialLoad() {
-      lock.lock();
-      try {
-        Exception lastAttempt = null;
-        long parkNanos = initialLoadRetryMillis * 1_000_000L;
-        for (int i = 1; i <= initialLoadAttempts; i++) {
-          try {
-            loadAndPublish();
-            return i;
-          } catch (Exception e) {
-            // often seeing this with apps that start quickly (and AppConfig sidecar not up yet)
-            lastAttempt = e;
-            log.log(DEBUG, "retrying, load attempt {0} got {1}", i, e.getMessage());
-            LockSupport.parkNanos(parkNanos);
-          }
+      final long deadline = System.nanoTime() + startupDeadlineMillis * 1_000_000L;
+      Exception lastAttempt = null;
+      int attempt = 1;
+      for (; attempt <= initialLoadAttempts; attempt++) {
+        try {
+          loadWithLock();
+          return attempt;
+        } catch (Exception e) {
+          // often seeing this with apps that start quickly (and AppConfig sidecar not up yet)
+          lastAttempt = e;
+          log.log(DEBUG, "retrying, load attempt {0} got {1}", attempt, e.getMessage());
+        }
+        long sleepNanos = backoff(initialLoadRetryMillis, initialLoadMaxRetryMillis, attempt) * 1_000_000L;
+        long remainingNanos = deadline - System.nanoTime();
+        if (remainingNanos <= 0) {
+          break;
+        }
+        LockSupport.parkNanos(Math.min(sleepNanos, remainingNanos));
+        if (Thread.currentThread().isInterrupted()) {
+          break;
         }
-        log.log(ERROR, "Failed initial AwsAppConfig load after {0} attempts", initialLoadAttempts, lastAttempt);
-        return -1;
+      }
+      log.log(ERROR, "Failed initial AwsAppConfig load after {0} attempts", Math.min(attempt, initialLoadAttempts), lastAttempt);
+      return -1;
+    }
+
+    /**
+     * Return the delay before the next attempt, doubling the base delay for each attempt
+     * up to the max with "equal jitter" (a random delay between half and the full delay).
+     */
+    static long backoff(long baseMillis, long maxMillis, int attempt) {
+      long delay = Math.min(maxMillis, baseMillis << Math.min(attempt - 1, 30));
+      long half = delay / 2;
+      return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+    }
 
-      } finally{
+    private void loadWithLock() throws AppConfigFetcher.FetchException, ConnectException {
+      lock.lock();
+      try {
+        loadAndPublish();
+      } finally {
         lock.unlock();
       }
     }
@@ -161,33 +330,255 @@ public final class AppConfigPlugin implements ConfigurationSource {
       }
     }
 
+    /**
+     * Apply the last known good configuration from the cache files returning true if applied.
+     */
+    boolean loadCached() {
+      lock.lock();
+      try {
+        boolean loaded = false;
+        for (Profile profile : profiles) {
+          loaded |= loadCached(profile);
+        }
+        if (loaded) {
+          publish(null);
+        }
+        return loaded;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private boolean loadCached(Profile profile) {
+      if (profile.cache == null) {
+        return false;
+      }
+      try (AppConfigFetcher.Result cached = profile.cache.read()) {
+        if (cached == null) {
+          return false;
+        }
+        profile.content = parse(profile, cached.contentType(), cached.body());
+        profile.version = cached.version();
+        log.log(INFO, "AwsAppConfig loaded {0} version {1} with {2} properties from cache {3}",
+          profile.name, profile.version, profile.content.values.size(), profile.cache.file());
+        return true;
+      } catch (Exception e) {
+        log.log(WARNING, "Unable to load AwsAppConfig cache " + profile.cache.file(), e);
+        return false;
+      }
+    }
+
     /**
      * Load and publish the configuration from AWS AppConfig.
+     * <p>
+     * The configurations are fetched concurrently and when any has a new version they are
+     * merged in declared order (later configurations override earlier ones) and published
+     * as a single event. Nothing is published unless all the configurations are fetched.
      */
     private void loadAndPublish() throws AppConfigFetcher.FetchException, ConnectException {
-      AppConfigFetcher.Result result = fetcher.fetch();
-      if (currentVersion.equals(result.version())) {
-        log.log(TRACE, "AwsAppConfig unchanged, version {0}", currentVersion);
-      } else {
-        String contentType = result.contentType();
-        if (log.isLoggable(TRACE)) {
-          int contentLength = result.body().length();
-          log.log(TRACE, "AwsAppConfig fetched version:{0} contentType:{1} contentLength:{2,number,#}", result.version(), contentType, contentLength);
+      if (pending) {
+        // diffing against values that are not yet applied would have the staged values
+        // applied over these later, so load again once they are applied
+        log.log(TRACE, "AwsAppConfig changes pending, load deferred");
+        deferred = true;
+        return;
+      }
+      List<Fetched> fetched = fetchAll();
+      try {
+        boolean changed = false;
+        int nextPollSeconds = 0;
+        for (Fetched f : fetched) {
+          changed |= f.content != null;
+          nextPollSeconds = Math.max(nextPollSeconds, f.result.nextPollSeconds());
+        }
+        if (changed) {
+          int count = publish(fetched);
+          for (Fetched f : fetched) {
+            f.apply();
+          }
+          debugLog(fetched, count);
+        } else {
+          log.log(TRACE, "AwsAppConfig unchanged");
+        }
+        if (adaptivePolling == null) {
+          // move the next valid until time, no sooner than the poll interval suggested by the server
+          validUntil.set(Instant.now().plusSeconds(Math.max(nextRefreshSeconds, nextPollSeconds - 1)));
+        } else {
+          // a new version after the initial load is likely a deployment in progress
+          long delay = adaptivePolling.next(changed && loaded, System.nanoTime());
+          nextPollMillis = Math.max(delay, nextPollSeconds * 1000L);
+          validUntil.set(Instant.now().plusMillis(Math.max(0, nextPollMillis - 1000)));
+        }
+        loaded = true;
+      } finally {
+        for (Fetched f : fetched) {
+          f.close();
         }
-        Map<String, String> keyValues = parse(result);
-        configuration.eventBuilder("AwsAppConfig")
-          .putAll(keyValues)
-          .publish();
-        currentVersion = result.version();
-        debugLog(result, keyValues.size());
       }
-      // move the next valid until time
-      validUntil.set(Instant.now().plusSeconds(nextRefreshSeconds));
     }
 
-    private Map<String, String> parse(AppConfigFetcher.Result result) {
-      ConfigParser parser = parser(result.contentType());
-      return parser.load(new StringReader(result.body()));
+    private List<Fetched> fetchAll() throws AppConfigFetcher.FetchException, ConnectException {
+      if (executor == null) {
+        return List.of(fetch(profiles.get(0)));
+      }
+      List<CompletableFuture<Fetched>> futures = new ArrayList<>(profiles.size());
+      for (Profile profile : profiles) {
+        futures.add(CompletableFuture.supplyAsync(() -> {
+          try {
+            return fetch(profile);
+          } catch (AppConfigFetcher.FetchException | ConnectException e) {
+            throw new CompletionException(e);
+          }
+        }, executor));
+      }
+      List<Fetched> fetched = new ArrayList<>(futures.size());
+      Throwable error = null;
+      for (CompletableFuture<Fetched> future : futures) {
+        try {
+          fetched.add(future.join());
+        } catch (CompletionException e) {
+          if (error == null) {
+            error = e.getCause();
+          }
+        }
+      }
+      if (error != null) {
+        fetched.forEach(Fetched::close);
+        if (error instanceof ConnectException) {
+          throw (ConnectException) error;
+        } else if (error instanceof AppConfigFetcher.FetchException) {
+          throw (AppConfigFetcher.FetchException) error;
+        } else if (error instanceof RuntimeException) {
+          throw (RuntimeException) error;
+        }
+        throw new IllegalStateException(error);
+      }
+      return fetched;
+    }
+
+    /**
+     * Fetch the configuration and parse the body when it is a new version.
+     */
+    private Fetched fetch(Profile profile) throws AppConfigFetcher.FetchException, ConnectException {
+      var fetched = new Fetched(profile, profile.fetcher.fetch(profile.version));
+      try {
+        fetched.parse();
+        return fetched;
+      } catch (RuntimeException e) {
+        fetched.close();
+        throw e;
+      }
+    }
+
+    /**
+     * Merge the configurations in declared order and publish the difference to the previously
+     * published key values as a single event. Once the event is applied, the merged key values
+     * become the published ones and the feature flags are replaced.
+     * <p>
+     * Only changed keys are put and keys no longer in any configuration are removed such
+     * that unchanged keys are not evaluated again. A removed key that had a local value
+     * before AppConfig first defined it is reverted to that local value.
+     *
+     * @param fetched The newly fetched configurations or null to publish the current ones
+     * @return The number of keys put or removed
+     */
+    private int publish(List<Fetched> fetched) {
+      var merged = new LinkedHashMap<String, String>();
+      var flags = new LinkedHashMap<String, FeatureFlags.Flag>();
+      for (int i = 0; i < profiles.size(); i++) {
+        var content = fetched == null ? null : fetched.get(i).content;
+        if (content == null) {
+          content = profiles.get(i).content;
+        }
+        merged.putAll(content.values);
+        flags.putAll(content.flags);
+      }
+      var event = configuration.eventBuilder("AwsAppConfig");
+      int changes = 0;
+      for (Map.Entry<String, String> entry : merged.entrySet()) {
+        String key = entry.getKey();
+        if (!entry.getValue().equals(published.get(key))) {
+          if (!published.containsKey(key)) {
+            configuration.entry(key).ifPresent(local -> localValues.put(key, local.value()));
+          }
+          event.put(key, entry.getValue());
+          changes++;
+        }
+      }
+      for (String key : published.keySet()) {
+        if (!merged.containsKey(key)) {
+          String local = localValues.remove(key);
+          if (local != null) {
+            event.put(key, local);
+          } else {
+            event.remove(key);
+          }
+          changes++;
+        }
+      }
+      pending = true;
+      event.publish(() -> applied(merged, flags));
+      return changes;
+    }
+
+    private void applied(Map<String, String> merged, Map<String, FeatureFlags.Flag> flags) {
+      final List<Runnable> actions;
+      lock.lock();
+      try {
+        published = merged;
+        featureFlags.update(flags);
+        pending = false;
+        actions = new ArrayList<>(onApplied);
+        onApplied.clear();
+        if (deferred) {
+          deferred = false;
+          validUntil.set(Instant.now().minusSeconds(1));
+          actions.add(() -> configuration.schedule(0, 0, this::reload));
+        }
+      } finally {
+        lock.unlock();
+      }
+      actions.forEach(Runnable::run);
+    }
+
+    /**
+     * Run the action once the published changes are applied (now if they are applied).
+     */
+    void whenApplied(Runnable action) {
+      lock.lock();
+      try {
+        if (pending) {
+          onApplied.add(action);
+          return;
+        }
+      } finally {
+        lock.unlock();
+      }
+      action.run();
+    }
+
+    /**
+     * Stream the body directly into the parser returning the key values. JSON content
+     * of a configuration with the type {@code flags} (or in the stored flag format) is parsed
+     * as AppConfig feature flags and other JSON content is flattened into key values.
+     */
+    private Content parse(Profile profile, String contentType, InputStream body) {
+      var values = new LinkedHashMap<String, String>();
+      var reader = new InputStreamReader(body, StandardCharsets.UTF_8);
+      if (contentType.startsWith("application/json")) {
+        Object json = JsonParser.parse(reader);
+        if (!profile.isFlags(json)) {
+          JsonParser.flatten(json, values::put);
+          return new Content(values, Map.of());
+        }
+        var flags = FeatureFlags.flags(json);
+        for (FeatureFlags.Flag flag : flags.values()) {
+          flag.keyValues(flagsPrefix, values::put);
+        }
+        return new Content(values, flags);
+      }
+      parser(contentType).parse(reader, values::put);
+      return new Content(values, Map.of());
     }
 
     private ConfigParser parser(String contentType) {
@@ -198,9 +589,114 @@ public final class AppConfigPlugin implements ConfigurationSource {
       }
     }
 
-    private static void debugLog(AppConfigFetcher.Result result, int size) {
+    private static void debugLog(List<Fetched> fetched, int size) {
       if (log.isLoggable(DEBUG)) {
-        log.log(DEBUG, "AwsAppConfig loaded version {0} with {1} properties", result.version(), size);
+        var versions = new StringJoiner(", ");
+        for (Fetched f : fetched) {
+          versions.add(f.profile.name + ":" + f.result.version());
+        }
+        log.log(DEBUG, "AwsAppConfig loaded versions {0} with {1} changed properties", versions, size);
+      }
+    }
+
+    /**
+     * A configuration with the version and key values currently applied.
+     */
+    private static final class Profile {
+
+      private final String name;
+      /**
+       * The JSON content type, {@code flags} or {@code json} (null to detect the stored flag format).
+       */
+      private final String type;
+      private final AppConfigFetcher fetcher;
+      private final AppConfigCache cache;
+      private String version = "none";
+      private Content content = Content.EMPTY;
+
+      Profile(String name, String type, AppConfigFetcher fetcher, AppConfigCache cache) {
+        this.name = name;
+        this.type = type;
+        this.fetcher = fetcher;
+        this.cache = cache;
+      }
+
+      boolean isFlags(Object json) {
+        return type == null ? FeatureFlags.isFlags(json) : "flags".equals(type);
+      }
+    }
+
+    /**
+     * The parsed key values and feature flags of a configuration.
+     */
+    private static final class Content {
+
+      static final Content EMPTY = new Content(Map.of(), Map.of());
+
+      private final Map<String, String> values;
+      private final Map<String, FeatureFlags.Flag> flags;
+
+      Content(Map<String, String> values, Map<String, FeatureFlags.Flag> flags) {
+        this.values = values;
+        this.flags = flags;
+      }
+    }
+
+    /**
+     * The result of fetching a configuration with the parsed content (null when unchanged).
+     */
+    private final class Fetched {
+
+      private final Profile profile;
+      private final AppConfigFetcher.Result result;
+      private AppConfigCache.Tee tee;
+      private Content content;
+
+      Fetched(Profile profile, AppConfigFetcher.Result result) {
+        this.profile = profile;
+        this.result = result;
+      }
+
+      void parse() {
+        if (result.unchanged() || profile.version.equals(result.version())) {
+          log.log(TRACE, "AwsAppConfig {0} unchanged, version {1}", profile.name, profile.version);
+          return;
+        }
+        log.log(TRACE, "AwsAppConfig {0} fetched version:{1} contentType:{2}", profile.name, result.version(), result.contentType());
+        InputStream body = result.body();
+        if (profile.cache != null) {
+          try {
+            body = tee = profile.cache.tee(result);
+          } catch (IOException e) {
+            log.log(WARNING, "Unable to write AwsAppConfig cache " + profile.cache.file(), e);
+          }
+        }
+        content = Loader.this.parse(profile, result.contentType(), body);
+      }
+
+      /**
+       * The values have been published so make them current and replace the cache file.
+       */
+      void apply() {
+        if (content == null) {
+          return;
+        }
+        profile.content = content;
+        profile.version = result.version();
+        if (tee != null) {
+          try {
+            tee.commit();
+          } catch (IOException e) {
+            log.log(WARNING, "Unable to write AwsAppConfig cache " + profile.cache.file(), e);
+          }
+        }
+      }
+
+      void close() {
+        if (tee != null) {
+          tee.discard();
+        }
+        result.close();
       }
     }
   }
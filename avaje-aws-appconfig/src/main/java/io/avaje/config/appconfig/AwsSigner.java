@@ -0,0 +1,167 @@
+package io.avaje.config.appconfig;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Signs requests with AWS Signature Version 4 using the credentials from the standard
+ * {@code AWS_ACCESS_KEY_ID}, {@code AWS_SECRET_ACCESS_KEY} and {@code AWS_SESSION_TOKEN}
+ * environment variables (as provided by Lambda for example).
+ */
+final class AwsSigner {
+
+  private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+
+  private final String accessKey;
+  private final String secretKey;
+  private final String sessionToken;
+  private final String region;
+  private final String service;
+
+  AwsSigner(String accessKey, String secretKey, String sessionToken, String region, String service) {
+    this.accessKey = accessKey;
+    this.secretKey = secretKey;
+    this.sessionToken = sessionToken;
+    this.region = region;
+    this.service = service;
+  }
+
+  /**
+   * Return a signer using the credentials from environment variables or null when not defined.
+   */
+  static AwsSigner fromEnvironment(String region, String service) {
+    String accessKey = System.getenv("AWS_ACCESS_KEY_ID");
+    String secretKey = System.getenv("AWS_SECRET_ACCESS_KEY");
+    if (accessKey == null || secretKey == null || region == null) {
+      return null;
+    }
+    return new AwsSigner(accessKey, secretKey, System.getenv("AWS_SESSION_TOKEN"), region, service);
+  }
+
+  /**
+   * Add the signature headers to the request.
+   *
+   * @param builder The request builder with the uri already set
+   * @param method  The http method
+   * @param uri     The request uri
+   * @param body    The request body (empty for GET)
+   */
+  void sign(HttpRequest.Builder builder, String method, URI uri, String body) {
+    sign(builder, method, uri, body, ZonedDateTime.now(ZoneOffset.UTC));
+  }
+
+  void sign(HttpRequest.Builder builder, String method, URI uri, String body, ZonedDateTime now) {
+    String amzDate = AMZ_DATE.format(now);
+    String dateStamp = amzDate.substring(0, 8);
+
+    Map<String, String> headers = new TreeMap<>();
+    headers.put("host", host(uri));
+    headers.put("x-amz-date", amzDate);
+    if (sessionToken != null) {
+      headers.put("x-amz-security-token", sessionToken);
+    }
+    StringBuilder canonicalHeaders = new StringBuilder();
+    headers.forEach((name, value) -> canonicalHeaders.append(name).append(':').append(value.trim()).append('\n'));
+    String signedHeaders = String.join(";", headers.keySet());
+
+    String canonicalRequest = method + '\n'
+      + (uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath()) + '\n'
+      + canonicalQuery(uri.getRawQuery()) + '\n'
+      + canonicalHeaders + '\n'
+      + signedHeaders + '\n'
+      + hex(sha256(body));
+
+    String scope = dateStamp + '/' + region + '/' + service + "/aws4_request";
+    String stringToSign = "AWS4-HMAC-SHA256\n" + amzDate + '\n' + scope + '\n' + hex(sha256(canonicalRequest));
+
+    byte[] key = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), dateStamp);
+    key = hmac(key, region);
+    key = hmac(key, service);
+    key = hmac(key, "aws4_request");
+    String signature = hex(hmac(key, stringToSign));
+
+    builder.header("X-Amz-Date", amzDate);
+    if (sessionToken != null) {
+      builder.header("X-Amz-Security-Token", sessionToken);
+    }
+    builder.header("Authorization", "AWS4-HMAC-SHA256 Credential=" + accessKey + '/' + scope
+      + ", SignedHeaders=" + signedHeaders + ", Signature=" + signature);
+  }
+
+  /**
+   * Return the value URI encoded as per RFC 3986 (as required for the canonical query).
+   */
+  static String encode(String value) {
+    return URLEncoder.encode(value, StandardCharsets.UTF_8)
+      .replace("+", "%20")
+      .replace("*", "%2A")
+      .replace("%7E", "~");
+  }
+
+  private static String host(URI uri) {
+    int port = uri.getPort();
+    return port == -1 ? uri.getHost() : uri.getHost() + ':' + port;
+  }
+
+  private static String canonicalQuery(String rawQuery) {
+    if (rawQuery == null || rawQuery.isEmpty()) {
+      return "";
+    }
+    // the query parameters are already encoded by the caller
+    Map<String, String> params = new TreeMap<>();
+    for (String param : rawQuery.split("&")) {
+      int eq = param.indexOf('=');
+      if (eq == -1) {
+        params.put(param, "");
+      } else {
+        params.put(param.substring(0, eq), param.substring(eq + 1));
+      }
+    }
+    StringBuilder sb = new StringBuilder();
+    params.forEach((name, value) -> {
+      if (sb.length() > 0) {
+        sb.append('&');
+      }
+      sb.append(name).append('=').append(value);
+    });
+    return sb.toString();
+  }
+
+  private static byte[] sha256(String value) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static byte[] hmac(byte[] key, String value) {
+    try {
+      Mac mac = Mac.getInstance("HmacSHA256");
+      mac.init(new SecretKeySpec(key, "HmacSHA256"));
+      return mac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String hex(byte[] bytes) {
+    StringBuilder sb = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+}
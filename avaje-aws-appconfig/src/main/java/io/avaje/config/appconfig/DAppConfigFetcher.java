@@ -1,8 +1,11 @@
 package io.avaje.config.appconfig;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.ConnectException;
 import java.net.URI;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 
@@ -11,10 +14,9 @@ final class DAppConfigFetcher implements AppConfigFetcher {
   private final URI uri;
   private final HttpClient httpClient;
 
-  DAppConfigFetcher(String uri) {
+  DAppConfigFetcher(String uri, HttpClient httpClient) {
     this.uri = URI.create(uri);
-    this.httpClient = HttpClient.newBuilder()
-      .build();
+    this.httpClient = httpClient;
   }
 
   @Override
@@ -23,18 +25,31 @@ final class DAppConfigFetcher implements AppConfigFetcher {
   }
 
   @Override
-  public AppConfigFetcher.Result fetch() throws ConnectException, FetchException {
+  public AppConfigFetcher.Result fetch(String currentVersion) throws ConnectException, FetchException {
     HttpRequest request = HttpRequest.newBuilder()
       .uri(uri)
+      .header("Accept-Encoding", "gzip")
       .GET()
       .build();
 
     try {
-      HttpResponse<String> res = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-      String version = res.headers().firstValue("Configuration-Version").orElse(null);
+      HttpResponse<InputStream> res = httpClient.send(request, info -> {
+        if (info.statusCode() == 200 && currentVersion.equals(version(info.headers()))) {
+          // unchanged so discard rather than read the body
+          return HttpResponse.BodySubscribers.replacing(InputStream.nullInputStream());
+        }
+        return HttpResponse.BodySubscribers.ofInputStream();
+      });
+      if (res.statusCode() != 200) {
+        res.body().close();
+        throw new IOException("AppConfig agent responded with status " + res.statusCode());
+      }
+      String version = version(res.headers());
       String contentType = res.headers().firstValue("Content-Type").orElse("unknown");
-      String body = res.body();
-      return new DResult(version, contentType, body);
+      if (currentVersion.equals(version)) {
+        return DResult.unchanged(version, contentType, 0);
+      }
+      return new DResult(version, contentType, DResult.decode(res.headers(), res.body()), false, 0);
 
     } catch (ConnectException e) {
       throw e; // expected on shutdown
@@ -43,12 +58,23 @@ final class DAppConfigFetcher implements AppConfigFetcher {
     }
   }
 
+  private static String version(HttpHeaders headers) {
+    return headers.firstValue("Configuration-Version").orElse(null);
+  }
+
   static class Builder implements AppConfigFetcher.Builder {
 
     private int port = 2772;
     private String application;
     private String environment;
     private String configuration;
+    private String dataEndpoint;
+    private String region;
+    private String accessKey;
+    private String secretKey;
+    private String sessionToken;
+    private int minPollSeconds = 15;
+    private HttpClient httpClient;
 
     @Override
     public Builder application(String application) {
@@ -74,9 +100,67 @@ final class DAppConfigFetcher implements AppConfigFetcher {
       return this;
     }
 
+    @Override
+    public Builder dataPlane(String endpoint) {
+      this.dataEndpoint = endpoint;
+      return this;
+    }
+
+    @Override
+    public Builder region(String region) {
+      this.region = region;
+      return this;
+    }
+
+    @Override
+    public Builder credentials(String accessKey, String secretKey, String sessionToken) {
+      this.accessKey = accessKey;
+      this.secretKey = secretKey;
+      this.sessionToken = sessionToken;
+      return this;
+    }
+
+    @Override
+    public Builder minPollSeconds(int minPollSeconds) {
+      this.minPollSeconds = minPollSeconds;
+      return this;
+    }
+
+    @Override
+    public Builder httpClient(HttpClient httpClient) {
+      this.httpClient = httpClient;
+      return this;
+    }
+
     @Override
     public AppConfigFetcher build() {
-      return new DAppConfigFetcher(uri());
+      if (httpClient == null) {
+        httpClient = HttpClient.newBuilder().build();
+      }
+      if (dataEndpoint != null) {
+        if (configuration == null) {
+          configuration = environment + "-" + application;
+        }
+        return new DDataPlaneFetcher(dataEndpoint, application, environment, configuration, minPollSeconds, signer(), httpClient);
+      }
+      return new DAppConfigFetcher(uri(), httpClient);
+    }
+
+    /**
+     * Return the signer failing fast rather than sending unsigned requests that are rejected.
+     */
+    private AwsSigner signer() {
+      if (region == null) {
+        throw new IllegalStateException("AWS AppConfig data mode requires a region, set aws.appconfig.region or AWS_REGION");
+      }
+      if (accessKey != null && secretKey != null) {
+        return new AwsSigner(accessKey, secretKey, sessionToken, region, "appconfig");
+      }
+      var signer = AwsSigner.fromEnvironment(region, "appconfig");
+      if (signer == null) {
+        throw new IllegalStateException("AWS AppConfig data mode requires AWS credentials, set the AWS_ACCESS_KEY_ID and AWS_SECRET_ACCESS_KEY environment variables");
+      }
+      return signer;
     }
 
     private String uri() {
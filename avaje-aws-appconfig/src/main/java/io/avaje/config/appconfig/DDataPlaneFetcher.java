@@ -0,0 +1,154 @@
+package io.avaje.config.appconfig;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fetcher using the AppConfig data plane session API.
+ * <p>
+ * A session is started via {@code StartConfigurationSession} and then each fetch calls
+ * {@code GetLatestConfiguration} with the token returned by the previous call. The body
+ * is empty when the configuration has not changed since the previous call, in which case
+ * the result is unchanged with the version of the previous configuration.
+ * <p>
+ * As the token moves forward with each call the content of a call is only returned once.
+ * When the caller has not applied that content (for example another configuration failed
+ * to load or the content failed to parse) the version it passes is not the version last
+ * returned, in which case an empty body starts a new session such that the full content
+ * is returned again.
+ * <p>
+ * When the token is rejected (for example it has expired after 24 hours) a new session
+ * is started on the next fetch.
+ */
+final class DDataPlaneFetcher implements AppConfigFetcher {
+
+  private static final Pattern INITIAL_TOKEN = Pattern.compile("\"InitialConfigurationToken\"\\s*:\\s*\"([^\"]+)\"");
+
+  private final URI endpoint;
+  private final String application;
+  private final String environment;
+  private final String configuration;
+  private final int minPollSeconds;
+  private final AwsSigner signer;
+  private final HttpClient httpClient;
+
+  private String token;
+  private String version = "none";
+  private String contentType = "unknown";
+  private int versionCounter;
+
+  DDataPlaneFetcher(String endpoint, String application, String environment, String configuration, int minPollSeconds, AwsSigner signer, HttpClient httpClient) {
+    this.endpoint = URI.create(endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint);
+    this.application = application;
+    this.environment = environment;
+    this.configuration = configuration;
+    this.minPollSeconds = minPollSeconds;
+    this.signer = signer;
+    this.httpClient = httpClient;
+  }
+
+  @Override
+  public URI uri() {
+    return endpoint;
+  }
+
+  @Override
+  public synchronized AppConfigFetcher.Result fetch(String currentVersion) throws ConnectException, FetchException {
+    try {
+      if (token == null) {
+        token = startSession();
+      }
+      return latest(currentVersion, true);
+    } catch (ConnectException e) {
+      throw e; // expected on shutdown
+    } catch (Exception e) {
+      throw new FetchException(e);
+    }
+  }
+
+  private String startSession() throws IOException, InterruptedException {
+    URI uri = URI.create(endpoint + "/configurationsessions");
+    String body = "{\"ApplicationIdentifier\":\"" + json(application)
+      + "\",\"EnvironmentIdentifier\":\"" + json(environment)
+      + "\",\"ConfigurationProfileIdentifier\":\"" + json(configuration)
+      + "\",\"RequiredMinimumPollIntervalInSeconds\":" + minPollSeconds + "}";
+
+    HttpRequest.Builder builder = HttpRequest.newBuilder()
+      .uri(uri)
+      .header("Content-Type", "application/json")
+      .POST(HttpRequest.BodyPublishers.ofString(body));
+    signer.sign(builder, "POST", uri, body);
+    HttpResponse<String> res = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+    if (res.statusCode() != 201 && res.statusCode() != 200) {
+      throw new IOException("StartConfigurationSession failed status:" + res.statusCode() + " body:" + res.body());
+    }
+    Matcher matcher = INITIAL_TOKEN.matcher(res.body());
+    if (!matcher.find()) {
+      throw new IOException("StartConfigurationSession response missing InitialConfigurationToken");
+    }
+    return matcher.group(1);
+  }
+
+  private AppConfigFetcher.Result latest(String currentVersion, boolean restart) throws IOException, InterruptedException {
+    URI uri = URI.create(endpoint + "/configuration?configuration_token=" + AwsSigner.encode(token));
+    HttpRequest.Builder builder = HttpRequest.newBuilder()
+      .uri(uri)
+      .header("Accept-Encoding", "gzip")
+      .GET();
+    signer.sign(builder, "GET", uri, "");
+    HttpResponse<InputStream> res = httpClient.send(builder.build(), info -> {
+      if (info.statusCode() == 200 && currentVersion.equals(info.headers().firstValue("Version-Label").orElse(null))) {
+        // unchanged so discard rather than read the body (e.g. the first call of a new session)
+        return HttpResponse.BodySubscribers.replacing(InputStream.nullInputStream());
+      }
+      return HttpResponse.BodySubscribers.ofInputStream();
+    });
+    if (res.statusCode() != 200) {
+      // start a new session on the next fetch
+      token = null;
+      String message;
+      try (InputStream errorBody = res.body()) {
+        message = new String(errorBody.readAllBytes(), StandardCharsets.UTF_8);
+      }
+      throw new IOException("GetLatestConfiguration failed status:" + res.statusCode() + " body:" + message);
+    }
+    var headers = res.headers();
+    token = headers.firstValue("Next-Poll-Configuration-Token").orElse(null);
+    int nextPollSeconds = headers.firstValue("Next-Poll-Interval-In-Seconds").map(Integer::parseInt).orElse(0);
+    String label = headers.firstValue("Version-Label").orElse(null);
+    if (currentVersion.equals(label)) {
+      version = label;
+      contentType = headers.firstValue("Content-Type").orElse("unknown");
+      return DResult.unchanged(version, contentType, nextPollSeconds);
+    }
+    InputStream body = new BufferedInputStream(res.body());
+    body.mark(1);
+    if (body.read() == -1) {
+      // empty body, unchanged since the previous call
+      body.close();
+      if (restart && !currentVersion.equals(version)) {
+        // the content of the previous call was not applied by the caller
+        token = startSession();
+        return latest(currentVersion, false);
+      }
+      return DResult.unchanged(version, contentType, nextPollSeconds);
+    }
+    body.reset();
+    contentType = headers.firstValue("Content-Type").orElse("unknown");
+    version = label != null ? label : "session-" + ++versionCounter;
+    return new DResult(version, contentType, DResult.decode(headers, body), false, nextPollSeconds);
+  }
+
+  private static String json(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"");
+  }
+}
@@ -1,15 +1,42 @@
 package io.avaje.config.appconfig;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpHeaders;
+import java.util.zip.GZIPInputStream;
+
 final class DResult implements AppConfigFetcher.Result {
 
   private final String version;
   private final String contentType;
-  private final String body;
+  private final InputStream body;
+  private final boolean unchanged;
+  private final int nextPollSeconds;
 
-  DResult(String version, String contentType, String body) {
+  DResult(String version, String contentType, InputStream body, boolean unchanged, int nextPollSeconds) {
     this.version = version;
     this.contentType = contentType;
     this.body = body;
+    this.unchanged = unchanged;
+    this.nextPollSeconds = nextPollSeconds;
+  }
+
+  /**
+   * Return a result for an unchanged configuration (with no body).
+   */
+  static DResult unchanged(String version, String contentType, int nextPollSeconds) {
+    return new DResult(version, contentType, InputStream.nullInputStream(), true, nextPollSeconds);
+  }
+
+  /**
+   * Return the body of the response decompressing gzip content encoding.
+   */
+  static InputStream decode(HttpHeaders headers, InputStream body) throws IOException {
+    if ("gzip".equalsIgnoreCase(headers.firstValue("Content-Encoding").orElse(""))) {
+      return new GZIPInputStream(body);
+    }
+    return body;
   }
 
   @Override
@@ -23,7 +50,26 @@ final class DResult implements AppConfigFetcher.Result {
   }
 
   @Override
-  public String body() {
+  public boolean unchanged() {
+    return unchanged;
+  }
+
+  @Override
+  public InputStream body() {
     return body;
   }
+
+  @Override
+  public int nextPollSeconds() {
+    return nextPollSeconds;
+  }
+
+  @Override
+  public void close() {
+    try {
+      body.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
 }
@@ -0,0 +1,239 @@
+package io.avaje.config.appconfig;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+import io.avaje.config.Configuration;
+
+/**
+ * The AWS AppConfig feature flags loaded from configurations with {@code application/json}
+ * content in a feature flag format.
+ * <p>
+ * The flags are held in an immutable table that is replaced as a whole when a new version
+ * is loaded. Flag and attribute lookups are map lookups of values converted when the
+ * version was loaded, there is no string parsing on each call.
+ *
+ * <pre>{@code
+ *
+ *   FeatureFlags flags = FeatureFlags.of(configuration);
+ *
+ *   if (flags.enabled("newCheckout")) {
+ *     long limit = flags.flag("newCheckout").longValue("limit", 10);
+ *     ...
+ *   }
+ *
+ * }</pre>
+ * <p>
+ * The flags are also published to the configuration as {@code flags.<flag>.enabled} and
+ * {@code flags.<flag>.<attribute>} keys such that they can be read like other configuration.
+ * The {@code flags.} prefix is set via {@code aws.appconfig.flagsPrefix}.
+ */
+public final class FeatureFlags {
+
+  private static final Map<Configuration, FeatureFlags> registry = new WeakHashMap<>();
+
+  private volatile Map<String, Flag> table = Map.of();
+
+  private FeatureFlags() {
+  }
+
+  /**
+   * Return the feature flags of the given configuration.
+   * <p>
+   * The returned instance is updated as new versions are loaded so can be held.
+   */
+  public static FeatureFlags of(Configuration configuration) {
+    synchronized (registry) {
+      return registry.computeIfAbsent(configuration, c -> new FeatureFlags());
+    }
+  }
+
+  /**
+   * Return true if the flag exists and is enabled.
+   */
+  public boolean enabled(String name) {
+    Flag flag = table.get(name);
+    return flag != null && flag.enabled;
+  }
+
+  /**
+   * Return the flag with the given name or a disabled flag with no attributes if it does not exist.
+   */
+  public Flag flag(String name) {
+    Flag flag = table.get(name);
+    return flag != null ? flag : new Flag(name, false, Map.of());
+  }
+
+  /**
+   * Return the names of all the flags.
+   */
+  public Set<String> names() {
+    return table.keySet();
+  }
+
+  /**
+   * Replace all the flags with the new table.
+   */
+  void update(Map<String, Flag> newTable) {
+    table = Collections.unmodifiableMap(newTable);
+  }
+
+  /**
+   * Parse the AppConfig feature flag JSON into a table of flags.
+   *
+   * @throws IllegalArgumentException when the content is not valid feature flag JSON
+   */
+  static Map<String, Flag> parse(String json) {
+    return flags(JsonParser.parse(json));
+  }
+
+  /**
+   * Return true if the parsed JSON is in the stored feature flag format with {@code flags}
+   * and {@code values} objects.
+   * <p>
+   * The format returned by AppConfig (an object per flag) is not detected as plain JSON
+   * configuration can have the same shape, it is read as flags with the type set to {@code flags}.
+   */
+  static boolean isFlags(Object json) {
+    if (!(json instanceof Map)) {
+      return false;
+    }
+    Map<?, ?> root = (Map<?, ?>) json;
+    return root.get("values") instanceof Map && root.get("flags") instanceof Map;
+  }
+
+  /**
+   * Convert the parsed feature flag JSON into a table of flags.
+   * <p>
+   * Supports the format returned by AppConfig {@code {"<flag>":{"enabled":true,"<attribute>":...}}}
+   * as well as the stored format with {@code flags} and {@code values} sections.
+   *
+   * @throws IllegalArgumentException when the content is not feature flag JSON
+   */
+  static Map<String, Flag> flags(Object json) {
+    Map<String, Object> root = object(json, "feature flags");
+    if (root.get("values") instanceof Map && root.get("flags") instanceof Map) {
+      root = object(root.get("values"), "values");
+    }
+    var flags = new LinkedHashMap<String, Flag>();
+    root.forEach((name, value) -> {
+      var attributes = new LinkedHashMap<>(object(value, name));
+      boolean enabled = Boolean.TRUE.equals(attributes.remove("enabled"));
+      attributes.replaceAll((key, attribute) -> attribute instanceof List ? Collections.unmodifiableList((List<?>) attribute) : attribute);
+      flags.put(name, new Flag(name, enabled, Collections.unmodifiableMap(attributes)));
+    });
+    return flags;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> object(Object value, String name) {
+    if (!(value instanceof Map)) {
+      throw new IllegalArgumentException("Expected a JSON object for " + name);
+    }
+    return (Map<String, Object>) value;
+  }
+
+  /**
+   * A feature flag with its attributes.
+   */
+  public static final class Flag {
+
+    private final String name;
+    private final boolean enabled;
+    private final Map<String, Object> attributes;
+
+    Flag(String name, boolean enabled, Map<String, Object> attributes) {
+      this.name = name;
+      this.enabled = enabled;
+      this.attributes = attributes;
+    }
+
+    /**
+     * Return the name of the flag.
+     */
+    public String name() {
+      return name;
+    }
+
+    /**
+     * Return true if the flag is enabled.
+     */
+    public boolean enabled() {
+      return enabled;
+    }
+
+    /**
+     * Return the attribute value as String, Long (BigInteger when too large for a long), Double,
+     * Boolean or List or null if not defined.
+     */
+    public Object attribute(String key) {
+      return attributes.get(key);
+    }
+
+    /**
+     * Return the attribute as a String or the default value if not defined.
+     */
+    public String string(String key, String defaultValue) {
+      Object value = attributes.get(key);
+      return value == null ? defaultValue : value.toString();
+    }
+
+    /**
+     * Return the numeric attribute as a long or the default value if not defined or not a number.
+     */
+    public long longValue(String key, long defaultValue) {
+      Object value = attributes.get(key);
+      return value instanceof Number ? ((Number) value).longValue() : defaultValue;
+    }
+
+    /**
+     * Return the numeric attribute as a double or the default value if not defined or not a number.
+     */
+    public double doubleValue(String key, double defaultValue) {
+      Object value = attributes.get(key);
+      return value instanceof Number ? ((Number) value).doubleValue() : defaultValue;
+    }
+
+    /**
+     * Return the boolean attribute or the default value if not defined or not a boolean.
+     */
+    public boolean bool(String key, boolean defaultValue) {
+      Object value = attributes.get(key);
+      return value instanceof Boolean ? (Boolean) value : defaultValue;
+    }
+
+    /**
+     * Return all the attributes of the flag.
+     */
+    public Map<String, Object> attributes() {
+      return attributes;
+    }
+
+    /**
+     * Pass the flag as configuration key values.
+     *
+     * @param prefix The prefix of the keys (for example {@code flags.})
+     */
+    void keyValues(String prefix, BiConsumer<String, String> consumer) {
+      consumer.accept(prefix + name + ".enabled", String.valueOf(enabled));
+      attributes.forEach((key, value) -> {
+        if (value != null) {
+          consumer.accept(prefix + name + '.' + key, value instanceof List
+            ? ((List<?>) value).stream().map(String::valueOf).collect(Collectors.joining(","))
+            : value.toString());
+        }
+      });
+    }
+
+    @Override
+    public String toString() {
+      return name + (enabled ? " enabled " : " disabled ") + attributes;
+    }
+  }
+}
@@ -0,0 +1,300 @@
+package io.avaje.config.appconfig;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Minimal JSON parser for AppConfig JSON content, reading the content as a stream.
+ * <p>
+ * Objects are returned as a {@code Map}, arrays as a {@code List}, whole numbers as
+ * {@code Long} (or {@code BigInteger} when too large for a long), other numbers as
+ * {@code Double} along with {@code String}, {@code Boolean} and null.
+ */
+final class JsonParser {
+
+  private final Reader reader;
+  private final char[] buffer = new char[4096];
+  private int limit;
+  private int index;
+  /**
+   * The position of the next character in the content.
+   */
+  private long pos;
+
+  private JsonParser(Reader reader) {
+    this.reader = reader;
+  }
+
+  /**
+   * Parse the JSON content.
+   *
+   * @throws IllegalArgumentException when the content is not valid JSON
+   */
+  static Object parse(String json) {
+    return parse(new StringReader(json));
+  }
+
+  /**
+   * Parse the JSON content streamed from the reader (which is not closed).
+   *
+   * @throws IllegalArgumentException when the content is not valid JSON
+   * @throws UncheckedIOException     when the content can not be read
+   */
+  static Object parse(Reader reader) {
+    var parser = new JsonParser(reader);
+    Object value = parser.value();
+    parser.skipWhitespace();
+    if (parser.peek() != -1) {
+      throw parser.error("Unexpected content");
+    }
+    return value;
+  }
+
+  /**
+   * Flatten the parsed JSON into configuration key values.
+   * <p>
+   * Nested objects use dot notation keys, arrays of scalar values are joined with a comma
+   * and arrays of objects use {@code [index]} keys. Null values are skipped.
+   */
+  static void flatten(Object json, BiConsumer<String, String> consumer) {
+    flatten("", json, consumer);
+  }
+
+  private static void flatten(String key, Object value, BiConsumer<String, String> consumer) {
+    if (value instanceof Map) {
+      ((Map<?, ?>) value).forEach((name, child) -> flatten(key.isEmpty() ? (String) name : key + '.' + name, child, consumer));
+    } else if (value instanceof List) {
+      List<?> list = (List<?>) value;
+      if (list.stream().anyMatch(element -> element instanceof Map || element instanceof List)) {
+        for (int i = 0; i < list.size(); i++) {
+          flatten(key + '[' + i + ']', list.get(i), consumer);
+        }
+      } else {
+        consumer.accept(key, list.stream().map(String::valueOf).collect(Collectors.joining(",")));
+      }
+    } else if (value != null && !key.isEmpty()) {
+      consumer.accept(key, value.toString());
+    }
+  }
+
+  private Object value() {
+    skipWhitespace();
+    int ch = peek();
+    switch (ch) {
+      case -1:
+        throw error("Unexpected end of content");
+      case '{':
+        return object();
+      case '[':
+        return array();
+      case '"':
+        return string();
+      case 't':
+        return literal("true", Boolean.TRUE);
+      case 'f':
+        return literal("false", Boolean.FALSE);
+      case 'n':
+        return literal("null", null);
+      default:
+        return number();
+    }
+  }
+
+  private Map<String, Object> object() {
+    var map = new LinkedHashMap<String, Object>();
+    next();
+    skipWhitespace();
+    if (consume('}')) {
+      return map;
+    }
+    do {
+      skipWhitespace();
+      if (peek() != '"') {
+        throw error("Expected object key");
+      }
+      String key = string();
+      skipWhitespace();
+      expect(':');
+      map.put(key, value());
+      skipWhitespace();
+    } while (consume(','));
+    expect('}');
+    return map;
+  }
+
+  private List<Object> array() {
+    var list = new ArrayList<>();
+    next();
+    skipWhitespace();
+    if (consume(']')) {
+      return list;
+    }
+    do {
+      list.add(value());
+      skipWhitespace();
+    } while (consume(','));
+    expect(']');
+    return list;
+  }
+
+  private String string() {
+    next();
+    var sb = new StringBuilder();
+    int ch;
+    while ((ch = next()) != -1) {
+      if (ch == '"') {
+        return sb.toString();
+      }
+      if (ch != '\\') {
+        sb.append((char) ch);
+        continue;
+      }
+      int escaped = next();
+      switch (escaped) {
+        case -1:
+          throw error("Unterminated string");
+        case 'b':
+          sb.append('\b');
+          break;
+        case 'f':
+          sb.append('\f');
+          break;
+        case 'n':
+          sb.append('\n');
+          break;
+        case 'r':
+          sb.append('\r');
+          break;
+        case 't':
+          sb.append('\t');
+          break;
+        case 'u':
+          sb.append(unicode());
+          break;
+        default:
+          sb.append((char) escaped);
+      }
+    }
+    throw error("Unterminated string");
+  }
+
+  private char unicode() {
+    int value = 0;
+    for (int i = 0; i < 4; i++) {
+      int digit = Character.digit(next(), 16);
+      if (digit < 0) {
+        throw error("Invalid unicode escape");
+      }
+      value = value << 4 | digit;
+    }
+    return (char) value;
+  }
+
+  private Object literal(String literal, Object value) {
+    for (int i = 0; i < literal.length(); i++) {
+      if (next() != literal.charAt(i)) {
+        throw error("Unexpected value");
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Return the whole number as Long or as BigInteger when it does not fit in a long.
+   */
+  private static Object wholeNumber(String number) {
+    var value = new BigInteger(number);
+    return value.bitLength() < 64 ? (Object) value.longValue() : value;
+  }
+
+  private Object number() {
+    var sb = new StringBuilder();
+    boolean decimal = false;
+    int ch;
+    while ((ch = peek()) != -1) {
+      if (ch == '.' || ch == 'e' || ch == 'E') {
+        decimal = true;
+      } else if (!(ch >= '0' && ch <= '9' || ch == '-' || ch == '+')) {
+        break;
+      }
+      sb.append((char) next());
+    }
+    String number = sb.toString();
+    try {
+      if (decimal) {
+        return Double.parseDouble(number);
+      }
+      return number.length() < 19 ? (Object) Long.parseLong(number) : wholeNumber(number);
+    } catch (NumberFormatException e) {
+      throw error("Invalid number " + number);
+    }
+  }
+
+  private void skipWhitespace() {
+    int ch;
+    while ((ch = peek()) != -1 && Character.isWhitespace(ch)) {
+      next();
+    }
+  }
+
+  private boolean consume(char ch) {
+    if (peek() == ch) {
+      next();
+      return true;
+    }
+    return false;
+  }
+
+  private void expect(char ch) {
+    if (!consume(ch)) {
+      throw error("Expected '" + ch + "'");
+    }
+  }
+
+  /**
+   * Return the next character without consuming it or -1 at the end of the content.
+   */
+  private int peek() {
+    if (index == limit) {
+      try {
+        int read;
+        do {
+          read = reader.read(buffer);
+        } while (read == 0);
+        if (read == -1) {
+          return -1;
+        }
+        limit = read;
+        index = 0;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return buffer[index];
+  }
+
+  /**
+   * Consume and return the next character or -1 at the end of the content.
+   */
+  private int next() {
+    int ch = peek();
+    if (ch != -1) {
+      index++;
+      pos++;
+    }
+    return ch;
+  }
+
+  private IllegalArgumentException error(String message) {
+    return new IllegalArgumentException(message + " at position " + pos);
+  }
+}
@@ -0,0 +1,37 @@
+package io.avaje.config.appconfig;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class AdaptivePollingTest {
+
+  private static final long SECOND = 1_000_000_000L;
+
+  @Test
+  void stable_expect_backoffToMax() {
+    var polling = new AdaptivePolling(45_000, 5_000, 300_000, 300_000);
+
+    assertThat(polling.next(false, 0)).isEqualTo(45_000);
+    assertThat(polling.next(false, 45 * SECOND)).isEqualTo(90_000);
+    assertThat(polling.next(false, 135 * SECOND)).isEqualTo(180_000);
+    assertThat(polling.next(false, 315 * SECOND)).isEqualTo(300_000);
+    assertThat(polling.next(false, 615 * SECOND)).isEqualTo(300_000);
+  }
+
+  @Test
+  void changed_expect_fastForWindowThenBackoff() {
+    var polling = new AdaptivePolling(45_000, 5_000, 60_000, 300_000);
+    polling.next(false, 0);
+    polling.next(false, 45 * SECOND);
+
+    assertThat(polling.next(true, 100 * SECOND)).isEqualTo(5_000);
+    assertThat(polling.next(false, 105 * SECOND)).isEqualTo(5_000);
+    // another change extends the window
+    assertThat(polling.next(true, 150 * SECOND)).isEqualTo(5_000);
+    assertThat(polling.next(false, 205 * SECOND)).isEqualTo(5_000);
+    // window passed, back off again from the base interval
+    assertThat(polling.next(false, 210 * SECOND)).isEqualTo(45_000);
+    assertThat(polling.next(false, 255 * SECOND)).isEqualTo(90_000);
+  }
+}
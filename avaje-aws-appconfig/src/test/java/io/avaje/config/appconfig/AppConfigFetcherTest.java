@@ -0,0 +1,159 @@
+package io.avaje.config.appconfig;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class AppConfigFetcherTest {
+
+  private AppConfigStubServer server;
+
+  @BeforeEach
+  void start() throws Exception {
+    server = new AppConfigStubServer()
+      .put("default", "application/x-yaml", "my.key: one\n");
+  }
+
+  @AfterEach
+  void stop() {
+    server.close();
+  }
+
+  private AppConfigFetcher.Builder builder() {
+    return AppConfigFetcher.builder()
+      .application("app")
+      .environment("dev")
+      .configuration("default");
+  }
+
+  private AppConfigFetcher.Builder dataPlane() {
+    return builder()
+      .dataPlane(server.endpoint())
+      .region("us-east-1")
+      .credentials("AKIDEXAMPLE", "secret", null);
+  }
+
+  @Test
+  void agent_fetch() throws Exception {
+    var fetcher = builder().port(server.port()).build();
+
+    try (var result = fetcher.fetch("none")) {
+      assertThat(result.unchanged()).isFalse();
+      assertThat(result.version()).isEqualTo("1");
+      assertThat(result.contentType()).isEqualTo("application/x-yaml");
+      assertThat(body(result)).isEqualTo("my.key: one\n");
+    }
+  }
+
+  @Test
+  void agent_fetch_gzip() throws Exception {
+    server.gzip(true);
+    var fetcher = builder().port(server.port()).build();
+
+    try (var result = fetcher.fetch("none")) {
+      assertThat(body(result)).isEqualTo("my.key: one\n");
+    }
+  }
+
+  @Test
+  void agent_fetch_sameVersion_expect_unchanged() throws Exception {
+    var fetcher = builder().port(server.port()).build();
+
+    try (var result = fetcher.fetch("1")) {
+      assertThat(result.unchanged()).isTrue();
+      assertThat(result.version()).isEqualTo("1");
+      assertThat(body(result)).isEmpty();
+    }
+  }
+
+  @Test
+  void dataPlane_fetch_expect_emptyBodyWhenUnchanged() throws Exception {
+    server.gzip(true);
+    var fetcher = dataPlane().build();
+
+    try (var first = fetcher.fetch("none")) {
+      assertThat(first.unchanged()).isFalse();
+      assertThat(first.version()).isEqualTo("1");
+      assertThat(body(first)).isEqualTo("my.key: one\n");
+      assertThat(first.nextPollSeconds()).isEqualTo(15);
+    }
+
+    server.nextPollSeconds(30);
+    try (var unchanged = fetcher.fetch("1")) {
+      assertThat(unchanged.unchanged()).isTrue();
+      assertThat(unchanged.version()).isEqualTo("1");
+      assertThat(unchanged.nextPollSeconds()).isEqualTo(30);
+    }
+    assertThat(server.bodies()).isEqualTo(1);
+
+    server.put("default", "application/x-yaml", "my.key: two\n");
+    try (var changed = fetcher.fetch("1")) {
+      assertThat(changed.unchanged()).isFalse();
+      assertThat(changed.version()).isEqualTo("2");
+      assertThat(body(changed)).isEqualTo("my.key: two\n");
+    }
+    // session start + 3 fetches
+    assertThat(server.requests()).isEqualTo(4);
+  }
+
+  @Test
+  void dataPlane_expiredToken_expect_newSessionOnNextFetch() throws Exception {
+    var fetcher = dataPlane().build();
+    fetcher.fetch("none").close();
+
+    server.expireSessions();
+    assertThatThrownBy(() -> fetcher.fetch("1")).isInstanceOf(AppConfigFetcher.FetchException.class);
+
+    // the new session returns the body again but it is skipped as the version is unchanged
+    try (var result = fetcher.fetch("1")) {
+      assertThat(result.unchanged()).isTrue();
+      assertThat(result.version()).isEqualTo("1");
+    }
+  }
+
+  @Test
+  void dataPlane_noRegion_expect_failFast() {
+    assertThatThrownBy(() -> builder().dataPlane(server.endpoint()).credentials("AKIDEXAMPLE", "secret", null).build())
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageContaining("region");
+  }
+
+  @Test
+  void dataPlane_noCredentials_expect_failFast() {
+    assumeTrue(System.getenv("AWS_ACCESS_KEY_ID") == null || System.getenv("AWS_SECRET_ACCESS_KEY") == null);
+    assertThatThrownBy(() -> builder().dataPlane(server.endpoint()).region("us-east-1").build())
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageContaining("AWS_ACCESS_KEY_ID");
+  }
+
+  @Test
+  void sign_expect_awsTestSuiteSignature() {
+    // the get-vanilla example of the AWS Signature Version 4 test suite
+    var signer = new AwsSigner("AKIDEXAMPLE", "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY", null, "us-east-1", "service");
+    var uri = URI.create("https://example.amazonaws.com/");
+    var builder = HttpRequest.newBuilder().uri(uri).GET();
+    signer.sign(builder, "GET", uri, "", ZonedDateTime.of(2015, 8, 30, 12, 36, 0, 0, ZoneOffset.UTC));
+
+    var request = builder.build();
+    assertThat(request.headers().firstValue("X-Amz-Date")).hasValue("20150830T123600Z");
+    assertThat(request.headers().firstValue("Authorization")).hasValue("AWS4-HMAC-SHA256 "
+      + "Credential=AKIDEXAMPLE/20150830/us-east-1/service/aws4_request, "
+      + "SignedHeaders=host;x-amz-date, "
+      + "Signature=5fa00fa31553b73ebf1942676e86291e8372ff2a2260956d9b8aae1d763fbf31");
+  }
+
+  private static String body(AppConfigFetcher.Result result) throws IOException {
+    return new String(result.body().readAllBytes(), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,366 @@
+package io.avaje.config.appconfig;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.avaje.config.Configuration;
+import io.avaje.config.ModificationEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AppConfigPluginTest {
+
+  private AppConfigStubServer server;
+
+  @BeforeEach
+  void start() throws Exception {
+    server = new AppConfigStubServer()
+      .put("default", "application/x-yaml", "my.key: one\nmy.other: 42\n");
+  }
+
+  @AfterEach
+  void stop() {
+    server.close();
+  }
+
+  private Configuration.Builder config(int port) {
+    return Configuration.builder()
+      .put("aws.appconfig.application", "app")
+      .put("aws.appconfig.environment", "dev")
+      .put("aws.appconfig.port", String.valueOf(port))
+      .put("aws.appconfig.pollingEnabled", "false");
+  }
+
+  @Test
+  void initialLoad() {
+    var configuration = config(server.port()).build();
+    var loader = new AppConfigPlugin.Loader(configuration);
+
+    assertThat(loader.initialLoad()).isEqualTo(1);
+    assertThat(configuration.get("my.key")).isEqualTo("one");
+    assertThat(configuration.getInt("my.other")).isEqualTo(42);
+  }
+
+  @Test
+  void initialLoad_unavailable_expect_stopAtDeadline() throws Exception {
+    int unusedPort;
+    try (var socket = new ServerSocket(0)) {
+      unusedPort = socket.getLocalPort();
+    }
+    var configuration = config(unusedPort)
+      .put("aws.appconfig.initialLoadRetryMillis", "10")
+      .put("aws.appconfig.startupDeadlineMillis", "300")
+      .build();
+    var loader = new AppConfigPlugin.Loader(configuration);
+
+    long start = System.currentTimeMillis();
+    assertThat(loader.initialLoad()).isEqualTo(-1);
+    assertThat(System.currentTimeMillis() - start).isLessThan(3000);
+    assertThat(configuration.getOptional("my.key")).isEmpty();
+  }
+
+  @Test
+  void load_async_expect_singleEventWhenLoaded() throws InterruptedException {
+    var configuration = config(server.port())
+      .put("aws.appconfig.initialLoadAsync", "true")
+      .build();
+    List<ModificationEvent> events = new ArrayList<>();
+    var loaded = new CountDownLatch(1);
+    configuration.onChange(event -> {
+      events.add(event);
+      loaded.countDown();
+    });
+
+    new AppConfigPlugin().load(configuration);
+
+    assertThat(loaded.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(events).hasSize(1);
+    assertThat(events.get(0).modifiedKeys()).containsExactlyInAnyOrder("my.key", "my.other");
+    assertThat(configuration.get("my.key")).isEqualTo("one");
+    configuration.close();
+  }
+
+  @Test
+  void cacheFile_expect_lastKnownGoodAppliedAtStartup(@TempDir Path dir) throws Exception {
+    var cacheFile = dir.resolve("appconfig.cache");
+    var configuration = config(server.port())
+      .put("aws.appconfig.cacheFile", cacheFile.toString())
+      .build();
+    new AppConfigPlugin().load(configuration);
+    assertThat(configuration.get("my.key")).isEqualTo("one");
+    assertThat(Files.readString(cacheFile)).isEqualTo("avaje-appconfig-cache:1\n1\napplication/x-yaml\nmy.key: one\nmy.other: 42\n");
+    assertThat(dir.toFile().list()).containsExactly("appconfig.cache");
+
+    // AppConfig agent not available
+    int unusedPort;
+    try (var socket = new ServerSocket(0)) {
+      unusedPort = socket.getLocalPort();
+    }
+    var restarted = config(unusedPort)
+      .put("aws.appconfig.cacheFile", cacheFile.toString())
+      .put("aws.appconfig.startupDeadlineMillis", "200")
+      .build();
+    long start = System.currentTimeMillis();
+    new AppConfigPlugin().load(restarted);
+    assertThat(System.currentTimeMillis() - start).isLessThan(1000);
+    assertThat(restarted.get("my.key")).isEqualTo("one");
+    assertThat(restarted.getInt("my.other")).isEqualTo(42);
+    configuration.close();
+    restarted.close();
+  }
+
+  @Test
+  void cacheFile_expect_reconciledInBackground(@TempDir Path dir) throws Exception {
+    var cacheFile = dir.resolve("appconfig.cache");
+    Files.writeString(cacheFile, "avaje-appconfig-cache:1\n0\napplication/x-yaml\nmy.key: cached\nmy.old: x\n");
+    var configuration = config(server.port())
+      .put("aws.appconfig.cacheFile", cacheFile.toString())
+      .build();
+    var reconciled = new CountDownLatch(1);
+    configuration.onChange(event -> {
+      if ("one".equals(event.configuration().get("my.key"))) {
+        reconciled.countDown();
+      }
+    });
+
+    new AppConfigPlugin().load(configuration);
+    assertThat(reconciled.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(configuration.get("my.key")).isEqualTo("one");
+    // the cache file is replaced after the event is published
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!Files.readString(cacheFile).contains("my.key: one") && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(Files.readString(cacheFile)).contains("my.key: one");
+    configuration.close();
+  }
+
+  @Test
+  void cacheFile_slowEarlierSource_expect_liveValuesNotReplacedByCached(@TempDir Path dir) throws Exception {
+    var cacheFile = dir.resolve("appconfig.cache");
+    Files.writeString(cacheFile, "avaje-appconfig-cache:1\n0\napplication/x-yaml\nmy.key: cached\nmy.old: x\n");
+
+    // the cached values are applied after the slow source (loaded concurrently and earlier)
+    var configuration = config(server.port())
+      .put("aws.appconfig.cacheFile", cacheFile.toString())
+      .put("test.slowSource.millis", "300")
+      .includeResourceLoading()
+      .build();
+    assertThat(configuration.get("test.slowSource")).isEqualTo("loaded");
+
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!"one".equals(configuration.get("my.key")) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(configuration.get("my.key")).isEqualTo("one");
+    assertThat(configuration.getOptional("my.old")).isEmpty();
+    configuration.close();
+  }
+
+  @Test
+  void multipleConfigurations_expect_mergedInDeclaredOrder() {
+    server.put("shared", "application/x-yaml", "my.key: shared\nshared.key: a\n")
+      .put("service", "text/plain", "my.key=service\n");
+    var configuration = config(server.port())
+      .put("aws.appconfig.configuration", "shared,service")
+      .put("aws.appconfig.refreshSeconds", "0")
+      .build();
+    List<ModificationEvent> events = new ArrayList<>();
+    configuration.onChange(events::add);
+    var loader = new AppConfigPlugin.Loader(configuration);
+
+    assertThat(loader.initialLoad()).isEqualTo(1);
+    assertThat(configuration.get("my.key")).isEqualTo("service");
+    assertThat(configuration.get("shared.key")).isEqualTo("a");
+    assertThat(events).hasSize(1);
+    assertThat(server.requests()).isEqualTo(2);
+
+    // only shared changes, service still takes precedence
+    server.put("shared", "application/x-yaml", "my.key: shared2\nshared.key: b\n");
+    loader.reload();
+    assertThat(configuration.get("my.key")).isEqualTo("service");
+    assertThat(configuration.get("shared.key")).isEqualTo("b");
+    assertThat(events).hasSize(2);
+    assertThat(events.get(1).modifiedKeys()).containsExactly("shared.key");
+    assertThat(server.requests()).isEqualTo(4);
+  }
+
+  @Test
+  void dataPlane_otherConfigurationFails_expect_newVersionAppliedOnNextPoll() {
+    server.put("shared", "application/x-yaml", "shared.key: a\n")
+      .put("service", "text/plain", "service.key=a\n")
+      .nextPollSeconds(0);
+    var configuration = config(server.port())
+      .put("aws.appconfig.mode", "data")
+      .put("aws.appconfig.endpoint", server.endpoint())
+      .put("aws.appconfig.region", "us-east-1")
+      .put("aws.appconfig.accessKeyId", "AKIDEXAMPLE")
+      .put("aws.appconfig.secretAccessKey", "secret")
+      .put("aws.appconfig.configuration", "shared,service")
+      .put("aws.appconfig.refreshSeconds", "0")
+      .build();
+    var loader = new AppConfigPlugin.Loader(configuration);
+    assertThat(loader.initialLoad()).isEqualTo(1);
+    assertThat(configuration.get("shared.key")).isEqualTo("a");
+
+    // shared is fetched but not applied as service fails on this poll
+    server.put("shared", "application/x-yaml", "shared.key: b\n").fail("service", 1);
+    loader.reload();
+    assertThat(configuration.get("shared.key")).isEqualTo("a");
+
+    // the session of shared has moved past the new version, it is still applied
+    loader.reload();
+    assertThat(configuration.get("shared.key")).isEqualTo("b");
+    assertThat(configuration.get("service.key")).isEqualTo("a");
+  }
+
+  @Test
+  void newVersion_expect_minimalDiffWithRemovedKeys() {
+    var configuration = config(server.port())
+      .put("aws.appconfig.refreshSeconds", "0")
+      .build();
+    List<ModificationEvent> events = new ArrayList<>();
+    configuration.onChange(events::add);
+    var loader = new AppConfigPlugin.Loader(configuration);
+    loader.initialLoad();
+
+    server.put("default", "application/x-yaml", "my.key: one\nmy.new: x\n");
+    loader.reload();
+    assertThat(events).hasSize(2);
+    assertThat(events.get(1).modifiedKeys()).containsExactlyInAnyOrder("my.other", "my.new");
+    assertThat(configuration.getOptional("my.other")).isEmpty();
+    assertThat(configuration.get("my.new")).isEqualTo("x");
+    assertThat(configuration.get("my.key")).isEqualTo("one");
+
+    // new version with the same content, nothing to publish
+    server.put("default", "application/x-yaml", "my.key: one\nmy.new: x\n");
+    loader.reload();
+    assertThat(events).hasSize(2);
+  }
+
+  @Test
+  void removedKey_expect_localValueRestored() {
+    var configuration = config(server.port())
+      .put("my.other", "local")
+      .put("aws.appconfig.refreshSeconds", "0")
+      .build();
+    var loader = new AppConfigPlugin.Loader(configuration);
+    loader.initialLoad();
+    assertThat(configuration.get("my.other")).isEqualTo("42");
+
+    server.put("default", "application/x-yaml", "my.key: one\n");
+    loader.reload();
+    assertThat(configuration.get("my.other")).isEqualTo("local");
+    assertThat(configuration.get("my.key")).isEqualTo("one");
+
+    // defined again by AppConfig and then removed again
+    server.put("default", "application/x-yaml", "my.key: one\nmy.other: 43\n");
+    loader.reload();
+    assertThat(configuration.get("my.other")).isEqualTo("43");
+    server.put("default", "application/x-yaml", "my.other: 44\n");
+    loader.reload();
+    assertThat(configuration.get("my.other")).isEqualTo("44");
+    assertThat(configuration.getOptional("my.key")).isEmpty();
+    server.put("default", "application/x-yaml", "my.key: two\n");
+    loader.reload();
+    assertThat(configuration.get("my.other")).isEqualTo("local");
+  }
+
+  @Test
+  void featureFlags_expect_replacedOnNewVersion() {
+    server.put("flags", "application/json", "{\"checkout\":{\"enabled\":true,\"limit\":5},\"legacy\":{\"enabled\":true}}");
+    var configuration = config(server.port())
+      .put("aws.appconfig.configuration", "default,flags")
+      .put("aws.appconfig.flags.type", "flags")
+      .put("aws.appconfig.refreshSeconds", "0")
+      .build();
+    var loader = new AppConfigPlugin.Loader(configuration);
+    var flags = FeatureFlags.of(configuration);
+
+    assertThat(loader.initialLoad()).isEqualTo(1);
+    assertThat(flags.enabled("checkout")).isTrue();
+    assertThat(flags.flag("checkout").longValue("limit", 0)).isEqualTo(5);
+    assertThat(flags.enabled("legacy")).isTrue();
+    assertThat(configuration.enabled("flags.checkout.enabled")).isTrue();
+    assertThat(configuration.get("my.key")).isEqualTo("one");
+
+    server.put("flags", "application/json", "{\"checkout\":{\"enabled\":false,\"limit\":9}}");
+    loader.reload();
+    assertThat(flags.enabled("checkout")).isFalse();
+    assertThat(flags.flag("checkout").longValue("limit", 0)).isEqualTo(9);
+    assertThat(flags.enabled("legacy")).isFalse();
+    assertThat(flags.names()).containsExactly("checkout");
+    assertThat(configuration.getOptional("flags.legacy.enabled")).isEmpty();
+    assertThat(FeatureFlags.of(configuration)).isSameAs(flags);
+  }
+
+  @Test
+  void featureFlags_flagsPrefix_expect_keysWithPrefix() {
+    server.put("default", "application/json", "{\"checkout\":{\"enabled\":true,\"limit\":5}}");
+    var configuration = config(server.port())
+      .put("aws.appconfig.default.type", "flags")
+      .put("aws.appconfig.flagsPrefix", "feature.")
+      .build();
+    var loader = new AppConfigPlugin.Loader(configuration);
+
+    assertThat(loader.initialLoad()).isEqualTo(1);
+    assertThat(configuration.enabled("feature.checkout.enabled")).isTrue();
+    assertThat(configuration.getInt("feature.checkout.limit")).isEqualTo(5);
+    assertThat(configuration.getOptional("checkout.enabled")).isEmpty();
+  }
+
+  @Test
+  void jsonConfiguration_expect_flattenedKeysAndNoFlags() {
+    server.put("default", "application/json", "{\"timeout\":5,\"db\":{\"url\":\"x\",\"pool\":{\"max\":3}},"
+      + "\"hosts\":[\"a\",\"b\"],\"servers\":[{\"port\":80}],\"none\":null,"
+      + "\"cache\":{\"enabled\":true,\"ttl\":60},\"big\":123456789012345678901234}");
+    var configuration = config(server.port()).build();
+    var loader = new AppConfigPlugin.Loader(configuration);
+
+    assertThat(loader.initialLoad()).isEqualTo(1);
+    assertThat(configuration.getInt("timeout")).isEqualTo(5);
+    assertThat(configuration.get("db.url")).isEqualTo("x");
+    assertThat(configuration.getInt("db.pool.max")).isEqualTo(3);
+    assertThat(configuration.list().of("hosts")).containsExactly("a", "b");
+    assertThat(configuration.getInt("servers[0].port")).isEqualTo(80);
+    assertThat(configuration.getOptional("none")).isEmpty();
+    assertThat(configuration.getOptional("db.enabled")).isEmpty();
+    // an object with a boolean enabled is not a feature flag without the type set
+    assertThat(configuration.enabled("cache.enabled")).isTrue();
+    assertThat(configuration.getInt("cache.ttl")).isEqualTo(60);
+    assertThat(configuration.get("big")).isEqualTo("123456789012345678901234");
+    assertThat(FeatureFlags.of(configuration).names()).isEmpty();
+  }
+
+  @Test
+  void jsonConfiguration_typeFlags_expect_invalidFlagsRejected() {
+    server.put("default", "application/json", "{\"timeout\":5}");
+    var configuration = config(server.port())
+      .put("aws.appconfig.default.type", "flags")
+      .put("aws.appconfig.initialLoadAttempts", "1")
+      .build();
+    var loader = new AppConfigPlugin.Loader(configuration);
+
+    assertThat(loader.initialLoad()).isEqualTo(-1);
+    assertThat(configuration.getOptional("timeout")).isEmpty();
+  }
+
+  @Test
+  void backoff() {
+    for (int i = 0; i < 50; i++) {
+      assertThat(AppConfigPlugin.Loader.backoff(100, 5000, 1)).isBetween(50L, 100L);
+      assertThat(AppConfigPlugin.Loader.backoff(100, 5000, 3)).isBetween(200L, 400L);
+      assertThat(AppConfigPlugin.Loader.backoff(100, 5000, 20)).isBetween(2500L, 5000L);
+      assertThat(AppConfigPlugin.Loader.backoff(100, 5000, 100)).isBetween(2500L, 5000L);
+    }
+  }
+}
@@ -0,0 +1,251 @@
+package io.avaje.config.appconfig;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * In-process stub of both the AppConfig agent and the AppConfig data plane session API
+ * for testing offline.
+ */
+final class AppConfigStubServer implements AutoCloseable {
+
+  private static final Pattern AGENT_PATH = Pattern.compile("/applications/[^/]+/environments/[^/]+/configurations/([^/]+)");
+  private static final Pattern PROFILE = Pattern.compile("\"ConfigurationProfileIdentifier\"\\s*:\\s*\"([^\"]+)\"");
+
+  private final HttpServer server;
+  private final Map<String, Content> contents = new ConcurrentHashMap<>();
+  /**
+   * Session token to the configuration and the version last returned to that session.
+   */
+  private final Map<String, String[]> sessions = new ConcurrentHashMap<>();
+  /**
+   * Configuration to the number of following requests for it that fail.
+   */
+  private final Map<String, Integer> failures = new ConcurrentHashMap<>();
+  private final AtomicInteger tokenCounter = new AtomicInteger();
+  private final AtomicInteger requests = new AtomicInteger();
+  private final AtomicInteger bodies = new AtomicInteger();
+  private volatile int nextPollSeconds = 15;
+  private volatile boolean gzip;
+
+  AppConfigStubServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", this::handle);
+    server.start();
+  }
+
+  int port() {
+    return server.getAddress().getPort();
+  }
+
+  String endpoint() {
+    return "http://localhost:" + port();
+  }
+
+  /**
+   * Set the content of the configuration creating a new version.
+   */
+  AppConfigStubServer put(String configuration, String contentType, String body) {
+    contents.compute(configuration, (key, current) -> {
+      int version = current == null ? 1 : current.version + 1;
+      return new Content(version, contentType, body);
+    });
+    return this;
+  }
+
+  /**
+   * Gzip the configuration body when the client accepts gzip.
+   */
+  AppConfigStubServer gzip(boolean gzip) {
+    this.gzip = gzip;
+    return this;
+  }
+
+  AppConfigStubServer nextPollSeconds(int nextPollSeconds) {
+    this.nextPollSeconds = nextPollSeconds;
+    return this;
+  }
+
+  /**
+   * Fail the next requests for the configuration with a 500 response.
+   */
+  AppConfigStubServer fail(String configuration, int times) {
+    failures.put(configuration, times);
+    return this;
+  }
+
+  /**
+   * Expire all the session tokens.
+   */
+  void expireSessions() {
+    sessions.clear();
+  }
+
+  /**
+   * Return the number of requests received.
+   */
+  int requests() {
+    return requests.get();
+  }
+
+  /**
+   * Return the number of responses that included a configuration body.
+   */
+  int bodies() {
+    return bodies.get();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    requests.incrementAndGet();
+    try {
+      String path = exchange.getRequestURI().getPath();
+      Matcher agent = AGENT_PATH.matcher(path);
+      if ("GET".equals(exchange.getRequestMethod()) && agent.matches()) {
+        agent(exchange, agent.group(1));
+      } else if ("POST".equals(exchange.getRequestMethod()) && "/configurationsessions".equals(path)) {
+        startSession(exchange);
+      } else if ("GET".equals(exchange.getRequestMethod()) && "/configuration".equals(path)) {
+        latest(exchange);
+      } else {
+        send(exchange, 404, "");
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void agent(HttpExchange exchange, String configuration) throws IOException {
+    if (failed(exchange, configuration)) {
+      return;
+    }
+    Content content = contents.get(configuration);
+    if (content == null) {
+      send(exchange, 404, "");
+      return;
+    }
+    exchange.getResponseHeaders().add("Configuration-Version", content.label);
+    exchange.getResponseHeaders().add("Content-Type", content.contentType);
+    sendBody(exchange, content.body);
+  }
+
+  private void startSession(HttpExchange exchange) throws IOException {
+    String request = read(exchange.getRequestBody());
+    Matcher matcher = PROFILE.matcher(request);
+    if (!matcher.find()) {
+      send(exchange, 400, "{\"Message\":\"ConfigurationProfileIdentifier required\"}");
+      return;
+    }
+    String token = newToken(matcher.group(1), "");
+    send(exchange, 201, "{\"InitialConfigurationToken\":\"" + token + "\"}");
+  }
+
+  private void latest(HttpExchange exchange) throws IOException {
+    String query = exchange.getRequestURI().getQuery();
+    String token = query == null ? null : query.replace("configuration_token=", "");
+    String[] session = token == null ? null : sessions.remove(token);
+    if (session == null) {
+      send(exchange, 400, "{\"Message\":\"Invalid or expired token\"}");
+      return;
+    }
+    String configuration = session[0];
+    if (failed(exchange, configuration)) {
+      return;
+    }
+    Content content = contents.get(configuration);
+    if (content == null) {
+      send(exchange, 404, "");
+      return;
+    }
+    var headers = exchange.getResponseHeaders();
+    headers.add("Next-Poll-Configuration-Token", newToken(configuration, content.label));
+    headers.add("Next-Poll-Interval-In-Seconds", String.valueOf(nextPollSeconds));
+    headers.add("Content-Type", content.contentType);
+    if (content.label.equals(session[1])) {
+      // unchanged since the last call of this session
+      send(exchange, 200, "");
+    } else {
+      headers.add("Version-Label", content.label);
+      sendBody(exchange, content.body);
+    }
+  }
+
+  private boolean failed(HttpExchange exchange, String configuration) throws IOException {
+    Integer times = failures.get(configuration);
+    if (times == null) {
+      return false;
+    }
+    if (times > 1) {
+      failures.put(configuration, times - 1);
+    } else {
+      failures.remove(configuration);
+    }
+    send(exchange, 500, "{\"Message\":\"InternalServerException\"}");
+    return true;
+  }
+
+  private String newToken(String configuration, String version) {
+    String token = "token-" + tokenCounter.incrementAndGet();
+    sessions.put(token, new String[]{configuration, version});
+    return token;
+  }
+
+  private void sendBody(HttpExchange exchange, String body) throws IOException {
+    bodies.incrementAndGet();
+    String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+    if (!gzip || accept == null || !accept.contains("gzip")) {
+      send(exchange, 200, body);
+      return;
+    }
+    var bytes = new ByteArrayOutputStream();
+    try (var out = new GZIPOutputStream(bytes)) {
+      out.write(body.getBytes(StandardCharsets.UTF_8));
+    }
+    exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+    exchange.sendResponseHeaders(200, bytes.size());
+    exchange.getResponseBody().write(bytes.toByteArray());
+  }
+
+  private static void send(HttpExchange exchange, int status, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+    if (bytes.length > 0) {
+      exchange.getResponseBody().write(bytes);
+    }
+  }
+
+  private static String read(InputStream inputStream) throws IOException {
+    return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+  }
+
+  private static final class Content {
+
+    private final int version;
+    private final String label;
+    private final String contentType;
+    private final String body;
+
+    Content(int version, String contentType, String body) {
+      this.version = version;
+      this.label = String.valueOf(version);
+      this.contentType = contentType;
+      this.body = body;
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package io.avaje.config.appconfig;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class FeatureFlagsTest {
+
+  @Test
+  void parse() {
+    var flags = FeatureFlags.parse("{\"checkout\":{\"enabled\":true,\"limit\":5,\"ratio\":0.25,\"label\":\"x\\ny\",\"regions\":[\"a\",\"b\"],\"beta\":false},"
+      + "\"legacy\":{\"enabled\":false}}");
+
+    assertThat(flags).containsOnlyKeys("checkout", "legacy");
+    var checkout = flags.get("checkout");
+    assertThat(checkout.enabled()).isTrue();
+    assertThat(checkout.longValue("limit", 0)).isEqualTo(5);
+    assertThat(checkout.doubleValue("ratio", 0)).isEqualTo(0.25);
+    assertThat(checkout.string("label", null)).isEqualTo("x\ny");
+    assertThat(checkout.bool("beta", true)).isFalse();
+    assertThat(checkout.attribute("regions")).isEqualTo(List.of("a", "b"));
+    assertThat(checkout.longValue("missing", 7)).isEqualTo(7);
+    assertThat(flags.get("legacy").enabled()).isFalse();
+
+    var keyValues = new LinkedHashMap<String, String>();
+    checkout.keyValues("flags.", keyValues::put);
+    assertThat(keyValues).containsEntry("flags.checkout.enabled", "true")
+      .containsEntry("flags.checkout.limit", "5")
+      .containsEntry("flags.checkout.regions", "a,b");
+  }
+
+  @Test
+  void parse_storedFormat() {
+    var flags = FeatureFlags.parse("{\"flags\":{\"checkout\":{\"name\":\"Checkout\"}},"
+      + "\"values\":{\"checkout\":{\"enabled\":true}},\"version\":\"1\"}");
+
+    assertThat(flags).containsOnlyKeys("checkout");
+    assertThat(flags.get("checkout").enabled()).isTrue();
+  }
+
+  @Test
+  void isFlags() {
+    assertThat(FeatureFlags.isFlags(JsonParser.parse("{\"flags\":{},\"values\":{},\"version\":\"1\"}"))).isTrue();
+    // the format returned by AppConfig is only read as flags with the type set
+    assertThat(FeatureFlags.isFlags(JsonParser.parse("{\"checkout\":{\"enabled\":false,\"limit\":5}}"))).isFalse();
+    assertThat(FeatureFlags.isFlags(JsonParser.parse("{\"cache\":{\"enabled\":true,\"ttl\":60}}"))).isFalse();
+    assertThat(FeatureFlags.isFlags(JsonParser.parse("{}"))).isFalse();
+    assertThat(FeatureFlags.isFlags(JsonParser.parse("{\"timeout\":5}"))).isFalse();
+    assertThat(FeatureFlags.isFlags(JsonParser.parse("{\"db\":{\"url\":\"x\"}}"))).isFalse();
+    assertThat(FeatureFlags.isFlags(JsonParser.parse("[1,2]"))).isFalse();
+  }
+
+  @Test
+  void parse_invalid() {
+    assertThatThrownBy(() -> FeatureFlags.parse("{\"checkout\":true}")).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> FeatureFlags.parse("{\"checkout\":{\"enabled\":tru}}")).isInstanceOf(IllegalArgumentException.class);
+  }
+}
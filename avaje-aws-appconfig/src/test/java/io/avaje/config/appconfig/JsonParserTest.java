@@ -0,0 +1,40 @@
+package io.avaje.config.appconfig;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class JsonParserTest {
+
+  @Test
+  void parse_reader_expect_contentLargerThanBuffer() {
+    var json = new StringBuilder("{");
+    for (int i = 0; i < 1000; i++) {
+      json.append("\"key").append(i).append("\":{\"text\":\"a\\\"b\\u00e9\",\"n\":").append(i).append("},");
+    }
+    json.append("\"list\":[1,2.5,true,null]}");
+
+    var parsed = (Map<?, ?>) JsonParser.parse(new StringReader(json.toString()));
+    assertThat(parsed).hasSize(1001);
+    assertThat(parsed.get("key999")).isEqualTo(Map.of("text", "a\"bé", "n", 999L));
+    assertThat(parsed.get("list")).isEqualTo(Arrays.asList(1L, 2.5, true, null));
+  }
+
+  @Test
+  void parse_invalid_expect_position() {
+    assertThatThrownBy(() -> JsonParser.parse("{\"a\":1} x"))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Unexpected content at position 8");
+    assertThatThrownBy(() -> JsonParser.parse("{\"a\":\"b"))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Unterminated string at position 7");
+    assertThatThrownBy(() -> JsonParser.parse("[1,"))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Unexpected end of content at position 3");
+  }
+}
@@ -0,0 +1,29 @@
+package io.avaje.config.appconfig;
+
+import io.avaje.config.Configuration;
+import io.avaje.config.ConfigurationSource;
+
+/**
+ * An independent source loaded before AppConfig that takes {@code test.slowSource.millis}
+ * to load (registered for tests that include resource loading).
+ */
+public final class SlowSource implements ConfigurationSource {
+
+  @Override
+  public boolean independent() {
+    return true;
+  }
+
+  @Override
+  public void load(Configuration configuration) {
+    long millis = configuration.getLong("test.slowSource.millis", 0);
+    if (millis > 0) {
+      try {
+        Thread.sleep(millis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      configuration.setProperty("test.slowSource", "loaded");
+    }
+  }
+}
@@ -2,16 +2,24 @@ package io.avaje.config.toml;
 
 import io.avaje.config.ConfigParser;
 import org.jspecify.annotations.NullMarked;
-import org.tomlj.Toml;
-import org.tomlj.TomlArray;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.function.BiConsumer;
 
+/**
+ * Parser for TOML content that streams the flattened keys and values to the consumer.
+ * <p>
+ * Arrays of values are provided as list values (their elements) and arrays of
+ * tables use indexed keys like {@code servers[0].host}.
+ */
 @NullMarked
 public final class TomlParser implements ConfigParser {
 
@@ -24,33 +32,38 @@ public final class TomlParser implements ConfigParser {
 
   @Override
   public Map<String, String> load(Reader reader) {
-    try {
-      return Toml.parse(reader).dottedEntrySet()
-        .stream()
-        .collect(Collectors.toMap(Map.Entry::getKey, entry -> readTomlValue(entry.getValue())));
-    } catch (IOException exception) {
-      throw new UncheckedIOException(exception);
-    }
+    Map<String, String> map = new LinkedHashMap<>();
+    parse(reader, map::put);
+    return map;
   }
 
   @Override
   public Map<String, String> load(InputStream is) {
+    Map<String, String> map = new LinkedHashMap<>();
+    parse(is, map::put);
+    return map;
+  }
+
+  @Override
+  public void parse(Reader reader, BiConsumer<String, String> consumer) {
     try {
-      return Toml.parse(is).dottedEntrySet()
-        .stream()
-        .collect(Collectors.toMap(Map.Entry::getKey, entry -> readTomlValue(entry.getValue())));
+      char[] buf = new char[8192];
+      int length = 0;
+      int count;
+      while ((count = reader.read(buf, length, buf.length - length)) != -1) {
+        length += count;
+        if (length == buf.length) {
+          buf = Arrays.copyOf(buf, buf.length * 2);
+        }
+      }
+      new TomlScanner(buf, length, consumer).parse();
     } catch (IOException exception) {
       throw new UncheckedIOException(exception);
     }
   }
 
-  private static String readTomlValue(Object object) {
-    if (object instanceof TomlArray) {
-      TomlArray array = (TomlArray) object;
-      return array.toList().stream()
-        .map(TomlParser::readTomlValue)
-        .collect(Collectors.joining(";"));
-    }
-    return String.valueOf(object);
+  @Override
+  public void parse(InputStream is, BiConsumer<String, String> consumer) {
+    parse(new InputStreamReader(is, StandardCharsets.UTF_8), consumer);
   }
 }
@@ -0,0 +1,622 @@
+package io.avaje.config.toml;
+
+import io.avaje.config.ConfigParser;
+import org.jspecify.annotations.NullMarked;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Scans TOML content emitting each flattened key and value as it is read.
+ * <p>
+ * No document tree is built. Tables and dotted keys are flattened using "." and
+ * arrays of scalar values are provided as list values via ConfigParser.acceptList(). Arrays
+ * containing tables (including arrays of tables) use an indexed key like
+ * {@code servers[0].host}. Values are the string form of the TOML type such that
+ * integers, floats and date times are normalised.
+ * <p>
+ * A key that is defined more than once is emitted each time (last one wins).
+ */
+@NullMarked
+final class TomlScanner {
+
+  private final char[] buf;
+  private final int length;
+  private final BiConsumer<String, String> consumer;
+  /**
+   * The current element index of each array of tables keyed by resolved key.
+   */
+  private final Map<String, Integer> arrayTables = new HashMap<>();
+  private final StringBuilder sb = new StringBuilder(64);
+  private String table = "";
+  private int pos;
+
+  TomlScanner(char[] buf, int length, BiConsumer<String, String> consumer) {
+    this.buf = buf;
+    this.length = length;
+    this.consumer = consumer;
+  }
+
+  void parse() {
+    if (length > 0 && buf[0] == '\uFEFF') {
+      pos++;
+    }
+    while (true) {
+      skipWhitespace();
+      skipComment();
+      if (pos >= length) {
+        return;
+      }
+      char ch = buf[pos];
+      if (ch == '\n' || ch == '\r') {
+        pos++;
+        continue;
+      }
+      if (ch == '[') {
+        header();
+      } else {
+        keyValue(table, consumer);
+      }
+      endOfLine();
+    }
+  }
+
+  private void header() {
+    pos++;
+    final boolean arrayTable = pos < length && buf[pos] == '[';
+    if (arrayTable) {
+      pos++;
+    }
+    List<String> path = new ArrayList<>(4);
+    while (true) {
+      skipWhitespace();
+      path.add(keySegment());
+      skipWhitespace();
+      if (peek() != '.') {
+        break;
+      }
+      pos++;
+    }
+    expect(']');
+    if (arrayTable) {
+      expect(']');
+    }
+    table = resolve(path, arrayTable);
+  }
+
+  /**
+   * Return the key prefix for a table header with array tables resolved to their current element.
+   */
+  private String resolve(List<String> path, boolean arrayTable) {
+    StringBuilder key = new StringBuilder(32);
+    final int last = path.size() - 1;
+    for (int i = 0; i <= last; i++) {
+      if (i > 0) {
+        key.append('.');
+      }
+      key.append(path.get(i));
+      if (i == last && arrayTable) {
+        int index = arrayTables.merge(key.toString(), 0, (current, ignored) -> current + 1);
+        key.append('[').append(index).append(']');
+      } else {
+        Integer index = arrayTables.get(key.toString());
+        if (index != null) {
+          key.append('[').append(index).append(']');
+        }
+      }
+    }
+    return key.toString();
+  }
+
+  private void keyValue(String prefix, BiConsumer<String, String> target) {
+    StringBuilder key = new StringBuilder(prefix.length() + 32).append(prefix);
+    while (true) {
+      skipWhitespace();
+      if (key.length() > 0) {
+        key.append('.');
+      }
+      key.append(keySegment());
+      skipWhitespace();
+      if (peek() != '.') {
+        break;
+      }
+      pos++;
+    }
+    expect('=');
+    skipWhitespace();
+    value(key.toString(), target);
+  }
+
+  private String keySegment() {
+    final char ch = peek();
+    if (ch == '"') {
+      return basicString();
+    } else if (ch == '\'') {
+      return literalString();
+    }
+    final int start = pos;
+    while (pos < length && isBare(buf[pos])) {
+      pos++;
+    }
+    if (start == pos) {
+      throw error("Expected a key");
+    }
+    return new String(buf, start, pos - start);
+  }
+
+  private static boolean isBare(char ch) {
+    return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9') || ch == '_' || ch == '-';
+  }
+
+  private void value(String key, BiConsumer<String, String> target) {
+    switch (peek()) {
+      case '"':
+        target.accept(key, startsWith("\"\"\"") ? multiLineString('"') : basicString());
+        break;
+      case '\'':
+        target.accept(key, startsWith("'''") ? multiLineString('\'') : literalString());
+        break;
+      case '[':
+        array(key, target);
+        break;
+      case '{':
+        inlineTable(key, target);
+        break;
+      default:
+        target.accept(key, scalar());
+    }
+  }
+
+  private void array(String key, BiConsumer<String, String> target) {
+    pos++;
+    Elements elements = new Elements();
+    while (true) {
+      skipBlank();
+      if (peek() == ']') {
+        pos++;
+        break;
+      }
+      value("", elements);
+      elements.index++;
+      skipBlank();
+      if (peek() == ',') {
+        pos++;
+      } else {
+        expect(']');
+        break;
+      }
+    }
+    elements.emit(key, target);
+  }
+
+  private void inlineTable(String key, BiConsumer<String, String> target) {
+    pos++;
+    skipWhitespace();
+    if (peek() == '}') {
+      pos++;
+      return;
+    }
+    while (true) {
+      keyValue(key, target);
+      skipWhitespace();
+      if (peek() == ',') {
+        pos++;
+      } else {
+        expect('}');
+        return;
+      }
+    }
+  }
+
+  /**
+   * Read a boolean, number or date time value.
+   */
+  private String scalar() {
+    final int start = pos;
+    skipToken();
+    if (pos - start == 10 && buf[start + 4] == '-' && pos + 3 < length
+      && buf[pos] == ' ' && isDigit(buf[pos + 1]) && buf[pos + 3] == ':') {
+      // date time using a space delimiter
+      pos++;
+      skipToken();
+    }
+    if (start == pos) {
+      throw error("Expected a value");
+    }
+    final String token = new String(buf, start, pos - start);
+    switch (token) {
+      case "true":
+      case "false":
+        return token;
+      case "inf":
+      case "+inf":
+        return "Infinity";
+      case "-inf":
+        return "-Infinity";
+      case "nan":
+      case "+nan":
+      case "-nan":
+        return "NaN";
+      default:
+        return isDateTime(token) ? dateTime(token) : number(token);
+    }
+  }
+
+  private void skipToken() {
+    while (pos < length) {
+      char ch = buf[pos];
+      if (ch == ' ' || ch == '\t' || ch == '\n' || ch == '\r' || ch == ',' || ch == ']' || ch == '}' || ch == '#') {
+        return;
+      }
+      pos++;
+    }
+  }
+
+  private static boolean isDateTime(String token) {
+    return token.length() >= 8 && (token.charAt(2) == ':' || (token.length() >= 10 && token.charAt(4) == '-' && token.charAt(7) == '-'));
+  }
+
+  private String dateTime(String token) {
+    try {
+      if (token.charAt(2) == ':') {
+        return LocalTime.parse(token).toString();
+      }
+      if (token.length() == 10) {
+        return LocalDate.parse(token).toString();
+      }
+      String value = token;
+      if (value.charAt(10) != 'T') {
+        value = value.substring(0, 10) + 'T' + value.substring(11);
+      }
+      char last = value.charAt(value.length() - 1);
+      if (last == 'z' || last == 'Z') {
+        return OffsetDateTime.parse(value.substring(0, value.length() - 1) + 'Z').toString();
+      }
+      if (value.indexOf('+', 11) > 0 || value.indexOf('-', 11) > 0) {
+        return OffsetDateTime.parse(value).toString();
+      }
+      return LocalDateTime.parse(value).toString();
+    } catch (DateTimeParseException e) {
+      throw error("Invalid date time " + token);
+    }
+  }
+
+  private String number(String token) {
+    String value = token.indexOf('_') >= 0 ? token.replace("_", "") : token;
+    try {
+      if (value.length() > 2 && value.charAt(0) == '0') {
+        switch (value.charAt(1)) {
+          case 'x':
+            return Long.toString(Long.parseLong(value.substring(2), 16));
+          case 'o':
+            return Long.toString(Long.parseLong(value.substring(2), 8));
+          case 'b':
+            return Long.toString(Long.parseLong(value.substring(2), 2));
+          default:
+        }
+      }
+      if (value.indexOf('.') >= 0 || value.indexOf('e') >= 0 || value.indexOf('E') >= 0) {
+        return Double.toString(Double.parseDouble(value));
+      }
+      return Long.toString(Long.parseLong(value));
+    } catch (NumberFormatException e) {
+      throw error("Invalid value " + token);
+    }
+  }
+
+  private String basicString() {
+    pos++;
+    final int start = pos;
+    while (pos < length) {
+      char ch = buf[pos];
+      if (ch == '"') {
+        return new String(buf, start, pos++ - start);
+      }
+      if (ch == '\\' || ch == '\n' || ch == '\r') {
+        break;
+      }
+      pos++;
+    }
+    sb.setLength(0);
+    sb.append(buf, start, pos - start);
+    while (pos < length) {
+      char ch = buf[pos++];
+      if (ch == '"') {
+        return sb.toString();
+      } else if (ch == '\\') {
+        escape();
+      } else if (ch == '\n' || ch == '\r') {
+        pos--;
+        break;
+      } else {
+        sb.append(ch);
+      }
+    }
+    throw error("Unterminated string");
+  }
+
+  private String literalString() {
+    pos++;
+    final int start = pos;
+    while (pos < length) {
+      char ch = buf[pos];
+      if (ch == '\'') {
+        return new String(buf, start, pos++ - start);
+      }
+      if (ch == '\n' || ch == '\r') {
+        break;
+      }
+      pos++;
+    }
+    throw error("Unterminated string");
+  }
+
+  /**
+   * Read a multi-line basic (quote {@code "}) or literal (quote {@code '}) string.
+   */
+  private String multiLineString(char quote) {
+    pos += 3;
+    // a newline immediately following the opening delimiter is trimmed
+    if (startsWith("\r\n")) {
+      pos += 2;
+    } else if (peek() == '\n') {
+      pos++;
+    }
+    sb.setLength(0);
+    while (pos < length) {
+      char ch = buf[pos];
+      if (ch == quote) {
+        int count = 0;
+        while (pos < length && buf[pos] == quote) {
+          count++;
+          pos++;
+        }
+        if (count >= 3) {
+          // up to 2 quotes are allowed adjacent to the closing delimiter
+          for (int i = 3; i < count && i < 5; i++) {
+            sb.append(quote);
+          }
+          return sb.toString();
+        }
+        for (int i = 0; i < count; i++) {
+          sb.append(quote);
+        }
+      } else if (ch == '\\' && quote == '"') {
+        pos++;
+        if (lineEndingBackslash()) {
+          skipBlankOnly();
+        } else {
+          escape();
+        }
+      } else {
+        sb.append(ch);
+        pos++;
+      }
+    }
+    throw error("Unterminated string");
+  }
+
+  private boolean lineEndingBackslash() {
+    int i = pos;
+    while (i < length && (buf[i] == ' ' || buf[i] == '\t')) {
+      i++;
+    }
+    return i < length && (buf[i] == '\n' || buf[i] == '\r');
+  }
+
+  private void escape() {
+    if (pos >= length) {
+      throw error("Unterminated string");
+    }
+    char ch = buf[pos++];
+    switch (ch) {
+      case 'b':
+        sb.append('\b');
+        break;
+      case 't':
+        sb.append('\t');
+        break;
+      case 'n':
+        sb.append('\n');
+        break;
+      case 'f':
+        sb.append('\f');
+        break;
+      case 'r':
+        sb.append('\r');
+        break;
+      case 'e':
+        sb.append('\u001B');
+        break;
+      case '"':
+      case '\\':
+        sb.append(ch);
+        break;
+      case 'u':
+        sb.appendCodePoint(hex(4));
+        break;
+      case 'U':
+        sb.appendCodePoint(hex(8));
+        break;
+      default:
+        throw error("Invalid escape sequence \\" + ch);
+    }
+  }
+
+  private int hex(int digits) {
+    if (pos + digits > length) {
+      throw error("Invalid unicode escape");
+    }
+    int value = 0;
+    for (int i = 0; i < digits; i++) {
+      int digit = Character.digit(buf[pos++], 16);
+      if (digit == -1) {
+        throw error("Invalid unicode escape");
+      }
+      value = (value << 4) | digit;
+    }
+    if (!Character.isValidCodePoint(value)) {
+      throw error("Invalid unicode escape");
+    }
+    return value;
+  }
+
+  private void endOfLine() {
+    skipWhitespace();
+    skipComment();
+    if (pos < length && buf[pos] != '\n' && buf[pos] != '\r') {
+      throw error("Expected a new line but got [" + buf[pos] + "]");
+    }
+  }
+
+  private void skipWhitespace() {
+    while (pos < length && (buf[pos] == ' ' || buf[pos] == '\t')) {
+      pos++;
+    }
+  }
+
+  private void skipComment() {
+    if (pos < length && buf[pos] == '#') {
+      while (pos < length && buf[pos] != '\n' && buf[pos] != '\r') {
+        pos++;
+      }
+    }
+  }
+
+  /**
+   * Skip whitespace, new lines and comments (as allowed in arrays).
+   */
+  private void skipBlank() {
+    while (pos < length) {
+      skipBlankOnly();
+      if (pos >= length || buf[pos] != '#') {
+        return;
+      }
+      skipComment();
+    }
+  }
+
+  private void skipBlankOnly() {
+    while (pos < length) {
+      char ch = buf[pos];
+      if (ch != ' ' && ch != '\t' && ch != '\n' && ch != '\r') {
+        return;
+      }
+      pos++;
+    }
+  }
+
+  private char peek() {
+    return pos < length ? buf[pos] : '\0';
+  }
+
+  private boolean startsWith(String prefix) {
+    if (pos + prefix.length() > length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      if (buf[pos + i] != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void expect(char ch) {
+    if (peek() != ch) {
+      throw error(pos < length ? "Expected [" + ch + "] but got [" + buf[pos] + "]" : "Expected [" + ch + "] but got end of input");
+    }
+    pos++;
+  }
+
+  private static boolean isDigit(char ch) {
+    return ch >= '0' && ch <= '9';
+  }
+
+  private IllegalStateException error(String message) {
+    int line = 1;
+    for (int i = 0; i < pos && i < length; i++) {
+      if (buf[i] == '\n') {
+        line++;
+      }
+    }
+    return new IllegalStateException(message + " at line:" + line);
+  }
+
+  /**
+   * Collects the values of an array. Elements that are (or contain) tables emit
+   * relative keys, otherwise the element value is emitted with an empty key.
+   */
+  private static final class Elements implements ConfigParser.ListConsumer {
+
+    private final List<String> keys = new ArrayList<>();
+    /**
+     * String values or the elements of nested arrays.
+     */
+    private final List<Object> values = new ArrayList<>();
+    private final List<Integer> indexes = new ArrayList<>();
+    private boolean tables;
+    private int index;
+
+    @Override
+    public void accept(String key, String value) {
+      add(key, value);
+    }
+
+    @Override
+    public void acceptList(String key, List<String> elements) {
+      add(key, elements);
+    }
+
+    private void add(String key, Object value) {
+      keys.add(key);
+      values.add(value);
+      indexes.add(index);
+      if (!key.isEmpty()) {
+        tables = true;
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    void emit(String key, BiConsumer<String, String> target) {
+      if (!tables) {
+        // nested arrays of values are flattened
+        List<String> elements = new ArrayList<>(values.size());
+        for (Object value : values) {
+          if (value instanceof List) {
+            elements.addAll((List<String>) value);
+          } else {
+            elements.add((String) value);
+          }
+        }
+        ConfigParser.acceptList(target, key, elements);
+        return;
+      }
+      for (int i = 0; i < keys.size(); i++) {
+        String relative = keys.get(i);
+        StringBuilder fullKey = new StringBuilder(key.length() + relative.length() + 4)
+          .append(key).append('[').append(indexes.get(i)).append(']');
+        if (!relative.isEmpty()) {
+          if (relative.charAt(0) != '[') {
+            fullKey.append('.');
+          }
+          fullKey.append(relative);
+        }
+        Object value = values.get(i);
+        if (value instanceof List) {
+          ConfigParser.acceptList(target, fullKey.toString(), (List<String>) value);
+        } else {
+          target.accept(fullKey.toString(), (String) value);
+        }
+      }
+    }
+  }
+}
@@ -3,7 +3,6 @@ import io.avaje.config.toml.TomlParser;
 module io.avaje.config.toml {
 
   requires io.avaje.config;
-  requires org.tomlj;
 
   exports io.avaje.config.toml;
 
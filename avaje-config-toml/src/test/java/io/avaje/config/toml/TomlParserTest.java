@@ -1,10 +1,14 @@
 package io.avaje.config.toml;
 
+import io.avaje.config.ConfigParser;
 import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.*;
@@ -45,7 +49,7 @@ class TomlParserTest {
 
     assertThat(map).containsEntry("one.key1", "a");
     assertThat(map).containsEntry("one.key2", "b");
-    assertThat(map).containsEntry("one.key3", "a;b;c");
+    assertThat(map).containsEntry("one.key3", "a,b,c");
 
     assertThat(map).containsEntry("two.local_datetime", "2024-09-09T15:30");
     assertThat(map).containsEntry("two.local_date", "2024-09-09");
@@ -67,11 +71,171 @@ class TomlParserTest {
 
     assertThat(map).containsEntry("one.key1", "a");
     assertThat(map).containsEntry("one.key2", "b");
-    assertThat(map).containsEntry("one.key3", "a;b;c");
+    assertThat(map).containsEntry("one.key3", "a,b,c");
 
     assertThat(map).containsEntry("two.local_datetime", "2024-09-09T15:30");
     assertThat(map).containsEntry("two.local_date", "2024-09-09");
     assertThat(map).containsEntry("two.local_time", "15:30");
     assertThat(map).containsEntry("two.offset_datetime", "2024-09-09T15:30+02:00");
   }
+
+  @Test
+  void parse_arrays() {
+    String content = "ports = [8080, 8081]\n" +
+      "nested = [[1, 2], [3]]\n" +
+      "[[servers]]\n" +
+      "host = \"a\"\n" +
+      "port = 1\n" +
+      "[[servers]]\n" +
+      "host = \"b\"\n" +
+      "[servers.tls]\n" +
+      "enabled = true\n";
+
+    Map<String, String> map = new TomlParser().load(new StringReader(content));
+
+    assertThat(map).containsOnlyKeys("ports", "nested",
+      "servers[0].host", "servers[0].port", "servers[1].host", "servers[1].tls.enabled");
+    assertThat(map).containsEntry("ports", "8080,8081");
+    assertThat(map).containsEntry("nested", "1,2,3");
+    assertThat(map).containsEntry("servers[0].host", "a");
+    assertThat(map).containsEntry("servers[0].port", "1");
+    assertThat(map).containsEntry("servers[1].host", "b");
+    assertThat(map).containsEntry("servers[1].tls.enabled", "true");
+  }
+
+  @Test
+  void parse_nestedArrays_expect_flattened() {
+    String content = "nested = [[1, 2], [3, [4, \"five\"]], []]\n" +
+      "multi = [\n" +
+      "  [\"a\", \"b\"], # comment\n" +
+      "  [\"c\"],\n" +
+      "]\n";
+
+    Map<String, List<String>> lists = new LinkedHashMap<>();
+    Map<String, String> values = new LinkedHashMap<>();
+    new TomlParser().parse(new StringReader(content), new ConfigParser.ListConsumer() {
+      @Override
+      public void acceptList(String key, List<String> elements) {
+        lists.put(key, elements);
+      }
+
+      @Override
+      public void accept(String key, String value) {
+        values.put(key, value);
+      }
+    });
+
+    assertThat(values).isEmpty();
+    assertThat(lists).containsEntry("nested", List.of("1", "2", "3", "4", "five"));
+    assertThat(lists).containsEntry("multi", List.of("a", "b", "c"));
+    assertThat(new TomlParser().load(new StringReader(content)))
+      .containsEntry("nested", "1,2,3,4,five")
+      .containsEntry("multi", "a,b,c");
+  }
+
+  @Test
+  void parse_listConsumer_expect_elements() {
+    Map<String, List<String>> lists = new HashMap<>();
+    Map<String, String> values = new HashMap<>();
+    ConfigParser.ListConsumer consumer = new ConfigParser.ListConsumer() {
+      @Override
+      public void acceptList(String key, List<String> elements) {
+        lists.put(key, elements);
+      }
+
+      @Override
+      public void accept(String key, String value) {
+        values.put(key, value);
+      }
+    };
+    new TomlParser().parse(new StringReader("hosts = [\"a,1\", \"b\"]\nname = \"x\"\n"), consumer);
+
+    assertThat(lists).containsOnlyKeys("hosts");
+    assertThat(lists.get("hosts")).containsExactly("a,1", "b");
+    assertThat(values).containsOnly(entry("name", "x"));
+  }
+
+  @Test
+  void parse_duplicateKey_expect_lastWins() {
+    String content = "key = \"a\"\nkey = \"b\"\nother = 1\n";
+    Map<String, String> map = new HashMap<>();
+    new TomlParser().parse(new StringReader(content), map::put);
+    assertThat(map).containsEntry("key", "b").containsEntry("other", "1");
+  }
+
+  @Test
+  void parse_valuesAndStrings() {
+    String content = "# comment\n" +
+      "int = +1_000 # trailing comment\n" +
+      "hex = 0xff\n" +
+      "oct = 0o17\n" +
+      "bin = 0b101\n" +
+      "float = 6.02e23\n" +
+      "neg_inf = -inf\n" +
+      "date_time = 1979-05-27 07:32:00Z\n" +
+      "\"quoted.key\" = 'C:\\path'\n" +
+      "site.\"google.com\" = true\n" +
+      "escaped = \"tab\\there \\u00e9 \\\"q\\\"\"\n" +
+      "multi = \"\"\"\n" +
+      "one \\\n" +
+      "   two\"\"\"\n" +
+      "raw = \'\'\'\n" +
+      "first\n" +
+      "second\'\'\'\n" +
+      "[owner]\n" +
+      "point = { x = 1, y = { z = \"deep\" } }\n" +
+      "list = [\n" +
+      "  \"a\", # comment\n" +
+      "  \"b,c\",\n" +
+      "]\n";
+
+    Map<String, String> map = new TomlParser().load(new StringReader(content));
+
+    assertThat(map).containsEntry("int", "1000");
+    assertThat(map).containsEntry("hex", "255");
+    assertThat(map).containsEntry("oct", "15");
+    assertThat(map).containsEntry("bin", "5");
+    assertThat(map).containsEntry("float", "6.02E23");
+    assertThat(map).containsEntry("neg_inf", "-Infinity");
+    assertThat(map).containsEntry("date_time", "1979-05-27T07:32Z");
+    assertThat(map).containsEntry("quoted.key", "C:\\path");
+    assertThat(map).containsEntry("site.google.com", "true");
+    assertThat(map).containsEntry("escaped", "tab\there \u00e9 \"q\"");
+    assertThat(map).containsEntry("multi", "one two");
+    assertThat(map).containsEntry("raw", "first\nsecond");
+    assertThat(map).containsEntry("owner.point.x", "1");
+    assertThat(map).containsEntry("owner.point.y.z", "deep");
+    assertThat(map).containsEntry("owner.list", "a,b,c");
+    assertThat(map).hasSize(15);
+  }
+
+  @Test
+  void parse_nestedArrayOfTables() {
+    String content = "[[fruits]]\n" +
+      "name = \"apple\"\n" +
+      "[[fruits.varieties]]\n" +
+      "name = \"red\"\n" +
+      "[[fruits.varieties]]\n" +
+      "name = \"green\"\n" +
+      "[[fruits]]\n" +
+      "name = \"banana\"\n" +
+      "[[fruits.varieties]]\n" +
+      "name = \"plantain\"\n" +
+      "points = [{ x = 1 }, { x = 2 }]\n";
+
+    Map<String, String> map = new TomlParser().load(new StringReader(content));
+
+    assertThat(map).containsOnlyKeys("fruits[0].name", "fruits[0].varieties[0].name", "fruits[0].varieties[1].name",
+      "fruits[1].name", "fruits[1].varieties[0].name", "fruits[1].varieties[0].points[0].x", "fruits[1].varieties[0].points[1].x");
+    assertThat(map).containsEntry("fruits[0].varieties[1].name", "green");
+    assertThat(map).containsEntry("fruits[1].varieties[0].name", "plantain");
+    assertThat(map).containsEntry("fruits[1].varieties[0].points[1].x", "2");
+  }
+
+  @Test
+  void parse_invalid_expect_lineInMessage() {
+    assertThatThrownBy(() -> new TomlParser().load(new StringReader("a = 1\nb = \"open\n")))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageContaining("line:2");
+  }
 }
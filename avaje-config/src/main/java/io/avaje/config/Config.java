@@ -3,6 +3,7 @@ package io.avaje.config;
 import java.math.BigDecimal;
 import java.net.URI;
 import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
@@ -119,6 +120,21 @@ public class Config {
     return data.forPath(pathPrefix);
   }
 
+  /**
+   * Return the elements of a list of objects as configurations.
+   *
+   * <pre>{@code
+   * for (Configuration server : Config.listOf("servers")) {
+   *   String host = server.get("host");
+   * }
+   * }</pre>
+   *
+   * @param key The key of the list like {@code servers} for keys like {@code servers[0].host}
+   */
+  public static List<Configuration> listOf(String key) {
+    return data.listOf(key);
+  }
+
   /**
    * Return the underlying configuration.
    */
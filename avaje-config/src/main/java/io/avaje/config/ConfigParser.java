@@ -2,12 +2,19 @@ package io.avaje.config;
 
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 import org.jspecify.annotations.NullMarked;
 
 /**
  * Load a config file into a flattened map.
+ * <p>
+ * List values can be provided as their elements via {@link #acceptList(BiConsumer, String, List)}
+ * such that they are not split again when read via {@link Configuration#list()}. Formats
+ * that support multiple documents (like yaml) mark the end of each document via
+ * {@link #endDocument(BiConsumer)}.
  */
 @NullMarked
 public interface ConfigParser extends ConfigExtension {
@@ -32,4 +39,84 @@ public interface ConfigParser extends ConfigExtension {
    * @return Key-Value pairs of all the configs
    */
   Map<String, String> load(InputStream is);
+
+  /**
+   * Parse content pushing each key value pair to the consumer as it is read.
+   * <p>
+   * This avoids building an intermediate map when the key value pairs are
+   * immediately loaded into the configuration. Parsers should override this
+   * to stream natively, the default falls back to {@link #load(Reader)}.
+   *
+   * @param reader   configuration contents
+   * @param consumer receives the key value pairs in the order they are read
+   */
+  default void parse(Reader reader, BiConsumer<String, String> consumer) {
+    load(reader).forEach(consumer);
+  }
+
+  /**
+   * Parse content pushing each key value pair to the consumer as it is read.
+   * <p>
+   * Parsers should override this to stream natively, the default falls back
+   * to {@link #load(InputStream)}.
+   *
+   * @param is       configuration contents
+   * @param consumer receives the key value pairs in the order they are read
+   */
+  default void parse(InputStream is, BiConsumer<String, String> consumer) {
+    load(is).forEach(consumer);
+  }
+
+  /**
+   * Push a list value to the consumer.
+   * <p>
+   * When the consumer is a {@link ListConsumer} the elements are provided as is,
+   * otherwise the elements are joined using "," as the list value.
+   *
+   * @param consumer the consumer passed to parse
+   * @param key      the key of the list value
+   * @param elements the elements of the list value
+   */
+  static void acceptList(BiConsumer<String, String> consumer, String key, List<String> elements) {
+    if (consumer instanceof ListConsumer) {
+      ((ListConsumer) consumer).acceptList(key, elements);
+    } else {
+      consumer.accept(key, String.join(",", elements));
+    }
+  }
+
+  /**
+   * Mark the end of a document for formats that support multiple documents.
+   * <p>
+   * Documents that have a {@code config.activate.on-profile} entry are only applied
+   * when one of those profiles is active.
+   *
+   * @param consumer the consumer passed to parse
+   */
+  static void endDocument(BiConsumer<String, String> consumer) {
+    if (consumer instanceof ListConsumer) {
+      ((ListConsumer) consumer).endDocument();
+    }
+  }
+
+  /**
+   * Consumer of parsed key values that also accepts list values as their elements.
+   */
+  interface ListConsumer extends BiConsumer<String, String> {
+
+    /**
+     * Accept a list value with its elements.
+     *
+     * @param key      the key of the list value
+     * @param elements the elements of the list value
+     */
+    void acceptList(String key, List<String> elements);
+
+    /**
+     * The end of a document for formats that support multiple documents.
+     */
+    default void endDocument() {
+      // do nothing by default
+    }
+  }
 }
@@ -3,10 +3,16 @@ package io.avaje.config;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.ServiceLoader;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * Load all the avaje-config extensions via ServiceLoader using the single
  * common ConfigExtension interface.
+ * <p>
+ * The service registry (generated by avaje-spi) is read via provider types such
+ * that extensions are classified without being instantiated. ConfigParsers are
+ * only instantiated when their extension is used.
  */
 final class ConfigServiceLoader {
 
@@ -27,21 +33,26 @@ final class ConfigServiceLoader {
     ModificationEventRunner _eventRunner = null;
     ConfigurationLog _log = null;
     ResourceLoader _resourceLoader = null;
-    List<ConfigParser> otherParsers = new ArrayList<>();
+    List<Supplier<ConfigParser>> otherParsers = new ArrayList<>();
 
-    for (var spi : ServiceLoader.load(ConfigExtension.class)) {
-      if (spi instanceof ConfigurationSource) {
-        sources.add((ConfigurationSource) spi);
-      } else if (spi instanceof ConfigurationPlugin) {
-        plugins.add((ConfigurationPlugin) spi);
-      } else if (spi instanceof ConfigParser) {
-        otherParsers.add((ConfigParser) spi);
-      } else if (spi instanceof ConfigurationLog) {
-        _log = (ConfigurationLog) spi;
-      } else if (spi instanceof ResourceLoader) {
-        _resourceLoader = (ResourceLoader) spi;
-      } else if (spi instanceof ModificationEventRunner) {
-        _eventRunner = (ModificationEventRunner) spi;
+    List<ServiceLoader.Provider<ConfigExtension>> providers = ServiceLoader.load(ConfigExtension.class)
+      .stream()
+      .collect(Collectors.toList());
+
+    for (var spi : providers) {
+      var type = spi.type();
+      if (ConfigurationSource.class.isAssignableFrom(type)) {
+        sources.add((ConfigurationSource) spi.get());
+      } else if (ConfigurationPlugin.class.isAssignableFrom(type)) {
+        plugins.add((ConfigurationPlugin) spi.get());
+      } else if (ConfigParser.class.isAssignableFrom(type)) {
+        otherParsers.add(() -> (ConfigParser) spi.get());
+      } else if (ConfigurationLog.class.isAssignableFrom(type)) {
+        _log = (ConfigurationLog) spi.get();
+      } else if (ResourceLoader.class.isAssignableFrom(type)) {
+        _resourceLoader = (ResourceLoader) spi.get();
+      } else if (ModificationEventRunner.class.isAssignableFrom(type)) {
+        _eventRunner = (ModificationEventRunner) spi.get();
       }
     }
 
@@ -0,0 +1,256 @@
+package io.avaje.config;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.System.Logger.Level;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Built in source that maps directory trees of files into configuration where the
+ * file name is the key and the file content is the value.
+ * <p>
+ * This is the layout of Kubernetes and Docker secrets. The directories are defined by
+ * {@code config.tree} (comma or whitespace delimited) and a file in a sub directory
+ * maps to a key with the sub directory names as a dot prefix, for example
+ * {@code /run/secrets/db/password} maps to key {@code db.password}.
+ * <p>
+ * The contents are read lazily on first access such that large or rarely used secrets
+ * are not held in memory until they are needed. A single trailing newline is removed.
+ * <p>
+ * The trees are checked for changes every {@code config.tree.period} seconds (default 10,
+ * 0 to disable) using the file metadata only. A changed file is read again on the next
+ * access. Hidden files and directories like the {@code ..data} link of Kubernetes volumes
+ * are skipped with files linked via {@code ..data} followed. A linked directory that links
+ * back to a directory being scanned is skipped.
+ * <p>
+ * A file that is removed before it is read is treated as not defined until the next check
+ * removes its key.
+ */
+@NullMarked
+final class ConfigTreeSource implements ConfigurationSource {
+
+  static final String CONFIG_TREE = "config.tree";
+
+  private final CoreConfiguration configuration;
+  private final List<Path> directories;
+  /**
+   * The metadata of the files by key as of the last check.
+   */
+  private final Map<String, Stamp> stamps = new HashMap<>();
+
+  ConfigTreeSource(CoreConfiguration configuration, String directories) {
+    this.configuration = configuration;
+    this.directories = paths(directories);
+  }
+
+  /**
+   * Return the distinct sorted directories from the comma delimited paths.
+   */
+  static List<Path> paths(String directories) {
+    final var paths = new TreeSet<Path>();
+    for (String directory : directories.split(",")) {
+      final var trimmed = directory.trim();
+      if (!trimmed.isEmpty()) {
+        paths.add(Paths.get(trimmed).toAbsolutePath().normalize());
+      }
+    }
+    return new ArrayList<>(paths);
+  }
+
+  @Override
+  public String toString() {
+    return "ConfigTree" + directories;
+  }
+
+  @Override
+  public void load(Configuration configuration) {
+    check();
+    final long period = configuration.entry(CONFIG_TREE + ".period").map(e -> Long.parseLong(e.value())).orElse(10L);
+    if (period > 0) {
+      configuration.schedule(period * 1000, period * 1000, this::check);
+    }
+  }
+
+  @Override
+  public void reload() {
+    check();
+  }
+
+  /**
+   * Scan the trees publishing the keys of files that are added, changed or removed.
+   */
+  synchronized void check() {
+    Map<String, Stamp> current = new HashMap<>();
+    for (Path directory : directories) {
+      scan(directory, directory, current, new HashSet<>());
+    }
+    final var builder = configuration.eventBuilder("ConfigTree");
+    current.forEach((key, stamp) -> {
+      if (!stamp.equals(stamps.get(key))) {
+        builder.putLazy(key, () -> readIfExists(stamp.path));
+      }
+    });
+    for (String key : stamps.keySet()) {
+      if (!current.containsKey(key)) {
+        builder.remove(key);
+      }
+    }
+    stamps.clear();
+    stamps.putAll(current);
+    builder.publish();
+  }
+
+  /**
+   * Scan the directory where parents holds the real paths of the directories being scanned
+   * such that a linked directory that loops back to one of these is skipped.
+   */
+  private void scan(Path root, Path directory, Map<String, Stamp> current, Set<Path> parents) {
+    final Path real;
+    try {
+      real = directory.toRealPath();
+    } catch (NoSuchFileException e) {
+      configuration.log().log(Level.WARNING, "Config tree directory " + directory + " does not exist");
+      return;
+    } catch (IOException e) {
+      configuration.log().log(Level.ERROR, "Error scanning config tree " + directory, e);
+      return;
+    }
+    if (!parents.add(real)) {
+      configuration.log().log(Level.WARNING, "Config tree directory " + directory + " links to a parent directory, skipped");
+      return;
+    }
+    try (Stream<Path> paths = Files.list(directory)) {
+      paths.sorted().forEach(path -> {
+        if (path.getFileName().toString().startsWith(".")) {
+          return;
+        }
+        if (Files.isDirectory(path)) {
+          scan(root, path, current, parents);
+        } else if (Files.isRegularFile(path)) {
+          final var stamp = Stamp.of(path);
+          if (stamp != null) {
+            current.put(key(root, path), stamp);
+          }
+        }
+      });
+    } catch (NoSuchFileException e) {
+      configuration.log().log(Level.WARNING, "Config tree directory " + directory + " does not exist");
+    } catch (IOException e) {
+      configuration.log().log(Level.ERROR, "Error scanning config tree " + directory, e);
+    } finally {
+      parents.remove(real);
+    }
+  }
+
+  /**
+   * Return the key for the file using the relative path with dot separators.
+   */
+  static String key(Path root, Path file) {
+    final var relative = root.relativize(file);
+    final var key = new StringBuilder();
+    for (Path name : relative) {
+      if (key.length() > 0) {
+        key.append('.');
+      }
+      key.append(name);
+    }
+    return key.toString();
+  }
+
+  /**
+   * Read the content of the file removing a single trailing newline.
+   */
+  static String read(Path file) {
+    try {
+      return content(file);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error reading config tree file " + file, e);
+    }
+  }
+
+  /**
+   * Read the file returning null when it has been removed since the last check.
+   */
+  private @Nullable String readIfExists(Path file) {
+    try {
+      return content(file);
+    } catch (NoSuchFileException e) {
+      configuration.log().log(Level.WARNING, "Config tree file " + file + " was removed before it was read");
+      return null;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error reading config tree file " + file, e);
+    }
+  }
+
+  private static String content(Path file) throws IOException {
+    final var content = Files.readString(file, StandardCharsets.UTF_8);
+    if (content.endsWith("\r\n")) {
+      return content.substring(0, content.length() - 2);
+    }
+    if (content.endsWith("\n")) {
+      return content.substring(0, content.length() - 1);
+    }
+    return content;
+  }
+
+  /**
+   * The metadata used to detect a changed file without reading it.
+   */
+  private static final class Stamp {
+
+    private final Path path;
+    private final long lastModified;
+    private final long size;
+    private final @Nullable Object fileKey;
+
+    private Stamp(Path path, BasicFileAttributes attributes) {
+      this.path = path;
+      this.lastModified = attributes.lastModifiedTime().toMillis();
+      this.size = attributes.size();
+      this.fileKey = attributes.fileKey();
+    }
+
+    static @Nullable Stamp of(Path path) {
+      try {
+        return new Stamp(path, Files.readAttributes(path, BasicFileAttributes.class));
+      } catch (IOException e) {
+        // removed since listed
+        return null;
+      }
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+      if (!(obj instanceof Stamp)) {
+        return false;
+      }
+      final var other = (Stamp) obj;
+      return lastModified == other.lastModified
+        && size == other.size
+        && Objects.equals(fileKey, other.fileKey)
+        && path.equals(other.path);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(path, lastModified, size, fileKey);
+    }
+  }
+}
@@ -5,6 +5,7 @@ import java.math.BigDecimal;
 import java.net.URI;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.IntConsumer;
@@ -73,6 +74,54 @@ public interface Configuration {
    */
   Configuration forPath(String pathPrefix);
 
+  /**
+   * Return the elements of a list of objects as configurations.
+   *
+   * <h3>Examples</h3>
+   *
+   * <p>Say you have yaml like this <br>
+   *
+   * <pre>{@code
+   * servers:
+   *   - host: one
+   *     port: 8080
+   *   - host: two
+   *     port: 8081
+   * }</pre>
+   *
+   * <pre>{@code
+   * for (Configuration server : configuration.listOf("servers")) {
+   *   String host = server.get("host");
+   *   int port = server.getInt("port");
+   * }
+   * }</pre>
+   * <p>
+   * The default implementation finds the element indexes via {@link #keys()} and returns
+   * {@link #forPath(String)} for each element.
+   *
+   * @param key The key of the list like {@code servers} for keys like {@code servers[0].host}
+   * @return The element configurations in index order or an empty list
+   */
+  default List<Configuration> listOf(String key) {
+    final String prefix = key + '[';
+    final Set<Integer> indexes = new TreeSet<>();
+    for (String name : keys()) {
+      final int end = name.indexOf(']', prefix.length());
+      if (name.startsWith(prefix) && end > prefix.length() && (end + 1 == name.length() || name.charAt(end + 1) == '.')) {
+        try {
+          indexes.add(Integer.parseInt(name.substring(prefix.length(), end)));
+        } catch (NumberFormatException e) {
+          // not a list element key
+        }
+      }
+    }
+    final List<Configuration> elements = new ArrayList<>(indexes.size());
+    for (Integer index : indexes) {
+      elements.add(forPath(prefix + index + ']'));
+    }
+    return elements;
+  }
+
   /**
    * Return the entry for the given key.
    */
@@ -511,6 +560,11 @@ public interface Configuration {
    * Generally configuration sources will schedule a periodic refresh of their
    * configuration but there are cases like Lambda where it can be useful to
    * trigger a refresh explicitly (e.g. on Lambda invocation).
+   * <p>
+   * A reload requested while a reload is in progress waits for that reload and a
+   * reload requested within {@code config.reload.minIntervalMillis} (default 1000)
+   * of the previous reload is skipped. Independent sources are reloaded concurrently
+   * and the changes of all the sources are published as a single modification event.
    */
   void reloadSources();
 
@@ -526,6 +580,9 @@ public interface Configuration {
 
   /**
    * Schedule a task to run periodically with a given delay and period.
+   * <p>
+   * This is the same as {@link #schedule(Duration, Duration, Runnable)} without
+   * returning the handle to cancel the task.
    *
    * @param delay  delay in milliseconds before task is to be executed.
    * @param period time in milliseconds between successive task executions.
@@ -533,6 +590,57 @@ public interface Configuration {
    */
   void schedule(long delay, long period, Runnable task);
 
+  /**
+   * Schedule a task to run periodically with a given delay and period.
+   * <p>
+   * Each run of the task is executed on its own (virtual when available) thread such that
+   * a slow task does not delay other tasks. The next run is scheduled after the previous
+   * run completes with a small random jitter added to the delay and period (up to
+   * {@code config.schedule.jitterPercent}, default 10 percent). A period of zero runs
+   * the task once.
+   * <p>
+   * The default implementation schedules via {@link #schedule(long, long, Runnable)} with
+   * cancel skipping the later runs of the task.
+   *
+   * @param delay  delay before task is to be executed.
+   * @param period time between successive task executions.
+   * @param task   task to be scheduled.
+   * @return The handle to cancel the task.
+   */
+  default Cancellable schedule(Duration delay, Duration period, Runnable task) {
+    final var cancelled = new AtomicBoolean();
+    schedule(delay.toMillis(), period.toMillis(), () -> {
+      if (!cancelled.get()) {
+        task.run();
+      }
+    });
+    return new Cancellable() {
+      @Override
+      public void cancel() {
+        cancelled.set(true);
+      }
+
+      @Override
+      public boolean isCancelled() {
+        return cancelled.get();
+      }
+    };
+  }
+
+  /**
+   * Close the configuration stopping the file watching and cancelling all the scheduled
+   * tasks like the polling of configuration sources.
+   * <p>
+   * Property values can still be read after close but there are no further reloads.
+   * <p>
+   * Closing a configuration returned by {@link #forPath(String)} or {@link #listOf(String)}
+   * does nothing, these share the scheduling of the configuration they were created from.
+   * The default implementation does nothing.
+   */
+  default void close() {
+    // nothing to close by default
+  }
+
   /**
    * Return a copy of the properties with 'eval' run on all the values.
    */
@@ -811,6 +919,22 @@ public interface Configuration {
     Configuration build();
   }
 
+  /**
+   * Handle to a scheduled task.
+   */
+  interface Cancellable {
+
+    /**
+     * Cancel the task. A run of the task that is in progress is allowed to complete.
+     */
+    void cancel();
+
+    /**
+     * Return true if the task has been cancelled.
+     */
+    boolean isCancelled();
+  }
+
   /**
    * A configuration entry.
    */
@@ -14,4 +14,27 @@ public interface ConfigurationPlugin extends ConfigExtension {
    * @param configuration The configuration that has been loaded including all {@link ConfigurationSource}.
    */
   void apply(Configuration configuration);
+
+  /**
+   * Return true if this plugin does not depend on other plugins and so can be
+   * applied concurrently with other independent plugins.
+   * <p>
+   * Any configuration changes made by independent plugins are applied in the order
+   * the plugins are registered. The default is false (applied sequentially).
+   */
+  default boolean independent() {
+    return false;
+  }
+
+  /**
+   * Return the maximum time in milliseconds to wait for an independent plugin
+   * to be applied at startup. Zero means wait until it completes.
+   * <p>
+   * Defaults to the {@code config.plugins.startupTimeoutMillis} property.
+   *
+   * @param configuration The configuration that has been loaded.
+   */
+  default long startupTimeoutMillis(Configuration configuration) {
+    return configuration.getLong("config.plugins.startupTimeoutMillis", 0);
+  }
 }
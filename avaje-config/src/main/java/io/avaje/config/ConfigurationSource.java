@@ -24,6 +24,33 @@ public interface ConfigurationSource extends ConfigExtension {
    */
   void load(Configuration configuration);
 
+  /**
+   * Return true if this source does not depend on configuration provided by
+   * other sources and so can be loaded concurrently with other independent sources.
+   * <p>
+   * Independent sources are started concurrently but their changes are applied in
+   * the order the sources are registered such that the resulting configuration is
+   * deterministic. The default is false (loaded sequentially).
+   */
+  default boolean independent() {
+    return false;
+  }
+
+  /**
+   * Return the maximum time in milliseconds to wait for an independent source
+   * to load at startup. Zero means wait until the load completes.
+   * <p>
+   * When the deadline passes startup continues without this source and any
+   * changes it makes are applied as a modification event when it completes.
+   * <p>
+   * Defaults to the {@code config.sources.startupTimeoutMillis} property.
+   *
+   * @param configuration The configuration with initially loaded properties.
+   */
+  default long startupTimeoutMillis(Configuration configuration) {
+    return configuration.getLong("config.sources.startupTimeoutMillis", 0);
+  }
+
   /**
    * Explicitly reload the configuration source.
    * <p>
@@ -37,11 +37,18 @@ final class CoreConfiguration implements Configuration {
   private final ModificationEventRunner eventRunner;
   private final List<ConfigurationSource> sources;
   private final List<ConfigurationPlugin> plugins;
+  private final ThreadLocal<List<CoreEventBuilder>> stagedEvents = new ThreadLocal<>();
 
   private boolean loadedSystemProperties;
   private @Nullable FileWatch watcher;
-  private @Nullable Timer timer;
+  private @Nullable ConfigTreeSource configTree;
+  private final CoreScheduler scheduler;
+  private final ReloadPolicy reloadPolicy;
   private final String pathPrefix;
+  /**
+   * True for a view created by forPath() or listOf() that shares the scheduler of its parent.
+   */
+  private final boolean view;
 
   CoreConfiguration(CoreComponents components, CoreEntry.CoreMap entries) {
     this.parsers = components.parsers();
@@ -53,6 +60,9 @@ final class CoreConfiguration implements Configuration {
     this.listValue = new CoreListValue(this);
     this.setValue = new CoreSetValue(this);
     this.pathPrefix = "";
+    this.view = false;
+    this.scheduler = new CoreScheduler(log, jitterPercent());
+    this.reloadPolicy = new ReloadPolicy(this, scheduler, reloadMinIntervalMillis());
   }
 
   CoreConfiguration(CoreConfiguration parent, CoreEntry.CoreMap entries, String prefix) {
@@ -65,6 +75,9 @@ final class CoreConfiguration implements Configuration {
     this.listValue = new CoreListValue(this);
     this.setValue = new CoreSetValue(this);
     this.pathPrefix = prefix;
+    this.view = true;
+    this.scheduler = parent.scheduler;
+    this.reloadPolicy = parent.reloadPolicy;
   }
 
   /**
@@ -98,9 +111,12 @@ final class CoreConfiguration implements Configuration {
   }
 
   private void applyPlugins() {
+    List<StartupLoader.Step> steps = new ArrayList<>(plugins.size());
     for (ConfigurationPlugin plugin : plugins) {
-      plugin.apply(this);
+      String name = plugin.getClass().getSimpleName();
+      steps.add(new StartupLoader.Step(name, plugin.independent(), plugin.startupTimeoutMillis(this), () -> plugin.apply(this)));
     }
+    new StartupLoader(this, "ConfigurationPlugin").run(steps);
   }
 
   ConfigurationLog log() {
@@ -120,9 +136,42 @@ final class CoreConfiguration implements Configuration {
   }
 
   private void loadSources(Set<String> names) {
+    List<StartupLoader.Step> steps = new ArrayList<>(sources.size() + 1);
+    final String tree = configTreeDirectories();
+    if (tree != null && !tree.isBlank()) {
+      final var treeSource = new ConfigTreeSource(this, tree);
+      steps.add(new StartupLoader.Step(treeSource.toString(), false, 0, () -> treeSource.load(this)));
+      names.add(treeSource.toString());
+      configTree = treeSource;
+    }
     for (ConfigurationSource source : sources) {
-      source.load(this);
-      names.add("ConfigurationSource:" + source.getClass().getSimpleName());
+      String name = source.getClass().getSimpleName();
+      steps.add(new StartupLoader.Step(name, source.independent(), source.startupTimeoutMillis(this), () -> source.load(this)));
+      names.add("ConfigurationSource:" + name);
+    }
+    new StartupLoader(this, "ConfigurationSource").run(steps);
+  }
+
+  /**
+   * Return the config.tree directories (without caching a null entry when not defined).
+   */
+  private @Nullable String configTreeDirectories() {
+    final String tree = properties.valueOrNull(ConfigTreeSource.CONFIG_TREE);
+    if (tree != null) {
+      return tree;
+    }
+    return DefaultValues.fallbackValue(ConfigTreeSource.CONFIG_TREE).map(CoreEntry::value).orElse(null);
+  }
+
+  /**
+   * Run the action staging the events it publishes (rather than applying them).
+   */
+  void staged(List<CoreEventBuilder> events, Runnable action) {
+    stagedEvents.set(events);
+    try {
+      action.run();
+    } finally {
+      stagedEvents.remove();
     }
   }
 
@@ -137,12 +186,34 @@ final class CoreConfiguration implements Configuration {
 
   @Override
   public void schedule(long delayMillis, long periodMillis, Runnable runnable) {
-    synchronized (this) {
-      if (timer == null) {
-        timer = new Timer("ConfigTimer", true);
-      }
-      timer.schedule(new Task(log, runnable), delayMillis, periodMillis);
+    scheduler.schedule(delayMillis, periodMillis, runnable);
+  }
+
+  @Override
+  public Cancellable schedule(Duration delay, Duration period, Runnable runnable) {
+    return scheduler.schedule(delay.toMillis(), period.toMillis(), runnable);
+  }
+
+  @Override
+  public void close() {
+    if (view) {
+      // the scheduler and watcher belong to the parent configuration
+      return;
     }
+    if (watcher != null) {
+      watcher.close();
+    }
+    scheduler.close();
+  }
+
+  private int jitterPercent() {
+    final String jitter = properties.valueOrNull("config.schedule.jitterPercent");
+    return jitter == null ? 10 : Integer.parseInt(jitter.trim());
+  }
+
+  private long reloadMinIntervalMillis() {
+    final String interval = properties.valueOrNull("config.reload.minIntervalMillis");
+    return interval == null ? 1000 : Long.parseLong(interval.trim());
   }
 
   @Override
@@ -154,6 +225,10 @@ final class CoreConfiguration implements Configuration {
     return properties.eval(value);
   }
 
+  List<String> evalElements(List<String> elements) {
+    return properties.eval.evalElements(elements);
+  }
+
   @Override
   public Properties eval(Properties source) {
     final ExpressionEval exprEval = InitialLoader.evalFor(source);
@@ -188,9 +263,15 @@ final class CoreConfiguration implements Configuration {
 
   @Override
   public void reloadSources() {
+    List<StartupLoader.Step> steps = new ArrayList<>(sources.size() + 1);
+    final var tree = configTree;
+    if (tree != null) {
+      steps.add(new StartupLoader.Step(tree.toString(), true, 0, tree::reload));
+    }
     for (ConfigurationSource source : sources) {
-      source.reload();
+      steps.add(new StartupLoader.Step(source.getClass().getSimpleName(), source.independent(), 0, source::reload));
     }
+    reloadPolicy.reload(steps);
   }
 
   @Override
@@ -213,6 +294,14 @@ final class CoreConfiguration implements Configuration {
     return new CoreConfiguration(this, newEntryMap, dotPrefix);
   }
 
+  @Override
+  public List<Configuration> listOf(String key) {
+    final var elements = properties.entries.listElements(key);
+    List<Configuration> result = new ArrayList<>(elements.size());
+    elements.forEach((index, element) -> result.add(new CoreConfiguration(this, element, key + '[' + index + "].")));
+    return result;
+  }
+
   @Override
   public Set<String> keys() {
     return properties.entries.keys();
@@ -233,6 +322,13 @@ final class CoreConfiguration implements Configuration {
     return properties.entry(key).value();
   }
 
+  /**
+   * Return the entry for the given key (the NULL_ENTRY when not defined).
+   */
+  CoreEntry coreEntry(String key) {
+    return properties.entry(key);
+  }
+
   private String required(String key) {
     String value = value(key);
     if (value == null) {
@@ -379,20 +475,34 @@ final class CoreConfiguration implements Configuration {
   }
 
   @Override
-  public ModificationEvent.Builder eventBuilder(String name) {
+  public CoreEventBuilder eventBuilder(String name) {
     requireNonNull(name);
-    return new CoreEventBuilder(name, this, properties.entryMap());
+    return new CoreEventBuilder(name, this, properties.entryMap(), stagedEvents.get() != null);
   }
 
   void publishEvent(CoreEventBuilder eventBuilder) {
-    if (eventBuilder.hasChanges()) {
+    final List<CoreEventBuilder> staged = stagedEvents.get();
+    if (staged != null) {
+      staged.add(eventBuilder);
+      return;
+    }
+    final CoreEventBuilder changes;
+    if (eventBuilder.isStaged()) {
+      // apply the raw staged changes now, in order with evaluation and change detection
+      changes = new CoreEventBuilder(eventBuilder.name(), this, properties.entryMap(), false);
+      changes.replay(eventBuilder);
+    } else {
+      changes = eventBuilder;
+    }
+    if (changes.hasChanges()) {
       lock.lock();
       try {
-        eventRunner.run(() -> applyChangesAndPublish(eventBuilder));
+        eventRunner.run(() -> applyChangesAndPublish(changes));
       } finally {
         lock.unlock();
       }
     }
+    changes.applied();
   }
 
   private void applyChangesAndPublish(CoreEventBuilder eventBuilder) {
@@ -489,7 +599,7 @@ final class CoreConfiguration implements Configuration {
   private static class ModifyAwareProperties {
 
     private final CoreEntry.CoreMap entries;
-    private final Configuration.ExpressionEval eval;
+    private final CoreExpressionEval eval;
 
     ModifyAwareProperties(CoreEntry.CoreMap entries) {
       this.entries = entries;
@@ -533,8 +643,9 @@ final class CoreConfiguration implements Configuration {
      * This also excludes entries that represent a null value.
      */
     Optional<Entry> optionalEntry(String key) {
+      // a lazy value that can no longer be read is null
       return Optional.ofNullable(entries.get(key))
-        .filter(entry -> !entry.isNull())
+        .filter(entry -> entry.value() != null)
         .map(entry -> entry);
     }
 
@@ -547,10 +658,10 @@ final class CoreConfiguration implements Configuration {
         value = DefaultValues.fallbackValue(key)
           .or(() -> asDefault(defaultValue))
           .orElse(CoreEntry.NULL_ENTRY);
-        entries.put(key, value);
-      } else if (value.isNull() && defaultValue != null) {
+        entries.cache(key, value);
+      } else if (defaultValue != null && value.value() == null) {
         value = CoreEntry.of(defaultValue, USER_PROVIDED_DEFAULT);
-        entries.put(key, value);
+        entries.cache(key, value);
       }
       return value;
     }
@@ -561,8 +672,9 @@ final class CoreConfiguration implements Configuration {
 
     void loadIntoSystemProperties(Set<String> excludedSet) {
       entries.forEach((key, entry) -> {
-        if (!excludedSet.contains(key) && !entry.isNull()) {
-          System.setProperty(key, requireNonNull(entry.value()));
+        final String value = excludedSet.contains(key) ? null : entry.value();
+        if (value != null) {
+          System.setProperty(key, value);
         }
       });
     }
@@ -570,8 +682,9 @@ final class CoreConfiguration implements Configuration {
     Properties asProperties() {
       Properties props = new Properties();
       entries.forEach((key, entry) -> {
-        if (!entry.isNull()) {
-          props.setProperty(key, entry.value());
+        final String value = entry.value();
+        if (value != null) {
+          props.setProperty(key, value);
         }
       });
       return props;
@@ -586,26 +699,6 @@ final class CoreConfiguration implements Configuration {
     }
   }
 
-  private static class Task extends TimerTask {
-
-    private final ConfigurationLog log;
-    private final Runnable runnable;
-
-    private Task(ConfigurationLog log, Runnable runnable) {
-      this.log = log;
-      this.runnable = runnable;
-    }
-
-    @Override
-    public void run() {
-      try {
-        runnable.run();
-      } catch (Exception e) {
-        log.log(Level.ERROR, "Error executing timer task", e);
-      }
-    }
-  }
-
   /**
    * Run the event listener notifications using the current thread that is publishing the modification.
    */
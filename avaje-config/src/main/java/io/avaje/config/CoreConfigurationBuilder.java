@@ -7,6 +7,7 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
@@ -81,7 +82,7 @@ final class CoreConfigurationBuilder implements Configuration.Builder {
           log.log(INFO, "Configuration resource:{0} not found", resource);
         } else {
           var source = "resource:" + resource;
-          configParser.load(inputStream).forEach((k, v) -> put(k, v, source));
+          configParser.parse(inputStream, consumer(source));
           log.log(DEBUG, "loaded {0}", source);
         }
         return this;
@@ -101,7 +102,7 @@ final class CoreConfigurationBuilder implements Configuration.Builder {
     try {
       try (var reader = new FileReader(file)) {
         var source = "file:" + file.getName();
-        configParser.load(reader).forEach((k, v) -> put(k, v, source));
+        configParser.parse(reader, consumer(source));
         log.log(DEBUG, "loaded {0}", source);
         return this;
       }
@@ -114,6 +115,20 @@ final class CoreConfigurationBuilder implements Configuration.Builder {
     sourceMap.put(key, DefaultValues.overrideValue(key, value, source));
   }
 
+  private ConfigParser.ListConsumer consumer(String source) {
+    return new ConfigParser.ListConsumer() {
+      @Override
+      public void accept(String key, String value) {
+        put(key, value, source);
+      }
+
+      @Override
+      public void acceptList(String key, List<String> elements) {
+        sourceMap.put(key, DefaultValues.overrideValue(key, elements, source));
+      }
+    };
+  }
+
   private ConfigParser parser(String name) {
     int pos = name.lastIndexOf('.');
     if (pos == -1) {
@@ -5,6 +5,7 @@ import static java.util.Objects.requireNonNull;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
@@ -20,9 +21,17 @@ final class CoreEntry implements Configuration.Entry {
    */
   static final CoreEntry NULL_ENTRY = new CoreEntry();
 
-  private @Nullable final String value;
-  private final boolean boolValue;
+  private @Nullable String value;
+  private boolean boolValue;
   private @Nullable final String source;
+  /**
+   * Supplies the value of a lazy entry on first access (null once read).
+   */
+  private volatile @Nullable Supplier<@Nullable String> supplier;
+  /**
+   * The elements of a list value as provided by the parser (otherwise null).
+   */
+  private @Nullable final List<String> elements;
 
   /**
    * Return a new empty entryMap for entries.
@@ -54,6 +63,22 @@ final class CoreEntry implements Configuration.Entry {
     return val == null ? NULL_ENTRY : new CoreEntry(val, source);
   }
 
+  /**
+   * Return an entry for a list value with the given elements.
+   */
+  static CoreEntry of(List<String> elements, String source) {
+    return new CoreEntry(List.copyOf(elements), source);
+  }
+
+  /**
+   * Return an entry where the value is only obtained from the supplier on first access.
+   * The supplier returns null when the value can no longer be read (the entry is then
+   * treated as not defined).
+   */
+  static CoreEntry lazy(Supplier<@Nullable String> supplier, String source) {
+    return new CoreEntry(supplier, source);
+  }
+
   /**
    * Construct for our special NULL entry.
    */
@@ -61,6 +86,7 @@ final class CoreEntry implements Configuration.Entry {
     this.value = null;
     this.boolValue = false;
     this.source = null;
+    this.elements = null;
   }
 
   private CoreEntry(String value, String source) {
@@ -68,27 +94,62 @@ final class CoreEntry implements Configuration.Entry {
     this.value = value;
     this.boolValue = Boolean.parseBoolean(value);
     this.source = source;
+    this.elements = null;
+  }
+
+  private CoreEntry(List<String> elements, String source) {
+    this.value = String.join(",", elements);
+    this.boolValue = Boolean.parseBoolean(value);
+    this.source = source;
+    this.elements = elements;
+  }
+
+  private CoreEntry(Supplier<@Nullable String> supplier, String source) {
+    this.supplier = supplier;
+    this.source = source;
+    this.elements = null;
   }
 
   @Override
   public String toString() {
+    if (supplier != null) {
+      return "{<lazy> source:" + source + '}';
+    }
     return '{' + value + " source:" + source + '}';
   }
 
+  /**
+   * Return true if the value contains an expression. Lazy values are not evaluated.
+   */
   boolean needsEvaluation() {
-    return value != null && value.contains("${");
+    return supplier == null && value != null && value.contains("${");
   }
 
   @Override
   @Nullable
   public String value() {
+    if (supplier != null) {
+      resolve();
+    }
     return value;
   }
 
   boolean boolValue() {
+    if (supplier != null) {
+      resolve();
+    }
     return boolValue;
   }
 
+  private synchronized void resolve() {
+    final var lazy = supplier;
+    if (lazy != null) {
+      value = lazy.get();
+      boolValue = Boolean.parseBoolean(value);
+      supplier = null;
+    }
+  }
+
   @Override
   @Nullable
   public String source() {
@@ -96,7 +157,15 @@ final class CoreEntry implements Configuration.Entry {
   }
 
   boolean isNull() {
-    return value == null;
+    return supplier == null && value == null;
+  }
+
+  /**
+   * Return the elements when this is a list value provided by a parser (otherwise null).
+   */
+  @Nullable
+  List<String> elements() {
+    return elements;
   }
 
   /**
@@ -105,18 +174,22 @@ final class CoreEntry implements Configuration.Entry {
   static class CoreMap {
 
     private final Map<String, CoreEntry> entryMap = new ConcurrentHashMap<>();
+    private final ListIndex lists;
 
     CoreMap() {
+      this.lists = new ListIndex();
     }
 
     CoreMap(CoreMap source) {
       entryMap.putAll(source.entryMap);
+      this.lists = new ListIndex(source.lists);
     }
 
     CoreMap(Properties source, String sourceName) {
+      this.lists = new ListIndex();
       source.forEach((key, value) -> {
         if (value != null) {
-          entryMap.put(key.toString(), CoreEntry.of(value.toString(), sourceName));
+          put(key.toString(), CoreEntry.of(value.toString(), sourceName));
         }
       });
     }
@@ -126,6 +199,7 @@ final class CoreEntry implements Configuration.Entry {
      */
     void addAll(CoreMap source) {
       entryMap.putAll(source.entryMap);
+      lists.addAll(source.lists);
     }
 
     int size() {
@@ -146,9 +220,14 @@ final class CoreEntry implements Configuration.Entry {
       eventBuilder.forEachPut((key, value) -> {
         if (value == null) {
           if (entryMap.remove(key) != null) {
+            lists.remove(key);
             modifiedKeys.add(key);
           }
-        } else if (putIfChanged(key, value, sourceName)) {
+        } else if (eventBuilder.lazy(key) != null) {
+          // always a change as the lazy value is not read
+          put(key, CoreEntry.lazy(requireNonNull(eventBuilder.lazy(key)), sourceName));
+          modifiedKeys.add(key);
+        } else if (putIfChanged(key, value, eventBuilder.elements(key), sourceName)) {
           modifiedKeys.add(key);
         }
       });
@@ -159,25 +238,44 @@ final class CoreEntry implements Configuration.Entry {
      * Return true if this is a change in value.
      */
     boolean isChanged(String key, String value) {
+      return isChanged(key, value, null);
+    }
+
+    /**
+     * Return true if this is a change in value or (when either is a list value) elements.
+     */
+    boolean isChanged(String key, String value, @Nullable List<String> elements) {
       final CoreEntry entry = entryMap.get(key);
-      return entry == null || !Objects.equals(entry.value, value);
+      return entry == null || isChanged(entry, value, elements);
+    }
+
+    private static boolean isChanged(CoreEntry entry, String value, @Nullable List<String> elements) {
+      if (!Objects.equals(entry.value(), value)) {
+        return true;
+      }
+      // the joined value is the same but ["a,b"] and [a, b] are different elements
+      return (elements != null || entry.elements != null) && !Objects.equals(entry.elements, elements);
     }
 
     /**
      * Return true if this put resulted in a modification.
      */
-    private boolean putIfChanged(String key, String value, String source) {
+    private boolean putIfChanged(String key, String value, @Nullable List<String> elements, String source) {
       final CoreEntry entry = entryMap.get(key);
       if (entry == null) {
-        entryMap.put(key, CoreEntry.of(value, source));
+        put(key, of(value, elements, source));
         return true;
-      } else if (!Objects.equals(entry.value, value)) {
-        entryMap.put(key, CoreEntry.of(value, source + " <- " + entry.source));
+      } else if (isChanged(entry, value, elements)) {
+        put(key, of(value, elements, source + " <- " + entry.source));
         return true;
       }
       return false;
     }
 
+    private static CoreEntry of(String value, @Nullable List<String> elements, String source) {
+      return elements == null ? CoreEntry.of(value, source) : CoreEntry.of(elements, source);
+    }
+
     Set<String> keys() {
       return entryMap.keySet();
     }
@@ -188,10 +286,50 @@ final class CoreEntry implements Configuration.Entry {
 
     void put(String key, CoreEntry value) {
       entryMap.put(key, value);
+      if (value.isNull()) {
+        lists.remove(key);
+      } else {
+        lists.add(key);
+      }
     }
 
     void put(String key, @Nullable String value, String source) {
-      entryMap.put(key, CoreEntry.of(value, source));
+      put(key, CoreEntry.of(value, source));
+    }
+
+    void put(String key, List<String> elements, String source) {
+      put(key, CoreEntry.of(elements, source));
+    }
+
+    /**
+     * Cache a fallback or default value for a key that has no value. This entry is not
+     * included in the list index.
+     */
+    void cache(String key, CoreEntry value) {
+      entryMap.put(key, value);
+    }
+
+    /**
+     * Return a map for each element of the list by index with the keys relative to the
+     * element. For example, {@code servers[1].host} is key {@code host} of element 1
+     * of list {@code servers}.
+     */
+    NavigableMap<Integer, CoreMap> listElements(String listKey) {
+      NavigableMap<Integer, CoreMap> result = new TreeMap<>();
+      lists.elements(listKey).forEach((index, keys) -> {
+        final var element = new CoreMap();
+        for (String key : keys) {
+          final var entry = entryMap.get(key);
+          if (entry != null && !entry.isNull()) {
+            int end = key.indexOf(']', listKey.length());
+            element.put(end + 1 == key.length() ? "" : key.substring(end + 2), entry);
+          }
+        }
+        if (element.size() > 0) {
+          result.put(index, element);
+        }
+      });
+      return result;
     }
 
     @Nullable
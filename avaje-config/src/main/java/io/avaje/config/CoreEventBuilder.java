@@ -1,24 +1,55 @@
 package io.avaje.config;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import org.jspecify.annotations.Nullable;
 
 import static java.util.Objects.requireNonNull;
 
-final class CoreEventBuilder implements ModificationEvent.Builder {
+/**
+ * Builds a modification event. As a {@link ConfigParser.ListConsumer} it can be
+ * passed directly to a parser to collect the changes.
+ * <p>
+ * A staged builder (created while a source runs concurrently) records the raw puts and
+ * removes without evaluation or change detection. These are replayed into a builder when
+ * the staged events are applied in declared order, such that evaluation and change
+ * detection see the configuration as it would be if the sources had run sequentially.
+ */
+final class CoreEventBuilder implements ModificationEvent.Builder, ConfigParser.ListConsumer {
 
   private final String name;
   private final CoreConfiguration origin;
   private final CoreEntry.CoreMap snapshot;
   private final Map<String, String> changes = new LinkedHashMap<>();
+  /**
+   * The elements of changed list values.
+   */
+  private final Map<String, List<String>> lists = new HashMap<>();
+  /**
+   * The suppliers of changed lazy values.
+   */
+  private final Map<String, Supplier<@Nullable String>> lazies = new HashMap<>();
+  /**
+   * Actions to run once the changes have been applied.
+   */
+  private final List<Runnable> onApplied = new ArrayList<>();
+  /**
+   * True when recording raw changes to be replayed later.
+   */
+  private final boolean staged;
 
-
-  CoreEventBuilder(String name, CoreConfiguration origin, CoreEntry.CoreMap snapshot) {
+  CoreEventBuilder(String name, CoreConfiguration origin, CoreEntry.CoreMap snapshot, boolean staged) {
     this.name = name;
     this.origin = origin;
     this.snapshot = snapshot; // at the moment we don't mutate the snapshot so could just use the original map
+    this.staged = staged;
   }
 
   @Override
@@ -43,18 +74,72 @@ final class CoreEventBuilder implements ModificationEvent.Builder {
   public ModificationEvent.Builder put(String key, String value) {
     requireNonNull(key);
     requireNonNull(value);
+    lists.remove(key);
+    lazies.remove(key);
+    if (staged) {
+      changes.put(key, value);
+      return this;
+    }
     value = origin.eval(value);
     if (snapshot.isChanged(key, value)) {
       changes.put(key, value);
+    } else {
+      // a later put back to the current value replaces an earlier change
+      changes.remove(key);
     }
     return this;
   }
 
+  @Override
+  public void accept(String key, String value) {
+    put(key, value);
+  }
+
+  @Override
+  public void acceptList(String key, List<String> elements) {
+    requireNonNull(key);
+    if (staged) {
+      lazies.remove(key);
+      changes.put(key, String.join(",", elements));
+      lists.put(key, elements);
+      return;
+    }
+    final List<String> evaluated = origin.evalElements(elements);
+    final String value = String.join(",", evaluated);
+    lazies.remove(key);
+    if (snapshot.isChanged(key, value, evaluated)) {
+      changes.put(key, value);
+      lists.put(key, evaluated);
+    } else {
+      changes.remove(key);
+      lists.remove(key);
+    }
+  }
+
+  /**
+   * Put a value that is only read on first access. This is always a change (as the
+   * value is not read to compare) and the value is not evaluated for expressions.
+   */
+  CoreEventBuilder putLazy(String key, Supplier<@Nullable String> supplier) {
+    requireNonNull(key);
+    requireNonNull(supplier);
+    lists.remove(key);
+    lazies.put(key, supplier);
+    // placeholder value, applied as a lazy entry
+    changes.put(key, "");
+    return this;
+  }
+
   @Override
   public ModificationEvent.Builder remove(String key) {
     requireNonNull(key);
-    if (snapshot.containsKey(key)) {
+    lists.remove(key);
+    lazies.remove(key);
+    if (staged || snapshot.containsKey(key)) {
       changes.put(key, null);
+    } else {
+      // a remove after a put of a new key
+      changes.remove(key);
     }
     return this;
   }
@@ -64,6 +149,49 @@ final class CoreEventBuilder implements ModificationEvent.Builder {
     origin.publishEvent(this);
   }
 
+  @Override
+  public void publish(Runnable onApplied) {
+    requireNonNull(onApplied);
+    this.onApplied.add(onApplied);
+    origin.publishEvent(this);
+  }
+
+  /**
+   * Replay the raw changes of the staged builder into this one (with evaluation and change
+   * detection against the current configuration) with the staged changes taking precedence.
+   */
+  void replay(CoreEventBuilder staged) {
+    onApplied.addAll(staged.onApplied);
+    staged.changes.forEach((key, value) -> {
+      if (value == null) {
+        remove(key);
+        return;
+      }
+      final Supplier<@Nullable String> supplier = staged.lazies.get(key);
+      final List<String> elements = staged.lists.get(key);
+      if (supplier != null) {
+        putLazy(key, supplier);
+      } else if (elements != null) {
+        acceptList(key, elements);
+      } else {
+        put(key, value);
+      }
+    });
+  }
+
+  /**
+   * Run the actions waiting on the changes being applied.
+   */
+  void applied() {
+    for (Runnable action : onApplied) {
+      action.run();
+    }
+  }
+
+  boolean isStaged() {
+    return staged;
+  }
+
   boolean hasChanges() {
     return !changes.isEmpty();
   }
@@ -72,6 +200,22 @@ final class CoreEventBuilder implements ModificationEvent.Builder {
     changes.forEach(consumer);
   }
 
+  /**
+   * Return the elements of a changed list value (otherwise null).
+   */
+  @Nullable
+  List<String> elements(String key) {
+    return lists.get(key);
+  }
+
+  /**
+   * Return the supplier of a changed lazy value (otherwise null).
+   */
+  @Nullable
+  Supplier<@Nullable String> lazy(String key) {
+    return lazies.get(key);
+  }
+
   String name() {
     return name;
   }
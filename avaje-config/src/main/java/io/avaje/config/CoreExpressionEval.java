@@ -2,6 +2,8 @@ package io.avaje.config;
 
 import org.jspecify.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 import static java.util.Objects.requireNonNull;
@@ -56,12 +58,28 @@ final class CoreExpressionEval implements Configuration.ExpressionEval {
   private CoreEntry.CoreMap evalAll() {
     sourceMap.forEach((key, entry) -> {
       if (entry.needsEvaluation()) {
-        sourceMap.put(key, eval(entry.value()), requireNonNull(entry.source()));
+        final var elements = entry.elements();
+        if (elements == null) {
+          sourceMap.put(key, eval(entry.value()), requireNonNull(entry.source()));
+        } else {
+          sourceMap.put(key, evalElements(elements), requireNonNull(entry.source()));
+        }
       }
     });
     return sourceMap;
   }
 
+  /**
+   * Evaluate each element of a list value.
+   */
+  List<String> evalElements(List<String> elements) {
+    final List<String> evaluated = new ArrayList<>(elements.size());
+    for (final String element : elements) {
+      evaluated.add(evalRecurse(element));
+    }
+    return evaluated;
+  }
+
   @Override
   @Nullable
   public String eval(@Nullable String val) {
@@ -6,6 +6,8 @@ import java.util.Collections;
 import java.util.List;
 import java.util.function.Function;
 
+import org.jspecify.annotations.Nullable;
+
 final class CoreListValue implements Configuration.ListValue {
 
   private final CoreConfiguration config;
@@ -16,25 +18,25 @@ final class CoreListValue implements Configuration.ListValue {
 
   @Override
   public List<String> of(String key) {
-    final String val = config.value(key);
-    return val == null ? Collections.emptyList() : split(val);
+    final List<String> values = values(key);
+    return values == null ? Collections.emptyList() : values;
   }
 
   @Override
   public List<String> of(String key, String... defaultValues) {
-    final String val = config.value(key);
-    return val == null ? Arrays.asList(defaultValues) : split(val);
+    final List<String> values = values(key);
+    return values == null ? Arrays.asList(defaultValues) : values;
   }
 
   @Override
   public List<Integer> ofInt(String key) {
-    return splitInt(config.value(key));
+    return convert(values(key), Integer::parseInt);
   }
 
   @Override
   public List<Integer> ofInt(String key, int... defaultValues) {
-    final String val = config.value(key);
-    return val == null ? intDefaults(defaultValues) : splitInt(val);
+    final List<String> values = values(key);
+    return values == null ? intDefaults(defaultValues) : convert(values, Integer::parseInt);
   }
 
   private static List<Integer> intDefaults(int[] defaultValues) {
@@ -47,13 +49,13 @@ final class CoreListValue implements Configuration.ListValue {
 
   @Override
   public List<Long> ofLong(String key) {
-    return splitLong(config.value(key));
+    return convert(values(key), Long::parseLong);
   }
 
   @Override
   public List<Long> ofLong(String key, long... defaultValues) {
-    final String val = config.value(key);
-    return val == null ? longDefaults(defaultValues) : splitLong(val);
+    final List<String> values = values(key);
+    return values == null ? longDefaults(defaultValues) : convert(values, Long::parseLong);
   }
 
   private static List<Long> longDefaults(long[] defaultValues) {
@@ -66,32 +68,38 @@ final class CoreListValue implements Configuration.ListValue {
 
   @Override
   public <T> List<T> ofType(String key, Function<String, T> function) {
-    final String val = config.value(key);
+    final List<String> values = values(key);
     try {
-      return splitAs(val, function);
+      return convert(values, function);
     } catch (final Exception e) {
       throw new IllegalStateException("Failed to convert key: " + key + " with the provided function", e);
     }
   }
 
-  List<String> split(String allValues) {
-    return Arrays.asList(allValues.split(","));
-  }
-
-  List<Integer> splitInt(String allValues) {
-    return splitAs(allValues, Integer::parseInt);
+  /**
+   * Return the list elements provided by the parser or otherwise split the value.
+   */
+  @Nullable
+  private List<String> values(String key) {
+    final CoreEntry entry = config.coreEntry(key);
+    final List<String> elements = entry.elements();
+    if (elements != null) {
+      return elements;
+    }
+    final String val = entry.value();
+    return val == null ? null : split(val);
   }
 
-  List<Long> splitLong(String allValues) {
-    return splitAs(allValues, Long::parseLong);
+  static List<String> split(String allValues) {
+    return Arrays.asList(allValues.split(","));
   }
 
-  <T> List<T> splitAs(String allValues, Function<String, T> function) {
-    if (allValues == null) {
+  <T> List<T> convert(@Nullable List<String> values, Function<String, T> function) {
+    if (values == null) {
       return Collections.emptyList();
     }
-    final List<T> list = new ArrayList<>();
-    for (final var value : allValues.split(",")) {
+    final List<T> list = new ArrayList<>(values.size());
+    for (final var value : values) {
       list.add(function.apply(value));
     }
     return list;
@@ -0,0 +1,201 @@
+package io.avaje.config;
+
+import java.lang.System.Logger.Level;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Runs the periodic tasks of the configuration like file watching and source polling.
+ * <p>
+ * A single daemon thread does the timing only with each task body dispatched to its own
+ * virtual thread (when available, otherwise a daemon thread of a cached pool) such that a
+ * slow task like a remote fetch does not delay the other tasks.
+ * <p>
+ * The next run of a task is scheduled after the previous run completes (fixed delay) with
+ * a random jitter of up to the given percentage of the delay and period added such that
+ * many instances do not all poll a remote source at the same moment. A period of zero
+ * runs the task once.
+ */
+@NullMarked
+final class CoreScheduler {
+
+  private final ConfigurationLog log;
+  private final int jitterPercent;
+  private final Set<Task> tasks = ConcurrentHashMap.newKeySet();
+  private @Nullable ScheduledExecutorService timer;
+  private @Nullable ExecutorService executor;
+  private boolean closed;
+
+  CoreScheduler(ConfigurationLog log, int jitterPercent) {
+    this.log = log;
+    this.jitterPercent = Math.max(0, jitterPercent);
+  }
+
+  /**
+   * Schedule the task returning the handle to cancel it.
+   */
+  Configuration.Cancellable schedule(long delayMillis, long periodMillis, Runnable runnable) {
+    final var task = new Task(runnable, periodMillis);
+    synchronized (this) {
+      if (closed) {
+        throw new IllegalStateException("Configuration has been closed");
+      }
+      if (timer == null) {
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+          final var thread = new Thread(r, "ConfigTimer");
+          thread.setDaemon(true);
+          return thread;
+        });
+      }
+      tasks.add(task);
+      task.next(delayMillis);
+    }
+    return task;
+  }
+
+  /**
+   * Cancel all the tasks and stop the threads.
+   */
+  void close() {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      for (Task task : tasks) {
+        task.cancel();
+      }
+      if (timer != null) {
+        timer.shutdownNow();
+      }
+      if (executor != null) {
+        executor.shutdown();
+      }
+    }
+  }
+
+  synchronized boolean isClosed() {
+    return closed;
+  }
+
+  long jitter(long millis) {
+    if (jitterPercent == 0 || millis <= 0) {
+      return millis;
+    }
+    return millis + ThreadLocalRandom.current().nextLong(millis * jitterPercent / 100 + 1);
+  }
+
+  /**
+   * Execute the task on its own (virtual when available) thread.
+   */
+  void execute(Runnable task) {
+    executor().execute(task);
+  }
+
+  private synchronized ExecutorService executor() {
+    if (closed) {
+      throw new RejectedExecutionException("Configuration has been closed");
+    }
+    if (executor == null) {
+      executor = newExecutor();
+    }
+    return executor;
+  }
+
+  /**
+   * Return a virtual thread per task executor when available (Java 21+).
+   */
+  private static ExecutorService newExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      final var counter = new AtomicInteger();
+      return Executors.newCachedThreadPool(runnable -> {
+        final var thread = new Thread(runnable, "ConfigTask-" + counter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+  private final class Task implements Configuration.Cancellable, Runnable {
+
+    private final Runnable runnable;
+    private final long periodMillis;
+    private @Nullable ScheduledFuture<?> future;
+    private volatile boolean cancelled;
+
+    Task(Runnable runnable, long periodMillis) {
+      this.runnable = runnable;
+      this.periodMillis = periodMillis;
+    }
+
+    /**
+     * Schedule the next run (on the timer thread).
+     */
+    private void next(long delayMillis) {
+      synchronized (CoreScheduler.this) {
+        if (cancelled || closed || timer == null) {
+          return;
+        }
+        future = timer.schedule(this::dispatch, jitter(delayMillis), TimeUnit.MILLISECONDS);
+      }
+    }
+
+    /**
+     * Dispatch the body to its own thread.
+     */
+    private void dispatch() {
+      try {
+        execute(this);
+      } catch (RejectedExecutionException e) {
+        // closed
+      }
+    }
+
+    @Override
+    public void run() {
+      if (cancelled) {
+        return;
+      }
+      try {
+        runnable.run();
+      } catch (Exception e) {
+        log.log(Level.ERROR, "Error executing timer task", e);
+      } finally {
+        if (periodMillis > 0) {
+          next(periodMillis);
+        } else {
+          tasks.remove(this);
+        }
+      }
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      tasks.remove(this);
+      synchronized (CoreScheduler.this) {
+        if (future != null) {
+          future.cancel(false);
+        }
+      }
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return cancelled;
+    }
+  }
+}
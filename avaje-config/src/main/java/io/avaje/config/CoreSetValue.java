@@ -2,9 +2,12 @@ package io.avaje.config;
 
 import java.util.Collections;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.function.Function;
 
+import org.jspecify.annotations.Nullable;
+
 final class CoreSetValue implements Configuration.SetValue {
 
   private final CoreConfiguration config;
@@ -15,14 +18,14 @@ final class CoreSetValue implements Configuration.SetValue {
 
   @Override
   public Set<String> of(String key) {
-    final String val = config.value(key);
-    return val == null ? Collections.emptySet() : split(val);
+    final List<String> values = values(key);
+    return values == null ? Collections.emptySet() : new LinkedHashSet<>(values);
   }
 
   @Override
   public Set<String> of(String key, String... defaultValues) {
-    final String val = config.value(key);
-    return val == null ? stringDefaults(defaultValues) : split(val);
+    final List<String> values = values(key);
+    return values == null ? stringDefaults(defaultValues) : new LinkedHashSet<>(values);
   }
 
   private static Set<String> stringDefaults(String[] defaultValues) {
@@ -33,13 +36,13 @@ final class CoreSetValue implements Configuration.SetValue {
 
   @Override
   public Set<Integer> ofInt(String key) {
-    return splitInt(config.value(key));
+    return convert(values(key), Integer::parseInt);
   }
 
   @Override
   public Set<Integer> ofInt(String key, int... defaultValues) {
-    final String val = config.value(key);
-    return val == null ? intDefaults(defaultValues) : splitInt(val);
+    final List<String> values = values(key);
+    return values == null ? intDefaults(defaultValues) : convert(values, Integer::parseInt);
   }
 
   private static Set<Integer> intDefaults(int[] defaultValues) {
@@ -52,13 +55,13 @@ final class CoreSetValue implements Configuration.SetValue {
 
   @Override
   public Set<Long> ofLong(String key) {
-    return splitLong(config.value(key));
+    return convert(values(key), Long::parseLong);
   }
 
   @Override
   public Set<Long> ofLong(String key, long... defaultValues) {
-    final String val = config.value(key);
-    return val == null ? longDefaults(defaultValues) : splitLong(val);
+    final List<String> values = values(key);
+    return values == null ? longDefaults(defaultValues) : convert(values, Long::parseLong);
   }
 
   private static Set<Long> longDefaults(long[] defaultValues) {
@@ -71,32 +74,34 @@ final class CoreSetValue implements Configuration.SetValue {
 
   @Override
   public <T> Set<T> ofType(String key, Function<String, T> function) {
-    final String val = config.value(key);
+    final List<String> values = values(key);
     try {
-      return splitAs(val, function);
+      return convert(values, function);
     } catch (final Exception e) {
       throw new IllegalStateException("Failed to convert key: " + key + " with the provided function", e);
     }
   }
 
-  Set<String> split(String allValues) {
-    return stringDefaults(allValues.split(","));
-  }
-
-  Set<Integer> splitInt(String allValues) {
-    return splitAs(allValues, Integer::parseInt);
-  }
-
-  Set<Long> splitLong(String allValues) {
-    return splitAs(allValues, Long::parseLong);
+  /**
+   * Return the list elements provided by the parser or otherwise split the value.
+   */
+  @Nullable
+  private List<String> values(String key) {
+    final CoreEntry entry = config.coreEntry(key);
+    final List<String> elements = entry.elements();
+    if (elements != null) {
+      return elements;
+    }
+    final String val = entry.value();
+    return val == null ? null : CoreListValue.split(val);
   }
 
-  <T> Set<T> splitAs(String allValues, Function<String, T> function) {
-    if (allValues == null) {
+  <T> Set<T> convert(@Nullable List<String> values, Function<String, T> function) {
+    if (values == null) {
       return Collections.emptySet();
     }
     final Set<T> set = new LinkedHashSet<>();
-    for (final var value : allValues.split(",")) {
+    for (final var value : values) {
       set.add(function.apply(value));
     }
     return set;
@@ -2,8 +2,11 @@ package io.avaje.config;
 
 import io.avaje.config.Configuration.Entry;
 
+import java.util.List;
 import java.util.Optional;
 
+import org.jspecify.annotations.Nullable;
+
 /**
  * Override and fallback values.
  */
@@ -22,6 +25,21 @@ final class DefaultValues {
    * If the key is not overridden then it is returned as the given value and source.
    */
   static CoreEntry overrideValue(String key, String value, String source) {
+    CoreEntry override = override(key);
+    // not overridden, return as given
+    return override != null ? override : CoreEntry.of(value, source);
+  }
+
+  /**
+   * Return an Entry for the list value overriding first by system property and then by environment variable.
+   */
+  static CoreEntry overrideValue(String key, List<String> elements, String source) {
+    CoreEntry override = override(key);
+    return override != null ? override : CoreEntry.of(elements, source);
+  }
+
+  @Nullable
+  private static CoreEntry override(String key) {
     String propertyValue = System.getProperty(key);
     if (propertyValue != null) {
       // overridden by a system property
@@ -32,8 +50,7 @@ final class DefaultValues {
       // overridden by an environment variable
       return CoreEntry.of(envValue, Constants.ENV_VARIABLES);
     }
-    // not overridden, return as given
-    return CoreEntry.of(value, source);
+    return null;
   }
 
   static Optional<CoreEntry> fallbackValue(String key) {
@@ -1,115 +1,414 @@
 package io.avaje.config;
 
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.lang.System.Logger.Level;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.jspecify.annotations.Nullable;
 
+/**
+ * Watches the loaded files reloading them when they change.
+ * <p>
+ * By default this uses a {@link WatchService} on the parent directories of the files such
+ * that changes are picked up quickly. With {@code config.watch.mode=poll}, or when native
+ * watching is not supported, the files are polled every {@code config.watch.period} seconds
+ * after an initial {@code config.watch.delay}.
+ * <p>
+ * Directories that are Kubernetes ConfigMap or Secret volumes are detected by their
+ * {@code ..data} link. Kubernetes updates these volumes by atomically swapping that link
+ * to a new timestamped directory, so the files are read via the current target of the
+ * link such that all the files of the volume are read from the same version.
+ * <p>
+ * Directories of fragments defined by {@code config.dir} are also watched. Adding, changing
+ * or removing a fragment applies the changes of that fragment only, with fragments later in
+ * file name order taking precedence.
+ * <p>
+ * Changes are resolved against all the sources of the initial load in load order. A changed
+ * key is not applied when a later source defines it, and a removed key reverts to the value
+ * of the closest earlier source that defines it (or is removed when there is none).
+ */
 final class FileWatch {
 
   private final ConfigurationLog log;
-  private final Configuration configuration;
+  private final CoreConfiguration configuration;
   private final Parsers parsers;
+  private final PropertiesParser propertiesParser = new PropertiesParser();
+  /**
+   * The key values of the sources in load order, later sources taking precedence.
+   */
+  private final List<Layer> layers = new ArrayList<>();
+  private final Map<String, Layer> layerBySource = new HashMap<>();
+  private final LoadOrder loadOrder;
   private final List<Entry> files;
+  /**
+   * The ConfigMap volumes by directory.
+   */
+  private final Map<Path, Mount> mounts = new HashMap<>();
+  private final List<Fragments> fragmentDirs;
   private final long delay;
   private final long period;
+  private final long debounce;
+  private final boolean nativeWatch;
+  private @Nullable WatchService watchService;
 
   FileWatch(CoreConfiguration configuration, List<File> loadedFiles, Parsers parsers) {
+    this(configuration, loadedFiles, List.of(), parsers);
+  }
+
+  FileWatch(CoreConfiguration configuration, List<File> loadedFiles, List<File> configDirs, Parsers parsers) {
+    this(configuration, loadedFiles, configDirs, new LoadOrder(), parsers);
+  }
+
+  FileWatch(CoreConfiguration configuration, List<File> loadedFiles, List<File> configDirs, LoadOrder loadOrder, Parsers parsers) {
     this.log = configuration.log();
+    this.loadOrder = loadOrder;
+    loadOrder.sources().forEach((source, values) -> addLayer(layers.size(), new Layer(source, values)));
     this.configuration = configuration;
     this.delay = configuration.getLong("config.watch.delay", 60);
     this.period = configuration.getLong("config.watch.period", 10);
     this.parsers = parsers;
+    this.debounce = configuration.entry("config.watch.debounce").map(e -> Long.parseLong(e.value())).orElse(50L);
     this.files = initFiles(loadedFiles);
-    if (files.isEmpty()) {
+    this.fragmentDirs = initFragments(configDirs);
+    if (files.isEmpty() && fragmentDirs.isEmpty()) {
       log.log(Level.ERROR, "No files to watch?");
+      this.nativeWatch = false;
     } else {
-      configuration.schedule(delay * 1000, period * 1000, this::check);
+      final var mode = configuration.entry("config.watch.mode").map(Configuration.Entry::value).orElse("native");
+      this.nativeWatch = !"poll".equals(mode) && startNativeWatch();
+      if (!nativeWatch) {
+        configuration.schedule(delay * 1000, period * 1000, this::check);
+      }
     }
   }
 
   @Override
   public String toString() {
-    return "Watch[period:" + period + " delay:" + delay + " files:" + files + "]";
+    if (nativeWatch) {
+      return "Watch[mode:native files:" + files + dirsToString() + "]";
+    }
+    return "Watch[period:" + period + " delay:" + delay + " files:" + files + dirsToString() + "]";
+  }
+
+  private String dirsToString() {
+    return fragmentDirs.isEmpty() ? "" : " dirs:" + fragmentDirs;
+  }
+
+  /**
+   * Register the parent directories with a WatchService returning false if native
+   * watching is not supported (in which case polling is used).
+   */
+  private boolean startNativeWatch() {
+    WatchService watchService = null;
+    try {
+      watchService = FileSystems.getDefault().newWatchService();
+      if (watchService.getClass().getSimpleName().startsWith("Polling")) {
+        // the JDK fallback implementation polls every 10 seconds so use our own polling
+        watchService.close();
+        return false;
+      }
+      Set<Path> directories = new HashSet<>();
+      for (Entry file : files) {
+        directories.add(file.directory());
+      }
+      for (Fragments fragments : fragmentDirs) {
+        directories.add(fragments.directory);
+      }
+      for (Path directory : directories) {
+        directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+      }
+      final var service = watchService;
+      this.watchService = service;
+      final var thread = new Thread(() -> watch(service), "ConfigWatch");
+      thread.setDaemon(true);
+      thread.start();
+      return true;
+    } catch (IOException | UnsupportedOperationException e) {
+      log.log(Level.WARNING, "Unable to watch config files natively, using polling - " + e);
+      if (watchService != null) {
+        try {
+          watchService.close();
+        } catch (IOException ignored) {
+          // ignore
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Stop the native watching (polling is stopped by cancelling the scheduled task).
+   */
+  void close() {
+    final var service = watchService;
+    if (service != null) {
+      try {
+        service.close();
+      } catch (IOException e) {
+        log.log(Level.WARNING, "Error closing config watch service " + e);
+      }
+    }
+  }
+
+  private void watch(WatchService watchService) {
+    try {
+      while (true) {
+        if (watchEvents(watchService.take())) {
+          // coalesce the multiple events of an editor or a copy into one check
+          WatchKey key;
+          while ((key = watchService.poll(debounce, TimeUnit.MILLISECONDS)) != null) {
+            watchEvents(key);
+          }
+          try {
+            check();
+          } catch (Exception e) {
+            log.log(Level.ERROR, "Error reloading config files", e);
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ClosedWatchServiceException e) {
+      // stopped
+    }
+  }
+
+  /**
+   * Return true if the events include one of the watched files.
+   */
+  private boolean watchEvents(WatchKey key) {
+    boolean watched = false;
+    final var directory = (Path) key.watchable();
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == OVERFLOW) {
+        watched = true;
+      } else {
+        final var name = (Path) event.context();
+        if (mounts.containsKey(directory) && name.toString().startsWith("..")) {
+          // the ..data link swapped or the old timestamped directory removed
+          watched = true;
+        }
+        for (Fragments fragments : fragmentDirs) {
+          if (fragments.directory.equals(directory) && fragments.supported(name.toString())) {
+            watched = true;
+          }
+        }
+        final var path = directory.resolve(name);
+        for (Entry file : files) {
+          if (file.path().equals(path)) {
+            watched = true;
+            break;
+          }
+        }
+      }
+    }
+    key.reset();
+    return watched;
   }
 
   private List<Entry> initFiles(List<File> loadedFiles) {
     List<Entry> entries = new ArrayList<>(loadedFiles.size());
     for (File loadedFile : loadedFiles) {
-      entries.add(new Entry(loadedFile));
+      final var path = loadedFile.toPath().toAbsolutePath().normalize();
+      entries.add(new Entry(loadedFile, path, mount(path.getParent()), layer(loadOrder.source(loadedFile)), true));
     }
     return entries;
   }
 
-  boolean changed() {
-    for (Entry file : files) {
-      if (file.changed()) {
+  private List<Fragments> initFragments(List<File> configDirs) {
+    List<Fragments> result = new ArrayList<>(configDirs.size());
+    for (File configDir : configDirs) {
+      final var fragments = new Fragments(configDir);
+      fragments.init();
+      result.add(fragments);
+    }
+    return result;
+  }
+
+  /**
+   * Return the layer of the source adding it as the last source if it was not loaded.
+   */
+  private Layer layer(String source) {
+    final var layer = layerBySource.get(source);
+    return layer != null ? layer : addLayer(layers.size(), new Layer(source, Map.of()));
+  }
+
+  private Layer addLayer(int index, Layer layer) {
+    layers.add(index, layer);
+    layerBySource.put(layer.source, layer);
+    return layer;
+  }
+
+  /**
+   * Return true if a source later in the load order defines the key.
+   */
+  private boolean shadowed(Layer layer, String key) {
+    for (int i = layers.indexOf(layer) + 1; i < layers.size(); i++) {
+      if (layers.get(i).values.containsKey(key)) {
         return true;
       }
     }
     return false;
   }
 
-  void check() {
-    final Map<String, String> keyValues = new LinkedHashMap<>();
-    for (Entry file : files) {
-      if (file.reload()) {
-        log.log(Level.DEBUG, "reloading configuration from {0}", file);
-        if (file.isCustom()) {
-          reloadYaml(file, keyValues);
-        } else {
-          reloadProps(file, keyValues);
-        }
+  /**
+   * Return the value of the key from the closest source earlier in the load order (or null).
+   */
+  private @Nullable Object earlier(Layer layer, String key) {
+    for (int i = layers.indexOf(layer) - 1; i >= 0; i--) {
+      final var value = layers.get(i).values.get(key);
+      if (value != null) {
+        return value;
       }
     }
+    return null;
+  }
+
+  /**
+   * Return true if the file name is a fragment of a config dir (a non hidden file
+   * with a supported extension).
+   */
+  static boolean supportedFragment(String name, @Nullable Parsers parsers) {
+    if (name.startsWith(".")) {
+      return false;
+    }
+    var extension = name.substring(name.lastIndexOf('.') + 1);
+    return "properties".equals(extension) || parsers != null && parsers.supportsExtension(extension);
+  }
+
+  /**
+   * Return the ConfigMap volume if the directory is one.
+   */
+  private @Nullable Mount mount(Path directory) {
+    if (!mounts.containsKey(directory) && Files.isSymbolicLink(directory.resolve(Mount.DATA))) {
+      try {
+        mounts.put(directory, new Mount(directory));
+      } catch (IOException e) {
+        log.log(Level.WARNING, "Unable to resolve ..data link of " + directory + " - " + e);
+      }
+    }
+    return mounts.get(directory);
+  }
+
+  /**
+   * Check the files and publish the added, changed and removed keys as one event.
+   * <p>
+   * Files are only read when their last modified time, length or (for a ConfigMap) resolved
+   * path has changed. They are only parsed when their content hash has changed and the new
+   * key values are compared to the key values of the prior parse of that file.
+   */
+  synchronized void check() {
+    for (Mount mount : mounts.values()) {
+      mount.resolve();
+    }
     final var builder = configuration.eventBuilder("reload");
-    keyValues.forEach(builder::put);
+    for (Entry file : files) {
+      file.check(builder);
+    }
+    for (Fragments fragments : fragmentDirs) {
+      fragments.check(builder);
+    }
     builder.publish();
   }
 
-  private void reloadProps(Entry file, Map<String, String> keyValues) {
-    try (InputStream is = file.inputStream()) {
-      final var properties = new Properties();
-      properties.load(is);
-      Enumeration<?> enumeration = properties.propertyNames();
-      while (enumeration.hasMoreElements()) {
-        final String key = (String) enumeration.nextElement();
-        keyValues.put(key, properties.getProperty(key));
+  /**
+   * Parse the content returning the key values (or null when the content fails to parse).
+   */
+  private @Nullable Map<String, Object> parse(Entry file, byte[] content) {
+    final var values = new KeyValues();
+    try (InputStream is = new ByteArrayInputStream(content)) {
+      if (file.isCustom()) {
+        var parser = parsers.get(file.extension);
+        if (parser == null) {
+          log.log(Level.ERROR, "Unexpected - no parser to reload config file " + file);
+          return null;
+        }
+        final var profiles = ProfileDocuments.profiles(profiles());
+        final var consumer = new ProfileDocuments(values, document -> {
+          if (document.activeFor(profiles)) {
+            document.applyTo(values);
+          }
+        });
+        parser.parse(is, consumer);
+        consumer.endDocument();
+      } else {
+        propertiesParser.parse(is, values);
       }
+      return values.map();
     } catch (Exception e) {
       log.log(Level.ERROR, "Unexpected error reloading config file " + file, e);
+      return null;
     }
   }
 
-  private void reloadYaml(Entry file, Map<String, String> keyValues) {
-    var parser = parsers.get(file.extension);
-    if (parser == null) {
-      log.log(Level.ERROR, "Unexpected - no parser to reload config file " + file);
-    } else {
-      try (InputStream is = file.inputStream()) {
-        keyValues.putAll(parser.load(is));
-      } catch (Exception e) {
-        log.log(Level.ERROR, "Unexpected error reloading config file " + file, e);
-      }
-    }
+  private @Nullable String profiles() {
+    return configuration.entry("config.profiles")
+      .or(() -> configuration.entry("avaje.profiles"))
+      .map(Configuration.Entry::value)
+      .orElse(null);
   }
 
-  private static class Entry {
+  private final class Entry {
+    /**
+     * A file modified within this time of being read could be modified again without a
+     * change to its last modified time (file system timestamp granularity).
+     */
+    private static final long RACY_MILLIS = 2000;
+
     private final File file;
+    private final Path path;
+    private final @Nullable Mount mount;
     private final boolean customExtension;
     private final String extension;
     private long lastMod;
     private long lastLength;
+    private @Nullable Path lastResolved;
+    /**
+     * True when the file was modified close to when it was last read such that it is
+     * read and hashed on each check until its last modified time is safely in the past.
+     */
+    private boolean racy;
+    private byte[] hash;
+    private final Layer layer;
 
-    Entry(File file) {
+    /**
+     * Create the entry with the baseline being the current content or empty content.
+     */
+    Entry(File file, Path path, @Nullable Mount mount, Layer layer, boolean baseline) {
       this.file = file;
-      this.lastMod = file.lastModified();
-      this.lastLength = file.length();
+      this.path = path;
+      this.mount = mount;
+      this.layer = layer;
       var name = file.getName();
       this.extension = name.substring(name.lastIndexOf(".") + 1);
       this.customExtension = !"properties".equals(extension);
+      final var content = baseline ? readContent() : null;
+      this.hash = content == null ? new byte[0] : hash(content);
+      if (content != null) {
+        final var initial = parse(this, content);
+        if (initial != null) {
+          layer.values = initial;
+        }
+      }
     }
 
     @Override
@@ -117,29 +416,270 @@ final class FileWatch {
       return file.toString();
     }
 
+    Path path() {
+      return path;
+    }
+
+    Path directory() {
+      return path.getParent();
+    }
+
     boolean isCustom() {
       return customExtension;
     }
 
-    boolean reload() {
-      if (!changed()) {
-        return false;
+    /**
+     * Reload the file adding the changes to the builder when the content has changed.
+     */
+    void check(CoreEventBuilder builder) {
+      final var content = read();
+      if (content != null) {
+        log.log(Level.DEBUG, "reloading configuration from {0}", file);
+        final var newValues = parse(this, content);
+        if (newValues != null) {
+          apply(newValues, builder);
+        }
       }
-      lastMod = file.lastModified();
-      lastLength = file.length();
-      return true;
     }
 
-    boolean changed() {
-      return file.lastModified() > lastMod || file.length() != lastLength;
+    /**
+     * Return true if the file could have been modified since it was last read.
+     */
+    boolean modified() {
+      final var resolved = resolved();
+      final var current = resolved.toFile();
+      return racy || !resolved.equals(lastResolved) || current.lastModified() != lastMod || current.length() != lastLength;
+    }
+
+    private Path resolved() {
+      return mount == null ? path : mount.path(path);
     }
 
-    InputStream inputStream() {
+    /**
+     * Return the content when it has changed since the last read (otherwise null).
+     */
+    byte @Nullable [] read() {
+      if (!modified()) {
+        return null;
+      }
+      final var content = readContent();
+      if (content == null) {
+        return null;
+      }
+      final var newHash = hash(content);
+      if (MessageDigest.isEqual(hash, newHash)) {
+        return null;
+      }
+      hash = newHash;
+      return content;
+    }
+
+    /**
+     * Read the content recording the last modified time and length prior to the read.
+     */
+    private byte @Nullable [] readContent() {
+      final var resolved = resolved();
+      final var current = resolved.toFile();
+      final long modified = current.lastModified();
+      final long length = current.length();
       try {
-        return new FileInputStream(file);
-      } catch (FileNotFoundException e) {
-        throw new RuntimeException(e);
+        final var content = Files.readAllBytes(resolved);
+        lastResolved = resolved;
+        lastMod = modified;
+        lastLength = length;
+        racy = System.currentTimeMillis() - modified < RACY_MILLIS;
+        return content;
+      } catch (NoSuchFileException e) {
+        // deleted or being replaced, keep the current values
+        return null;
+      } catch (IOException e) {
+        log.log(Level.ERROR, "Unexpected error reading config file " + file, e);
+        return null;
+      }
+    }
+
+    /**
+     * Add the added, changed and removed keys to the builder. Keys that are defined by a
+     * later source are skipped and removed keys revert to the value of an earlier source.
+     */
+    void apply(Map<String, Object> newValues, CoreEventBuilder builder) {
+      final var oldValues = layer.values;
+      layer.values = newValues;
+      newValues.forEach((key, value) -> {
+        if (!value.equals(oldValues.get(key)) && !shadowed(layer, key)) {
+          KeyValues.accept(builder, key, value);
+        }
+      });
+      for (String key : oldValues.keySet()) {
+        if (!newValues.containsKey(key) && !shadowed(layer, key)) {
+          final var earlier = earlier(layer, key);
+          if (earlier == null) {
+            builder.remove(key);
+          } else {
+            KeyValues.accept(builder, key, earlier);
+          }
+        }
       }
     }
   }
+
+  /**
+   * The key values of a source.
+   */
+  private static final class Layer {
+
+    private final String source;
+    private Map<String, Object> values;
+
+    Layer(String source, Map<String, Object> values) {
+      this.source = source;
+      this.values = values;
+    }
+
+    @Override
+    public String toString() {
+      return source;
+    }
+  }
+
+  /**
+   * A directory of fragments loaded in file name order.
+   */
+  private final class Fragments {
+
+    private final File configDir;
+    private final Path directory;
+    /**
+     * The layer of the directory itself which precedes the layers of its fragments.
+     */
+    private final Layer marker;
+    private final TreeMap<String, Entry> entries = new TreeMap<>();
+    private @Nullable Mount mount;
+
+    Fragments(File configDir) {
+      this.configDir = configDir;
+      this.directory = configDir.toPath().toAbsolutePath().normalize();
+      this.marker = layer(InitialLoader.Source.FILE.key(configDir.getPath()));
+    }
+
+    @Override
+    public String toString() {
+      return directory.toString();
+    }
+
+    void init() {
+      mount = mount(directory);
+      for (String name : list()) {
+        entries.put(name, newEntry(name, true));
+      }
+    }
+
+    private Entry newEntry(String name, boolean baseline) {
+      final var path = directory.resolve(name);
+      return new Entry(path.toFile(), path, mount, fragmentLayer(name), baseline);
+    }
+
+    /**
+     * Return the layer of the fragment, a new fragment is placed after the closest earlier
+     * fragment in file name order (or directly after the directory).
+     */
+    private Layer fragmentLayer(String name) {
+      final var source = InitialLoader.Source.FILE.key(new File(configDir, name).getPath());
+      final var layer = layerBySource.get(source);
+      if (layer != null) {
+        return layer;
+      }
+      final var lower = entries.lowerEntry(name);
+      final var after = lower == null ? marker : lower.getValue().layer;
+      return addLayer(layers.indexOf(after) + 1, new Layer(source, Map.of()));
+    }
+
+    boolean supported(String name) {
+      return supportedFragment(name, parsers);
+    }
+
+    /**
+     * Return the names of the supported files in the directory in order.
+     */
+    private Set<String> list() {
+      Set<String> names = new TreeSet<>();
+      try (var paths = Files.list(directory)) {
+        paths.filter(Files::isRegularFile)
+          .map(path -> path.getFileName().toString())
+          .filter(this::supported)
+          .forEach(names::add);
+      } catch (IOException e) {
+        log.log(Level.ERROR, "Unexpected error listing config dir " + directory, e);
+        names.addAll(entries.keySet());
+      }
+      return names;
+    }
+
+    /**
+     * Apply the removed, added and changed fragments.
+     */
+    void check(CoreEventBuilder builder) {
+      final var names = list();
+      final var it = entries.entrySet().iterator();
+      while (it.hasNext()) {
+        final var entry = it.next();
+        if (!names.contains(entry.getKey())) {
+          log.log(Level.DEBUG, "removed configuration {0}", entry.getValue());
+          entry.getValue().apply(Map.of(), builder);
+          it.remove();
+        }
+      }
+      for (String name : names) {
+        entries.computeIfAbsent(name, n -> newEntry(n, false)).check(builder);
+      }
+    }
+  }
+
+  /**
+   * A ConfigMap volume where the files link via {@code ..data} to a timestamped directory.
+   */
+  private final class Mount {
+
+    static final String DATA = "..data";
+
+    private final Path dataLink;
+    private Path target;
+
+    Mount(Path directory) throws IOException {
+      this.dataLink = directory.resolve(DATA);
+      this.target = dataLink.toRealPath();
+    }
+
+    /**
+     * Resolve the current target of the ..data link.
+     */
+    void resolve() {
+      try {
+        final var current = dataLink.toRealPath();
+        if (!current.equals(target)) {
+          log.log(Level.DEBUG, "config map {0} swapped to {1}", dataLink, current);
+          target = current;
+        }
+      } catch (IOException e) {
+        // mid swap, keep the current target
+        log.log(Level.DEBUG, "Unable to resolve {0} - {1}", dataLink, e);
+      }
+    }
+
+    /**
+     * Return the path of the file in the current target directory.
+     */
+    Path path(Path file) {
+      final var path = target.resolve(file.getFileName());
+      return Files.exists(path) ? path : file;
+    }
+  }
+
+  private static byte[] hash(byte[] content) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(content);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
 }
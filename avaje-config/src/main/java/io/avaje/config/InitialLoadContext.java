@@ -24,8 +24,14 @@ final class InitialLoadContext {
    */
   private final Set<String> loadedResources = new LinkedHashSet<>();
   private final List<File> loadedFiles = new ArrayList<>();
+  private final List<File> configDirs = new ArrayList<>();
+  private final LoadOrder loadOrder = new LoadOrder();
   private final CoreExpressionEval exprEval;
   private final Set<String> loadCheck = new HashSet<>();
+  /**
+   * Documents activated by profile that are pending the profiles being loaded.
+   */
+  private final Map<ProfileDocuments.Document, ConfigParser.ListConsumer> profileDocuments = new LinkedHashMap<>();
   private int recursiveLoadCount;
 
   InitialLoadContext(ConfigurationLog log, ResourceLoader resourceLoader) {
@@ -42,6 +48,24 @@ final class InitialLoadContext {
     return loadedFiles;
   }
 
+  List<File> configDirs() {
+    return configDirs;
+  }
+
+  LoadOrder loadOrder() {
+    return loadOrder;
+  }
+
+  /**
+   * Register a directory of fragments that is loaded (prior to loading its fragments).
+   */
+  void loadedDir(File configDir) {
+    final var source = InitialLoader.Source.FILE.key(configDir.getPath());
+    loadedResources.add(source);
+    loadOrder.add(source);
+    configDirs.add(configDir);
+  }
+
   String eval(String expression) {
     return exprEval.eval(expression);
   }
@@ -60,11 +84,13 @@ final class InitialLoadContext {
     initSystemProperty(System.getenv("POD_IP"), "app.ipAddress");
     initSystemProperty(System.getenv("CONFIG_PROFILES"), "config.profiles");
     initSystemProperty(System.getenv("AVAJE_PROFILES"), "avaje.profiles");
+    initSystemProperty(System.getenv("CONFIG_DIR"), "config.dir");
   }
 
   private void initSystemProperty(String envValue, String key) {
     if (envValue != null && System.getProperty(key) == null) {
       map.put(key, envValue, Constants.ENV_VARIABLES);
+      loadOrder.put(Constants.ENV_VARIABLES, key, envValue);
     }
   }
 
@@ -98,6 +124,7 @@ final class InitialLoadContext {
           loadedResources.add(source.key(resourcePath));
           loadCheck.add(resourcePath);
           loadedFiles.add(file);
+          loadOrder.file(file, source.key(resourcePath));
         } catch (FileNotFoundException e) {
           throw new UncheckedIOException(e);
         }
@@ -124,10 +151,64 @@ final class InitialLoadContext {
   void put(String key, String val, String source) {
     if (val != null) {
       val = val.trim();
+      loadOrder.put(source, key, val);
     }
     map.put(key, DefaultValues.overrideValue(key, val, source));
   }
 
+  void put(String key, List<String> elements, String source) {
+    loadOrder.put(source, key, elements);
+    map.put(key, DefaultValues.overrideValue(key, elements, source));
+  }
+
+  /**
+   * Return a consumer of parsed key values (including list values) for the given source.
+   */
+  ConfigParser.ListConsumer consumer(String source) {
+    loadOrder.add(source);
+    return new ConfigParser.ListConsumer() {
+      @Override
+      public void accept(String key, String value) {
+        put(key, value, source);
+      }
+
+      @Override
+      public void acceptList(String key, List<String> elements) {
+        put(key, elements, source);
+      }
+    };
+  }
+
+  /**
+   * Return a consumer for the given source that holds back the documents activated by
+   * profile such that they are applied via {@link #applyProfileDocuments(String)}.
+   */
+  ProfileDocuments documentConsumer(String source) {
+    final var target = consumer(source);
+    return new ProfileDocuments(target, document -> profileDocuments.put(document, target));
+  }
+
+  /**
+   * Add a document activated by profile to be applied via {@link #applyProfileDocuments(String)}.
+   */
+  void addProfileDocument(ProfileDocuments.Document document, String source) {
+    profileDocuments.put(document, consumer(source));
+  }
+
+  /**
+   * Apply the pending documents that are activated by the given profile.
+   */
+  void applyProfileDocuments(String profile) {
+    final var active = Set.of(profile);
+    profileDocuments.entrySet().removeIf(entry -> {
+      if (entry.getKey().activeFor(active)) {
+        entry.getKey().applyTo(entry.getValue());
+        return true;
+      }
+      return false;
+    });
+  }
+
   /**
    * Evaluate all the expressions and return as a Properties object.
    */
@@ -151,6 +232,24 @@ final class InitialLoadContext {
     return indirectLocation == null ? null : indirectLocation.value();
   }
 
+  /**
+   * Return the directories of fragments to load (defined by <em>config.dir</em>).
+   */
+  String configDir() {
+    final var configDir = map.get("config.dir");
+    return configDir == null ? System.getProperty("config.dir") : configDir.value();
+  }
+
+  /**
+   * Return false when <em>config.profiles.loadFiles</em> turns off loading the
+   * application-{profile} resources and files.
+   */
+  boolean profileFiles() {
+    final var entry = map.get("config.profiles.loadFiles");
+    final var value = entry == null ? System.getProperty("config.profiles.loadFiles") : entry.value();
+    return value == null || Boolean.parseBoolean(value);
+  }
+
   String profiles() {
     final var configEntry = map.get("config.profiles");
     final var configProfile = configEntry == null ? System.getProperty("config.profiles") : configEntry.value();
@@ -5,6 +5,7 @@ import static io.avaje.config.InitialLoader.Source.RESOURCE;
 import static java.lang.System.Logger.Level.WARNING;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
@@ -43,8 +44,9 @@ final class InitialLoader {
 
   private final ConfigurationLog log;
   private final InitialLoadContext loadContext;
-  private final Set<String> profileResourceLoaded = new HashSet<>();
+  private final Set<String> profileResourceProbed = new HashSet<>();
   private final Parsers parsers;
+  private final PropertiesParser propertiesParser = new PropertiesParser();
 
   InitialLoader(CoreComponents components, ResourceLoader resourceLoader) {
     this.parsers = components.parsers();
@@ -96,7 +98,7 @@ final class InitialLoader {
 
   void initWatcher(CoreConfiguration configuration) {
     if (configuration.getBool("config.watch.enabled", false)) {
-      configuration.setWatcher(new FileWatch(configuration, loadContext.loadedFiles(), parsers));
+      configuration.setWatcher(new FileWatch(configuration, loadContext.loadedFiles(), loadContext.configDirs(), loadContext.loadOrder(), parsers));
     }
   }
 
@@ -117,12 +119,26 @@ final class InitialLoader {
     loadViaProfiles(FILE);
     loadViaSystemProperty();
     loadViaIndirection();
+    loadViaConfigDir();
     // test configuration (if found) overrides main configuration
     // we should only find these resources when running tests
     if (!loadTest()) {
       loadLocalDev();
     }
+    // documents activated by profile in files loaded after the profiles
+    applyProfileDocuments();
+    // command line files override all the other files
     loadViaCommandLineArgs();
+    applyProfileDocuments();
+  }
+
+  private void applyProfileDocuments() {
+    final var profiles = profiles();
+    if (profiles != null) {
+      for (final String path : profiles) {
+        loadContext.applyProfileDocuments(loadContext.eval(path));
+      }
+    }
   }
 
   private void loadViaCommandLineArgs() {
@@ -207,19 +223,97 @@ final class InitialLoader {
 
   /**
    * Load configuration defined by a <em>config.profiles</em> property.
+   * <p>
+   * For each profile this firstly applies the documents activated by that profile
+   * (via <em>config.activate.on-profile</em>) and then loads the profile specific
+   * <em>application-{profile}</em> resources or files. Resources only need to be
+   * probed once per profile.
+   * <p>
+   * The multi-document files are parsed once with their profile documents held until
+   * the profile is loaded. The <em>application-{profile}</em> probes (for each supported
+   * extension) remain by default for compatibility and are skipped with
+   * <em>config.profiles.loadFiles=false</em> where all the profile configuration is in
+   * profile documents.
    */
   private void loadViaProfiles(Source source) {
     final var profiles = profiles();
     if (profiles != null) {
+      final boolean loadFiles = loadContext.profileFiles();
       for (final String path : profiles) {
         final var profile = loadContext.eval(path);
-        if ((source != RESOURCE || !profileResourceLoaded.contains(profile)) && load("application-" + profile, source)) {
-          profileResourceLoaded.add(profile);
+        loadContext.applyProfileDocuments(profile);
+        if (loadFiles && (source != RESOURCE || profileResourceProbed.add(profile))) {
+          load("application-" + profile, source);
         }
       }
     }
   }
 
+  /**
+   * Load the fragments of the directories defined by a <em>config.dir</em> property.
+   * <p>
+   * All the supported files of the directory are loaded in file name order such that
+   * later fragments override earlier ones. The fragments are parsed sequentially as
+   * {@link ConfigParser} implementations are not required to be thread safe.
+   */
+  private void loadViaConfigDir() {
+    final String dirs = loadContext.configDir();
+    if (dirs != null) {
+      for (String rawPath : splitPaths(dirs)) {
+        loadConfigDir(InitialLoadContext.toFile(loadContext.eval(rawPath)));
+      }
+    }
+  }
+
+  private void loadConfigDir(File dir) {
+    final String[] names = dir.list((d, name) -> FileWatch.supportedFragment(name, parsers) && new File(d, name).isFile());
+    if (names == null) {
+      log.log(WARNING, "config.dir {0} is not a directory", dir);
+      return;
+    }
+    Arrays.sort(names);
+    loadContext.loadedDir(dir);
+    for (String name : names) {
+      final var fragment = parseFragment(new File(dir, name));
+      fragment.keyValues.applyTo(loadContext.consumer(fragment.source));
+      for (ProfileDocuments.Document document : fragment.documents) {
+        loadContext.addProfileDocument(document, fragment.source);
+      }
+    }
+  }
+
+  private Fragment parseFragment(File file) {
+    final var fragment = new Fragment(FILE.key(file.getPath()));
+    final var name = file.getName();
+    final var extension = name.substring(name.lastIndexOf('.') + 1);
+    try (InputStream is = new FileInputStream(file)) {
+      if ("properties".equals(extension)) {
+        propertiesParser.parse(is, fragment.keyValues);
+      } else {
+        final var consumer = new ProfileDocuments(fragment.keyValues, fragment.documents::add);
+        Objects.requireNonNull(parsers.get(extension)).parse(is, consumer);
+        consumer.endDocument();
+      }
+    } catch (Exception e) {
+      throw new IllegalStateException("Error loading properties - " + file, e);
+    }
+    return fragment;
+  }
+
+  /**
+   * The parsed content of a fragment.
+   */
+  private static final class Fragment {
+
+    private final String source;
+    private final KeyValues keyValues = new KeyValues();
+    private final List<ProfileDocuments.Document> documents = new ArrayList<>();
+
+    Fragment(String source) {
+      this.source = source;
+    }
+  }
+
   private void loadViaPaths(String paths) {
     for (String rawPath : splitPaths(paths)) {
       String path = loadContext.eval(rawPath);
@@ -272,8 +366,7 @@ final class InitialLoader {
     if ("properties".equals(extension)) {
       return loadProperties(fileName, RESOURCE) | loadProperties(fileName, FILE);
     } else {
-      var parser = parsers.get(extension);
-      if (parser == null) {
+      if (!parsers.supportsExtension(extension)) {
         throw new IllegalArgumentException(
           "Expecting only properties or "
             + parsers.supportedExtensions()
@@ -282,8 +375,8 @@ final class InitialLoader {
             + "]");
       }
 
-      return loadCustomExtension(fileName, parser, RESOURCE)
-        | loadCustomExtension(fileName, parser, FILE);
+      return loadCustomExtension(fileName, extension, RESOURCE)
+        | loadCustomExtension(fileName, extension, FILE);
     }
   }
 
@@ -302,20 +395,26 @@ final class InitialLoader {
   }
 
   private boolean loadCustom(String resourcePath, Source source) {
-    for (var entry : parsers.entrySet()) {
-      var extension = entry.getKey();
-      if (loadCustomExtension(resourcePath + "." + extension, entry.getValue(), source)) {
+    for (var extension : parsers.supportedExtensions()) {
+      if (loadCustomExtension(resourcePath + "." + extension, extension, source)) {
         return true;
       }
     }
     return false;
   }
 
-  boolean loadCustomExtension(String resourcePath, ConfigParser parser, Source source) {
+  /**
+   * Load the resource using the parser for the extension. The parser is only
+   * obtained (and instantiated if needed) when the resource exists.
+   */
+  boolean loadCustomExtension(String resourcePath, String extension, Source source) {
     try (InputStream is = resource(resourcePath, source)) {
       if (is != null) {
         var sourceName = source.key(resourcePath);
-        parser.load(is).forEach((k, v) -> loadContext.put(k, v, sourceName));
+        var parser = Objects.requireNonNull(parsers.get(extension));
+        var consumer = loadContext.documentConsumer(sourceName);
+        parser.parse(is, consumer);
+        consumer.endDocument();
         return true;
       }
     } catch (Exception e) {
@@ -341,19 +440,8 @@ final class InitialLoader {
     return loadContext.resource(resourcePath, source);
   }
 
-  private void loadProperties(InputStream is, String source) throws IOException {
-    Properties properties = new Properties();
-    properties.load(is);
-    put(properties, source);
-  }
-
-  private void put(Properties properties, String source) {
-    Enumeration<?> enumeration = properties.propertyNames();
-    while (enumeration.hasMoreElements()) {
-      String key = (String) enumeration.nextElement();
-      String val = properties.getProperty(key);
-      loadContext.put(key, val, source);
-    }
+  private void loadProperties(InputStream is, String source) {
+    propertiesParser.parse(is, loadContext.consumer(source));
   }
 
 }
@@ -0,0 +1,50 @@
+package io.avaje.config;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Collects the parsed key values of a file where each value is either a String
+ * or the List of elements of a list value.
+ */
+@NullMarked
+final class KeyValues implements ConfigParser.ListConsumer {
+
+  private final Map<String, Object> map = new LinkedHashMap<>();
+
+  @Override
+  public void accept(String key, String value) {
+    map.put(key, value);
+  }
+
+  @Override
+  public void acceptList(String key, List<String> elements) {
+    map.put(key, elements);
+  }
+
+  Map<String, Object> map() {
+    return map;
+  }
+
+  /**
+   * Push the key values to the given consumer.
+   */
+  void applyTo(ConfigParser.ListConsumer consumer) {
+    map.forEach((key, value) -> accept(consumer, key, value));
+  }
+
+  /**
+   * Push the key value (a String or List of elements) to the consumer.
+   */
+  @SuppressWarnings("unchecked")
+  static void accept(ConfigParser.ListConsumer consumer, String key, Object value) {
+    if (value instanceof List) {
+      consumer.acceptList(key, (List<String>) value);
+    } else {
+      consumer.accept(key, (String) value);
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package io.avaje.config;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Index of the indexed keys like {@code servers[0].host} that make up lists of objects.
+ * <p>
+ * This is maintained as keys are added and removed such that the elements of a list are
+ * obtained without scanning all the keys. A key contributes to a list for each {@code [n]}
+ * that is followed by a dot or the end of the key, so {@code a[0].b[1].c} contributes to
+ * both list {@code a} and list {@code a[0].b}.
+ */
+@NullMarked
+final class ListIndex {
+
+  /**
+   * List key to the keys of each element by index.
+   */
+  private final Map<String, NavigableMap<Integer, Set<String>>> lists = new HashMap<>();
+
+  ListIndex() {
+  }
+
+  ListIndex(ListIndex source) {
+    synchronized (source) {
+      source.lists.forEach((listKey, elements) -> {
+        NavigableMap<Integer, Set<String>> copy = new TreeMap<>();
+        elements.forEach((index, keys) -> copy.put(index, new HashSet<>(keys)));
+        lists.put(listKey, copy);
+      });
+    }
+  }
+
+  void addAll(ListIndex source) {
+    synchronized (source) {
+      source.lists.forEach((listKey, elements) -> elements.forEach((index, keys) -> keys.forEach(this::add)));
+    }
+  }
+
+  /**
+   * Add the key to the index (when it is an indexed key).
+   */
+  void add(String key) {
+    int bracket = key.indexOf('[');
+    if (bracket == -1) {
+      return;
+    }
+    synchronized (this) {
+      for (; bracket != -1; bracket = key.indexOf('[', bracket + 1)) {
+        int index = index(key, bracket);
+        if (index >= 0) {
+          lists.computeIfAbsent(key.substring(0, bracket), k -> new TreeMap<>())
+            .computeIfAbsent(index, i -> new HashSet<>())
+            .add(key);
+        }
+      }
+    }
+  }
+
+  /**
+   * Remove the key from the index (when it is an indexed key).
+   */
+  void remove(String key) {
+    int bracket = key.indexOf('[');
+    if (bracket == -1) {
+      return;
+    }
+    synchronized (this) {
+      for (; bracket != -1; bracket = key.indexOf('[', bracket + 1)) {
+        int index = index(key, bracket);
+        if (index >= 0) {
+          String listKey = key.substring(0, bracket);
+          var elements = lists.get(listKey);
+          if (elements != null) {
+            var keys = elements.get(index);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+              elements.remove(index);
+              if (elements.isEmpty()) {
+                lists.remove(listKey);
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Return the keys of each element of the list by index.
+   */
+  synchronized NavigableMap<Integer, List<String>> elements(String listKey) {
+    NavigableMap<Integer, List<String>> result = new TreeMap<>();
+    var elements = lists.get(listKey);
+    if (elements != null) {
+      elements.forEach((index, keys) -> result.put(index, new ArrayList<>(keys)));
+    }
+    return result;
+  }
+
+  /**
+   * Return the index for the {@code [n]} at the given position or -1 when it is not an index.
+   */
+  private static int index(String key, int bracket) {
+    int end = key.indexOf(']', bracket + 1);
+    if (end == -1 || end == bracket + 1 || end - bracket > 10) {
+      return -1;
+    }
+    if (end + 1 < key.length() && key.charAt(end + 1) != '.') {
+      return -1;
+    }
+    int index = 0;
+    for (int i = bracket + 1; i < end; i++) {
+      char ch = key.charAt(i);
+      if (ch < '0' || ch > '9') {
+        return -1;
+      }
+      index = index * 10 + (ch - '0');
+    }
+    return index;
+  }
+}
@@ -0,0 +1,58 @@
+package io.avaje.config;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * The sources of the initial load in load order with their raw key values.
+ * <p>
+ * Used by the file watch to resolve the precedence of a key against all the sources that
+ * were loaded, such that a key removed from a watched file reverts to the value of an
+ * earlier source and a change is not applied when a later source defines the key.
+ */
+@NullMarked
+final class LoadOrder {
+
+  private final Map<String, Map<String, Object>> sources = new LinkedHashMap<>();
+  private final Map<File, String> files = new HashMap<>();
+
+  /**
+   * Register the source adding it to the end of the load order if not already registered.
+   */
+  void add(String source) {
+    sources.computeIfAbsent(source, s -> new LinkedHashMap<>());
+  }
+
+  /**
+   * Record the raw value (a String or List of elements) of the key for the source.
+   */
+  void put(String source, String key, Object value) {
+    sources.computeIfAbsent(source, s -> new LinkedHashMap<>()).put(key, value);
+  }
+
+  /**
+   * Register the source name of a loaded file.
+   */
+  void file(File file, String source) {
+    files.put(file, source);
+  }
+
+  /**
+   * Return the source name of the loaded file.
+   */
+  String source(File file) {
+    final var source = files.get(file);
+    return source != null ? source : InitialLoader.Source.FILE.key(file.getPath());
+  }
+
+  /**
+   * Return the key values by source in load order.
+   */
+  Map<String, Map<String, Object>> sources() {
+    return sources;
+  }
+}
@@ -75,5 +75,16 @@ public interface ModificationEvent {
      */
     void publish();
 
+    /**
+     * Publish the changes running the given action once they have been applied.
+     * <p>
+     * The changes of a source that is loaded concurrently (at startup or via
+     * {@link Configuration#reloadSources()}) are applied later in the order of the sources,
+     * with the action run at that point. Otherwise, the action is run before this returns.
+     */
+    default void publish(Runnable onApplied) {
+      publish();
+      onApplied.run();
+    }
   }
 }
@@ -4,16 +4,24 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
+
+import org.jspecify.annotations.Nullable;
 
 /**
  * Holds the non-properties ConfigParsers.
+ * <p>
+ * The built-in properties and yaml parsers are registered by extension but only
+ * instantiated when first used such that for example SnakeYAML classes are not
+ * loaded unless a yaml file is actually found. Custom parsers are instantiated
+ * when registered as their extensions are only known via an instance.
  */
 final class Parsers {
 
-  private final Map<String, ConfigParser> parserMap = new HashMap<>();
+  private final Map<String, Supplier<ConfigParser>> parserMap = new HashMap<>();
 
-  Parsers(List<ConfigParser> otherParsers) {
-    parserMap.put("properties", new PropertiesParser());
+  Parsers(List<Supplier<ConfigParser>> otherParsers) {
+    parserMap.put("properties", new LazyParser(PropertiesParser::new));
     if (!"true".equals(System.getProperty("skipYaml"))) {
       initYamlParser();
     }
@@ -23,45 +31,45 @@ final class Parsers {
   }
 
   private void initYamlParser() {
-    var modules = ModuleLayer.boot();
-    YamlLoader yamlLoader =
-        modules
-            .findModule("io.avaje.config")
-            .filter(m -> modules.findModule("org.yaml.snakeyaml").isPresent())
-            .map(m -> (YamlLoader) new YamlLoaderSnake())
-            .orElseGet(
-                () -> {
-                  try {
-                    return new YamlLoaderSnake();
-                  } catch (Throwable e) {
-                    return new YamlLoaderSimple();
-                  }
-                });
+    var yamlParser = new LazyParser(Parsers::yamlLoader);
+    parserMap.put("yml", yamlParser);
+    parserMap.put("yaml", yamlParser);
+  }
 
-    parserMap.put("yml", yamlLoader);
-    parserMap.put("yaml", yamlLoader);
+  private static YamlLoader yamlLoader() {
+    var modules = ModuleLayer.boot();
+    return modules
+      .findModule("io.avaje.config")
+      .filter(m -> modules.findModule("org.yaml.snakeyaml").isPresent())
+      .map(m -> (YamlLoader) new YamlLoaderSnake())
+      .orElseGet(
+        () -> {
+          try {
+            return new YamlLoaderSnake();
+          } catch (Throwable e) {
+            return new YamlLoaderSimple();
+          }
+        });
   }
 
-  private void initParsers(List<ConfigParser> otherParsers) {
-    for (ConfigParser parser : otherParsers) {
+  private void initParsers(List<Supplier<ConfigParser>> otherParsers) {
+    for (Supplier<ConfigParser> supplier : otherParsers) {
+      // the extensions are only known via an instance so no benefit in being lazy
+      var parser = supplier.get();
+      Supplier<ConfigParser> instance = () -> parser;
       for (var ext : parser.supportedExtensions()) {
-        parserMap.put(ext, parser);
+        parserMap.put(ext, instance);
       }
     }
   }
 
   /**
-   * Return the extension ConfigParser pairs.
-   */
-  Set<Map.Entry<String, ConfigParser>> entrySet() {
-    return parserMap.entrySet();
-  }
-
-  /**
-   * Return the ConfigParser for the given extension.
+   * Return the ConfigParser for the given extension (creating it if needed).
    */
+  @Nullable
   ConfigParser get(String extension) {
-    return parserMap.get(extension.toLowerCase());
+    var parser = parserMap.get(extension.toLowerCase());
+    return parser == null ? null : parser.get();
   }
 
   /**
@@ -77,4 +85,32 @@ final class Parsers {
   Set<String> supportedExtensions() {
     return parserMap.keySet();
   }
+
+  /**
+   * Parser that is created on first use.
+   */
+  private static final class LazyParser implements Supplier<ConfigParser> {
+
+    private final Supplier<? extends ConfigParser> supplier;
+    private volatile @Nullable ConfigParser parser;
+
+    LazyParser(Supplier<? extends ConfigParser> supplier) {
+      this.supplier = supplier;
+    }
+
+    @Override
+    public ConfigParser get() {
+      ConfigParser result = parser;
+      if (result == null) {
+        synchronized (this) {
+          result = parser;
+          if (result == null) {
+            result = supplier.get();
+            parser = result;
+          }
+        }
+      }
+      return result;
+    }
+  }
 }
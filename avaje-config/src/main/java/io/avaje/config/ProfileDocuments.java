@@ -0,0 +1,139 @@
+package io.avaje.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Consumer that splits parsed content into documents activated by profile.
+ * <p>
+ * A document with a {@code config.activate.on-profile} entry is passed to the
+ * profileDocument consumer rather than applied, for example:
+ *
+ * <pre>{@code
+ *   myapp.url: http://localhost
+ *   ---
+ *   config.activate.on-profile: dev,local
+ *   myapp.url: http://dev
+ * }</pre>
+ * <p>
+ * Entries of a document are buffered until the end of the document as the activation
+ * entry can be anywhere in the document.
+ */
+@NullMarked
+final class ProfileDocuments implements ConfigParser.ListConsumer {
+
+  static final String ACTIVATE_ON_PROFILE = "config.activate.on-profile";
+
+  private static final Pattern SPLIT = Pattern.compile("[\\s,;]+");
+
+  private final ConfigParser.ListConsumer target;
+  private final Consumer<Document> profileDocument;
+  private final List<String> keys = new ArrayList<>();
+  private final List<Object> values = new ArrayList<>();
+  private @Nullable String activateOn;
+
+  /**
+   * Create with the target for documents without an activation entry and the
+   * consumer of the documents that have an activation entry.
+   */
+  ProfileDocuments(ConfigParser.ListConsumer target, Consumer<Document> profileDocument) {
+    this.target = target;
+    this.profileDocument = profileDocument;
+  }
+
+  /**
+   * Return profiles split from the given comma, semicolon or whitespace delimited value
+   * in declared order with duplicates removed.
+   */
+  static Set<String> profiles(@Nullable String value) {
+    if (value == null || value.isBlank()) {
+      return Set.of();
+    }
+    return new LinkedHashSet<>(Arrays.asList(SPLIT.split(value.trim())));
+  }
+
+  @Override
+  public void accept(String key, String value) {
+    if (ACTIVATE_ON_PROFILE.equals(key)) {
+      activateOn = value;
+    } else {
+      keys.add(key);
+      values.add(value);
+    }
+  }
+
+  @Override
+  public void acceptList(String key, List<String> elements) {
+    if (ACTIVATE_ON_PROFILE.equals(key)) {
+      activateOn = String.join(",", elements);
+    } else {
+      keys.add(key);
+      values.add(elements);
+    }
+  }
+
+  @Override
+  public void endDocument() {
+    if (activateOn == null) {
+      apply(keys, values, target);
+    } else {
+      profileDocument.accept(new Document(profiles(activateOn), new ArrayList<>(keys), new ArrayList<>(values)));
+    }
+    keys.clear();
+    values.clear();
+    activateOn = null;
+  }
+
+  /**
+   * The entries of a document with the profiles it is activated on.
+   */
+  static final class Document {
+
+    private final Set<String> profiles;
+    private final List<String> keys;
+    private final List<Object> values;
+
+    Document(Set<String> profiles, List<String> keys, List<Object> values) {
+      this.profiles = profiles;
+      this.keys = keys;
+      this.values = values;
+    }
+
+    /**
+     * Return true if the document is activated by any of the given profiles.
+     */
+    boolean activeFor(Collection<String> activeProfiles) {
+      for (String profile : activeProfiles) {
+        if (profiles.contains(profile)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    void applyTo(ConfigParser.ListConsumer consumer) {
+      apply(keys, values, consumer);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void apply(List<String> keys, List<Object> values, ConfigParser.ListConsumer consumer) {
+    for (int i = 0; i < keys.size(); i++) {
+      Object value = values.get(i);
+      if (value instanceof List) {
+        consumer.acceptList(keys.get(i), (List<String>) value);
+      } else {
+        consumer.accept(keys.get(i), (String) value);
+      }
+    }
+  }
+}
@@ -1,16 +1,28 @@
 package io.avaje.config;
 
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Properties;
-import java.util.Set;
+import java.util.function.BiConsumer;
 
 import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
 
+/**
+ * Parser for the properties format as per {@link java.util.Properties#load(Reader)}.
+ * <p>
+ * This does not use java.util.Properties (a synchronised Hashtable) but instead scans
+ * the content pushing each key value pair to the consumer. Local files are read via
+ * their FileChannel. As per {@link java.util.Properties#load(InputStream)} byte content
+ * is read as ISO 8859-1 (using unicode escapes for other characters).
+ */
 @NullMarked
 final class PropertiesParser implements ConfigParser {
 
@@ -23,35 +35,261 @@ final class PropertiesParser implements ConfigParser {
 
   @Override
   public Map<String, String> load(Reader reader) {
+    Map<String, String> result = new LinkedHashMap<>();
+    parse(reader, result::put);
+    return result;
+  }
+
+  @Override
+  public Map<String, String> load(InputStream is) {
+    Map<String, String> result = new LinkedHashMap<>();
+    parse(is, result::put);
+    return result;
+  }
+
+  @Override
+  public void parse(Reader reader, BiConsumer<String, String> consumer) {
     try {
-      Properties p = new Properties();
-      p.load(reader);
-      return toMap(p);
+      char[] buf = new char[4096];
+      int length = 0;
+      int count;
+      while ((count = reader.read(buf, length, buf.length - length)) != -1) {
+        length += count;
+        if (length == buf.length) {
+          buf = Arrays.copyOf(buf, buf.length * 2);
+        }
+      }
+      new Scanner(buf, null, length, consumer).parse();
     } catch (IOException e) {
       throw new UncheckedIOException(e);
     }
   }
 
   @Override
-  public Map<String, String> load(InputStream is) {
+  public void parse(InputStream is, BiConsumer<String, String> consumer) {
     try {
-      Properties p = new Properties();
-      p.load(is);
-      return toMap(p);
+      ByteBuffer buffer = is instanceof FileInputStream
+        ? read(((FileInputStream) is).getChannel())
+        : ByteBuffer.wrap(is.readAllBytes());
+      new Scanner(null, buffer.array(), buffer.limit(), consumer).parse();
     } catch (IOException e) {
       throw new UncheckedIOException(e);
     }
   }
 
-  private static Map<String, String> toMap(Properties p) {
-    Map<String, String> result = new LinkedHashMap<>();
-    Set<Map.Entry<Object, Object>> entries = p.entrySet();
-    for (Map.Entry<Object, Object> entry : entries) {
-      Object value = entry.getValue();
-      if (value != null) {
-        result.put(entry.getKey().toString(), entry.getValue().toString());
+  private static ByteBuffer read(FileChannel channel) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(channel.size() - channel.position(), 0));
+    while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+      // read fully
+    }
+    return buffer.flip();
+  }
+
+  /**
+   * Scans properties content from either chars or ISO 8859-1 bytes.
+   */
+  private static final class Scanner {
+
+    private final char @Nullable [] chars;
+    private final byte @Nullable [] bytes;
+    private final int limit;
+    private final BiConsumer<String, String> consumer;
+    /**
+     * The current logical line with continuations joined.
+     */
+    private char[] line = new char[256];
+    private char[] convertBuf = new char[256];
+    private int pos;
+
+    Scanner(char @Nullable [] chars, byte @Nullable [] bytes, int limit, BiConsumer<String, String> consumer) {
+      this.chars = chars;
+      this.bytes = bytes;
+      this.limit = limit;
+      this.consumer = consumer;
+    }
+
+    private char ch(int index) {
+      return chars != null ? chars[index] : (char) (bytes[index] & 0xFF);
+    }
+
+    void parse() {
+      int length;
+      while ((length = readLine()) >= 0) {
+        keyValue(length);
       }
     }
-    return result;
+
+    /**
+     * Read the next logical line into the line buffer returning the length or -1 when
+     * there are no more lines. Comments, blank lines, line continuations and leading
+     * whitespace are processed but escapes are retained.
+     */
+    private int readLine() {
+      int length = 0;
+      boolean skipWhiteSpace = true;
+      boolean appendedLineBegin = false;
+      boolean precedingBackslash = false;
+      while (pos < limit) {
+        char c = ch(pos++);
+        if (skipWhiteSpace) {
+          if (c == ' ' || c == '\t' || c == '\f') {
+            continue;
+          }
+          if (!appendedLineBegin && (c == '\r' || c == '\n')) {
+            continue;
+          }
+          skipWhiteSpace = false;
+          appendedLineBegin = false;
+        }
+        if (length == 0 && (c == '#' || c == '!')) {
+          // still on a new logical line
+          skipComment();
+          skipWhiteSpace = true;
+          continue;
+        }
+        if (c != '\n' && c != '\r') {
+          if (length == line.length) {
+            line = Arrays.copyOf(line, length * 2);
+          }
+          line[length++] = c;
+          precedingBackslash = c == '\\' && !precedingBackslash;
+        } else if (length == 0) {
+          // empty line
+          skipWhiteSpace = true;
+        } else {
+          if (pos >= limit) {
+            return precedingBackslash ? length - 1 : length;
+          }
+          if (c == '\r' && ch(pos) == '\n') {
+            pos++;
+          }
+          if (!precedingBackslash) {
+            return length;
+          }
+          // line continuation
+          length--;
+          skipWhiteSpace = true;
+          appendedLineBegin = true;
+          precedingBackslash = false;
+        }
+      }
+      if (length == 0) {
+        return -1;
+      }
+      return precedingBackslash ? length - 1 : length;
+    }
+
+    private void skipComment() {
+      while (pos < limit) {
+        char c = ch(pos);
+        if (c == '\n' || c == '\r') {
+          return;
+        }
+        pos++;
+      }
+    }
+
+    /**
+     * Split the logical line into key and value.
+     */
+    private void keyValue(int length) {
+      int keyLength = 0;
+      int valueStart = length;
+      boolean hasSeparator = false;
+      boolean precedingBackslash = false;
+      while (keyLength < length) {
+        char c = line[keyLength];
+        if ((c == '=' || c == ':') && !precedingBackslash) {
+          valueStart = keyLength + 1;
+          hasSeparator = true;
+          break;
+        } else if ((c == ' ' || c == '\t' || c == '\f') && !precedingBackslash) {
+          valueStart = keyLength + 1;
+          break;
+        }
+        precedingBackslash = c == '\\' && !precedingBackslash;
+        keyLength++;
+      }
+      while (valueStart < length) {
+        char c = line[valueStart];
+        if (c != ' ' && c != '\t' && c != '\f') {
+          if (!hasSeparator && (c == '=' || c == ':')) {
+            hasSeparator = true;
+          } else {
+            break;
+          }
+        }
+        valueStart++;
+      }
+      String key = convert(0, keyLength);
+      String value = convert(valueStart, length);
+      consumer.accept(key, value);
+    }
+
+    /**
+     * Return the string for the given range of the line processing escapes.
+     */
+    private String convert(int start, int end) {
+      int backslash = -1;
+      for (int i = start; i < end; i++) {
+        if (line[i] == '\\') {
+          backslash = i;
+          break;
+        }
+      }
+      if (backslash == -1) {
+        return new String(line, start, end - start);
+      }
+      if (convertBuf.length < end - start) {
+        convertBuf = new char[end - start];
+      }
+      int length = backslash - start;
+      System.arraycopy(line, start, convertBuf, 0, length);
+      int i = backslash;
+      while (i < end) {
+        char c = line[i++];
+        if (c == '\\' && i < end) {
+          c = line[i++];
+          if (c == 'u') {
+            if (i > end - 4) {
+              throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+            }
+            int value = 0;
+            for (int j = 0; j < 4; j++) {
+              int digit = hexDigit(line[i++]);
+              if (digit == -1) {
+                throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+              }
+              value = (value << 4) | digit;
+            }
+            c = (char) value;
+          } else if (c == 't') {
+            c = '\t';
+          } else if (c == 'r') {
+            c = '\r';
+          } else if (c == 'n') {
+            c = '\n';
+          } else if (c == 'f') {
+            c = '\f';
+          }
+        } else if (c == '\\') {
+          // trailing backslash is dropped
+          continue;
+        }
+        convertBuf[length++] = c;
+      }
+      return new String(convertBuf, 0, length);
+    }
+
+    private static int hexDigit(char c) {
+      if (c >= '0' && c <= '9') {
+        return c - '0';
+      } else if (c >= 'a' && c <= 'f') {
+        return c - 'a' + 10;
+      } else if (c >= 'A' && c <= 'F') {
+        return c - 'A' + 10;
+      }
+      return -1;
+    }
   }
 }
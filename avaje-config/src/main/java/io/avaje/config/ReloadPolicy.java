@@ -0,0 +1,156 @@
+package io.avaje.config;
+
+import static java.lang.System.Logger.Level.ERROR;
+import static java.lang.System.Logger.Level.TRACE;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Controls the explicit reload of the configuration sources via {@link Configuration#reloadSources()}.
+ * <ul>
+ *   <li>Single flight - a reload requested while a reload is in progress waits for that reload
+ *   rather than starting another</li>
+ *   <li>Minimum interval - a reload requested within {@code config.reload.minIntervalMillis}
+ *   (default 1000) of the previous reload is skipped, with a random jitter of up to
+ *   {@code config.schedule.jitterPercent} of the interval added</li>
+ *   <li>Independent sources are reloaded concurrently, other sources sequentially in order</li>
+ *   <li>The raw puts and removes of all the sources are replayed in source order and compared
+ *   once with the current configuration, then published as one modification event. The result
+ *   is the same as reloading the sources sequentially</li>
+ * </ul>
+ * As the changes are published at the end of the reload, a source sees the configuration
+ * as it was at the start of the reload.
+ */
+@NullMarked
+final class ReloadPolicy {
+
+  private final CoreConfiguration configuration;
+  private final CoreScheduler scheduler;
+  private final ConfigurationLog log;
+  private final long minIntervalNanos;
+  private @Nullable CompletableFuture<Void> inFlight;
+  private long nextAllowed;
+  private boolean reloaded;
+
+  ReloadPolicy(CoreConfiguration configuration, CoreScheduler scheduler, long minIntervalMillis) {
+    this.configuration = configuration;
+    this.scheduler = scheduler;
+    this.log = configuration.log();
+    this.minIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, minIntervalMillis));
+  }
+
+  /**
+   * Reload the sources subject to single flight and the minimum interval.
+   */
+  void reload(List<StartupLoader.Step> steps) {
+    final CompletableFuture<Void> cycle;
+    synchronized (this) {
+      if (inFlight != null) {
+        cycle = inFlight;
+      } else if (reloaded && System.nanoTime() - nextAllowed < 0) {
+        log.log(TRACE, "reloadSources skipped, within the minimum interval");
+        return;
+      } else {
+        inFlight = new CompletableFuture<>();
+        cycle = null;
+      }
+    }
+    if (cycle != null) {
+      // join the reload in progress
+      cycle.join();
+      return;
+    }
+    final long started = System.nanoTime();
+    try {
+      run(steps);
+    } finally {
+      final CompletableFuture<Void> completed;
+      synchronized (this) {
+        completed = inFlight;
+        inFlight = null;
+        reloaded = true;
+        nextAllowed = started + scheduler.jitter(minIntervalNanos);
+      }
+      if (completed != null) {
+        completed.complete(null);
+      }
+    }
+  }
+
+  private void run(List<StartupLoader.Step> steps) {
+    final int size = steps.size();
+    final List<List<CoreEventBuilder>> events = new ArrayList<>(size);
+    final var done = new CountDownLatch(size);
+    for (StartupLoader.Step step : steps) {
+      final List<CoreEventBuilder> stepEvents = new ArrayList<>();
+      events.add(stepEvents);
+      if (step.independent()) {
+        try {
+          scheduler.execute(() -> runStep(step, stepEvents, done));
+        } catch (RejectedExecutionException e) {
+          runStep(step, stepEvents, done);
+        }
+      }
+    }
+    for (int i = 0; i < size; i++) {
+      final var step = steps.get(i);
+      if (!step.independent()) {
+        runStep(step, events.get(i), done);
+      }
+    }
+    try {
+      done.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    }
+    publish(events);
+  }
+
+  private void runStep(StartupLoader.Step step, List<CoreEventBuilder> events, CountDownLatch done) {
+    try {
+      configuration.staged(events, step::run);
+    } catch (Exception e) {
+      log.log(ERROR, "Error reloading ConfigurationSource " + step, e);
+    } finally {
+      done.countDown();
+    }
+  }
+
+  /**
+   * Replay the staged puts and removes of all the sources (in source order) into one builder
+   * such that they are compared once with the current configuration and published as a
+   * single event.
+   */
+  private void publish(List<List<CoreEventBuilder>> events) {
+    final Set<String> names = new LinkedHashSet<>();
+    final List<CoreEventBuilder> staged = new ArrayList<>();
+    for (List<CoreEventBuilder> stepEvents : events) {
+      for (CoreEventBuilder event : stepEvents) {
+        if (event.hasChanges()) {
+          names.add(event.name());
+        }
+        // replayed without changes to run any actions waiting on it being applied
+        staged.add(event);
+      }
+    }
+    if (staged.isEmpty()) {
+      return;
+    }
+    final var combined = configuration.eventBuilder(String.join(",", names));
+    for (CoreEventBuilder event : staged) {
+      combined.replay(event);
+    }
+    combined.publish();
+  }
+}
@@ -0,0 +1,202 @@
+package io.avaje.config;
+
+import static java.lang.System.Logger.Level.ERROR;
+import static java.lang.System.Logger.Level.WARNING;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Runs the startup steps of loading ConfigurationSources and applying ConfigurationPlugins.
+ * <p>
+ * Independent steps are started concurrently and the changes they publish are staged.
+ * Staged changes are recorded raw and applied (evaluated and compared with the current
+ * configuration) in the declared order of the steps such that the resulting configuration
+ * is the same as loading the steps sequentially. Dependent steps run sequentially in that same order.
+ * <p>
+ * An independent step that does not complete within its deadline is left to complete
+ * in the background with its changes published as a modification event when it does.
+ */
+@NullMarked
+final class StartupLoader {
+
+  private final CoreConfiguration configuration;
+  private final ConfigurationLog log;
+  private final String kind;
+  private @Nullable ExecutorService executor;
+
+  StartupLoader(CoreConfiguration configuration, String kind) {
+    this.configuration = configuration;
+    this.log = configuration.log();
+    this.kind = kind;
+  }
+
+  /**
+   * Run all the steps returning when all the steps have been applied or timed out.
+   */
+  void run(List<Step> steps) {
+    List<@Nullable Staged> started = new ArrayList<>(steps.size());
+    for (Step step : steps) {
+      started.add(step.independent ? start(step) : null);
+    }
+    try {
+      for (int i = 0; i < steps.size(); i++) {
+        Staged staged = started.get(i);
+        if (staged == null) {
+          steps.get(i).action.run();
+        } else {
+          staged.await();
+        }
+      }
+    } finally {
+      if (executor != null) {
+        // allow late steps to complete in the background
+        executor.shutdown();
+      }
+    }
+  }
+
+  private Staged start(Step step) {
+    if (executor == null) {
+      executor = Executors.newCachedThreadPool(new DaemonThreadFactory());
+    }
+    var staged = new Staged(step);
+    executor.execute(staged);
+    return staged;
+  }
+
+  /**
+   * A named startup step.
+   */
+  static final class Step {
+
+    private final String name;
+    private final boolean independent;
+    private final long timeoutMillis;
+    private final Runnable action;
+
+    Step(String name, boolean independent, long timeoutMillis, Runnable action) {
+      this.name = name;
+      this.independent = independent;
+      this.timeoutMillis = timeoutMillis;
+      this.action = action;
+    }
+
+    String name() {
+      return name;
+    }
+
+    boolean independent() {
+      return independent;
+    }
+
+    void run() {
+      action.run();
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  /**
+   * An independent step running concurrently with its changes staged.
+   */
+  private final class Staged implements Runnable {
+
+    private final Step step;
+    private final List<CoreEventBuilder> events = new ArrayList<>();
+    private final CountDownLatch done = new CountDownLatch(1);
+    private @Nullable Throwable error;
+    private boolean late;
+
+    Staged(Step step) {
+      this.step = step;
+    }
+
+    @Override
+    public void run() {
+      try {
+        configuration.staged(events, step.action);
+      } catch (Throwable e) {
+        error = e;
+      }
+      synchronized (this) {
+        done.countDown();
+        if (late) {
+          publishLate();
+        }
+      }
+    }
+
+    /**
+     * Wait for the step to complete (or timeout) and apply the staged changes.
+     */
+    void await() {
+      boolean completed = awaitCompletion();
+      synchronized (this) {
+        if (completed || done.getCount() == 0) {
+          apply();
+        } else {
+          late = true;
+          log.log(WARNING, "{0} {1} did not complete within {2}ms, continuing without it. Changes are applied when it completes",
+            kind, step, step.timeoutMillis);
+        }
+      }
+    }
+
+    private boolean awaitCompletion() {
+      try {
+        if (step.timeoutMillis <= 0) {
+          done.await();
+          return true;
+        }
+        return done.await(step.timeoutMillis, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+
+    private void apply() {
+      if (error instanceof RuntimeException) {
+        throw (RuntimeException) error;
+      } else if (error instanceof Error) {
+        throw (Error) error;
+      } else if (error != null) {
+        throw new IllegalStateException("Error loading " + kind + " " + step, error);
+      }
+      events.forEach(configuration::publishEvent);
+    }
+
+    private void publishLate() {
+      if (error != null) {
+        log.log(ERROR, "Error loading " + kind + " " + step, error);
+      } else {
+        events.forEach(configuration::publishEvent);
+      }
+    }
+  }
+
+  private static final class DaemonThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "config-startup-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
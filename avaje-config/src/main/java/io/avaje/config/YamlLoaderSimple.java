@@ -1,37 +1,54 @@
 package io.avaje.config;
 
-import static java.util.stream.Collectors.joining;
-
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.LineNumberReader;
 import java.io.Reader;
 import java.io.UncheckedIOException;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Deque;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 import org.jspecify.annotations.NullMarked;
 
 /**
  * Simple YAML parser for loading yaml based config.
+ * <p>
+ * Scans the content as a char buffer with lines tracked as offsets into that
+ * buffer (no String per line) and with the full key prefix maintained
+ * incrementally as keys are pushed and popped.
  */
 @NullMarked
 final class YamlLoaderSimple implements YamlLoader {
 
   @Override
   public Map<String, String> load(Reader reader) {
-    return new Load().load(reader);
+    Map<String, String> keyValues = new LinkedHashMap<>();
+    parse(reader, keyValues::put);
+    return keyValues;
   }
 
   @Override
   public Map<String, String> load(InputStream is) {
-    return new Load().load(is);
+    Map<String, String> keyValues = new LinkedHashMap<>();
+    parse(is, keyValues::put);
+    return keyValues;
+  }
+
+  @Override
+  public void parse(Reader reader, BiConsumer<String, String> consumer) {
+    new Load(consumer).load(reader);
+  }
+
+  @Override
+  public void parse(InputStream is, BiConsumer<String, String> consumer) {
+    new Load(consumer).load(new InputStreamReader(is));
   }
 
   private static class Load {
@@ -50,10 +67,20 @@ final class YamlLoaderSimple implements YamlLoader {
       RequireTopKey
     }
 
-    private final Map<String, String> keyValues = new LinkedHashMap<>();
+    private final BiConsumer<String, String> keyValues;
     private final Deque<Key> keyStack = new ArrayDeque<>();
-    private final List<String> multiLines = new ArrayList<>();
-    private final Map<String, Integer> listCounters = new LinkedHashMap<>();
+    private final Map<String, Integer> listCounters = new HashMap<>();
+    /**
+     * The full key of the current keyStack.
+     */
+    private final StringBuilder fullKey = new StringBuilder(64);
+
+    private char[] buf = new char[0];
+    /**
+     * Start and end offsets of the lines of the current multiLine or list value.
+     */
+    private int[] multiLines = new int[32];
+    private int multiLineCount;
 
     private State state = State.RequireKey;
     private MultiLineTrim multiLineTrim = MultiLineTrim.Clip;
@@ -61,36 +88,56 @@ final class YamlLoaderSimple implements YamlLoader {
     private int currentIndent;
     private int multiLineIndent;
 
-    private Map<String, String> load(InputStream is) {
-      return load(new InputStreamReader(is));
+    Load(BiConsumer<String, String> keyValues) {
+      this.keyValues = keyValues;
     }
 
-    private Map<String, String> load(Reader reader) {
-      try (LineNumberReader lineReader = new LineNumberReader(reader)) {
-        String line;
-        do {
-          line = lineReader.readLine();
-          processLine(line);
-        } while (line != null);
-
-        return keyValues;
+    private void load(Reader reader) {
+      try (reader) {
+        final int length = read(reader);
+        int pos = 0;
+        while (pos < length) {
+          int end = pos;
+          while (end < length && buf[end] != '\n' && buf[end] != '\r') {
+            end++;
+          }
+          processLine(pos, end);
+          pos = end + 1;
+          if (end < length && buf[end] == '\r' && pos < length && buf[pos] == '\n') {
+            pos++;
+          }
+        }
+        checkFinalMultiLine();
+        ConfigParser.endDocument(keyValues);
       } catch (IOException e) {
         throw new UncheckedIOException(e);
       }
     }
 
-    private void processLine(String line) {
-      if (line == null) {
-        checkFinalMultiLine();
-      } else {
-        currentLine++;
-        readIndent(line);
-        if (state == State.MultiLine || state == State.List) {
-          processMultiLine(line);
-        } else {
-          processNext(line);
+    /**
+     * Read all the content into the char buffer returning the length.
+     */
+    private int read(Reader reader) throws IOException {
+      buf = new char[8192];
+      int length = 0;
+      int count;
+      while ((count = reader.read(buf, length, buf.length - length)) != -1) {
+        length += count;
+        if (length == buf.length) {
+          buf = Arrays.copyOf(buf, buf.length * 2);
         }
       }
+      return length;
+    }
+
+    private void processLine(int start, int end) {
+      currentLine++;
+      currentIndent = indent(start, end);
+      if (state == State.MultiLine || state == State.List) {
+        processMultiLine(start, end);
+      } else {
+        processNext(start, end);
+      }
     }
 
     private void checkFinalMultiLine() {
@@ -98,68 +145,92 @@ final class YamlLoaderSimple implements YamlLoader {
         addKeyVal(multiLineValue());
       }
       if (state == State.List) {
-        addKeyVal(listValue());
+        addListValue();
       }
     }
 
-    private void processMultiLine(String line) {
+    private void processMultiLine(int start, int end) {
       if (multiLineIndent == 0) {
-        if (currentIndent == 0 && !line.trim().isEmpty()) {
-          multiLineEnd(line);
+        if (currentIndent == 0 && !isBlank(start, end)) {
+          multiLineEnd(start, end);
           return;
         }
         // first multiLine
         multiLineIndent = currentIndent;
-        multiLines.add(line);
-      } else if (currentIndent >= multiLineIndent || line.trim().isEmpty()) {
-        multiLines.add(line);
+        addMultiLine(start, end);
+      } else if (currentIndent >= multiLineIndent || isBlank(start, end)) {
+        addMultiLine(start, end);
       } else {
         // end of multiLine
-        multiLineEnd(line);
+        multiLineEnd(start, end);
+      }
+    }
+
+    private void addMultiLine(int start, int end) {
+      if (multiLineCount * 2 == multiLines.length) {
+        multiLines = Arrays.copyOf(multiLines, multiLines.length * 2);
       }
+      multiLines[multiLineCount * 2] = start;
+      multiLines[multiLineCount * 2 + 1] = end;
+      multiLineCount++;
     }
 
-    private void multiLineEnd(String line) {
+    private void multiLineEnd(int start, int end) {
       if (state == State.MultiLine) {
         addKeyVal(multiLineValue());
       } else {
-        addKeyVal(listValue());
+        addListValue();
       }
-      processNext(line);
+      processNext(start, end);
     }
 
-    private String listValue() {
-      if (multiLines.isEmpty()) {
-        return "";
+    private void addListValue() {
+      if (multiLineCount == 0) {
+        addKeyVal("");
+        return;
       }
       multiLineTrimTrailing();
-      var result =
-          multiLines.stream().map(s -> s.trim().substring(1).stripLeading()).collect(joining(","));
+      List<String> elements = new ArrayList<>(multiLineCount);
+      for (int i = 0; i < multiLineCount; i++) {
+        int start = trimStart(multiLines[i * 2], multiLines[i * 2 + 1]);
+        int end = trimEnd(start, multiLines[i * 2 + 1]);
+        if (start == end) {
+          // blank line between list items
+          continue;
+        }
+        // skip the '-' and leading whitespace
+        start++;
+        while (start < end && Character.isWhitespace(buf[start])) {
+          start++;
+        }
+        elements.add(new String(buf, start, end - start));
+      }
       multiLineEnd();
-      return result;
+      ConfigParser.acceptList(keyValues, fullKey.toString(), elements);
+      popKey();
+      state = State.RequireKey;
     }
 
     private String multiLineValue() {
-      if (multiLines.isEmpty()) {
+      if (multiLineCount == 0) {
         return "";
       }
       if (multiLineTrim != MultiLineTrim.Keep) {
         multiLineTrimTrailing();
       }
-      String join = multiLineTrim == MultiLineTrim.Implicit ? " " : "\n";
+      char join = multiLineTrim == MultiLineTrim.Implicit ? ' ' : '\n';
       StringBuilder sb = new StringBuilder();
-      int lastIndex = multiLines.size() - 1;
+      int lastIndex = multiLineCount - 1;
       for (int i = 0; i <= lastIndex; i++) {
-        String line = multiLines.get(i);
-        if (line.length() < multiLineIndent) {
+        int start = multiLines[i * 2];
+        int end = multiLines[i * 2 + 1];
+        if (end - start < multiLineIndent) {
           // empty line whitespace
-          sb.append("\n");
+          sb.append('\n');
         } else {
-          line = line.substring(multiLineIndent);
-          if (i == lastIndex && (multiLineTrim == MultiLineTrim.Strip || multiLineTrim == MultiLineTrim.Implicit)) {
-            sb.append(line);
-          } else {
-            sb.append(line).append(join);
+          sb.append(buf, start + multiLineIndent, end - start - multiLineIndent);
+          if (i != lastIndex || (multiLineTrim != MultiLineTrim.Strip && multiLineTrim != MultiLineTrim.Implicit)) {
+            sb.append(join);
           }
         }
       }
@@ -168,93 +239,80 @@ final class YamlLoaderSimple implements YamlLoader {
     }
 
     private void multiLineTrimTrailing() {
-      for (int i = multiLines.size(); i-- > 0; ) {
-        if (!multiLines.get(i).trim().isEmpty()) {
-          break;
-        }
-        multiLines.remove(i);
+      while (multiLineCount > 0 && isBlank(multiLines[multiLineCount * 2 - 2], multiLines[multiLineCount * 2 - 1])) {
+        multiLineCount--;
       }
     }
 
-    void readIndent(String line) {
-      currentIndent = indent(line);
-    }
-
-    private void processNext(String line) {
-      if (newDocument(line) || ignoreLine(line)) {
+    private void processNext(int start, int end) {
+      if (newDocument(start, end) || ignoreLine(start, end)) {
         return;
       }
 
-      if (currentIndent < line.length() && line.charAt(currentIndent) == '-') {
-        int afterDashStart = currentIndent + 1;
-        while (afterDashStart < line.length() && line.charAt(afterDashStart) == ' ') {
+      final int dashPos = start + currentIndent;
+      if (dashPos < end && buf[dashPos] == '-') {
+        int afterDashStart = dashPos + 1;
+        while (afterDashStart < end && buf[afterDashStart] == ' ') {
           afterDashStart++;
         }
-        final String afterDash = line.substring(afterDashStart);
-        final int colonPos = afterDash.indexOf(':');
-        final boolean isObjectItem = colonPos > 0
-            && (colonPos == afterDash.length() - 1 || afterDash.charAt(colonPos + 1) == ' ');
+        final int colonPos = indexOf(':', afterDashStart, end);
+        final boolean isObjectItem = colonPos > afterDashStart
+            && (colonPos == end - 1 || buf[colonPos + 1] == ' ');
         if (isObjectItem) {
-          processObjectListItem(afterDash);
+          processObjectListItem(afterDashStart, colonPos, end);
         } else {
-          processNonKey(line, true);
+          processNonKey(start, end, true);
         }
         return;
       }
 
-      final int pos = line.indexOf(':');
+      final int pos = indexOf(':', start, end);
       if (pos == -1) {
-        processNonKey(line, false);
+        processNonKey(start, end, false);
         return;
       }
       if (state == State.RequireTopKey && currentIndent > 0) {
-        throw new IllegalStateException("Require top level key at line:" + currentLine + " [" + line + "]");
+        throw new IllegalStateException("Require top level key at line:" + currentLine + " [" + line(start, end) + "]");
       }
 
-      final Key key = new Key(currentIndent, trimKey(line.substring(0, pos)));
+      final String key = trimKey(start, pos);
       popKeys(currentIndent);
-      keyStack.push(key);
-
-      final String remaining = line.substring(pos + 1);
-      final String trimmedValue = remaining.trim();
-      if (trimmedValue.startsWith("|")) {
-        multilineStart(multiLineTrimMode(trimmedValue));
-      } else if ("-".equals(trimmedValue) || trimmedValue.startsWith("- ")) {
-        listStart(multiLineTrimMode(trimmedValue));
-      } else if (trimmedValue.isEmpty() || trimmedValue.startsWith("#")) {
-        state = State.KeyOrValue;
-      } else {
-        addKeyVal(trimValue(remaining.trim()));
-      }
+      pushKey(currentIndent, key);
+      processValue(pos + 1, end);
     }
 
-    private void processObjectListItem(String afterDash) {
+    private void processObjectListItem(int afterDashStart, int colonPos, int end) {
       popKeys(currentIndent);
-      final String counterKey = fullKey() + ":" + currentIndent;
+      final String counterKey = fullKey.toString() + ':' + currentIndent;
       final int index = listCounters.compute(counterKey, (k, v) -> v == null ? 0 : v + 1);
-      keyStack.push(new Key(currentIndent, "[" + index + "]"));
-
-      final int colonPos = afterDash.indexOf(':');
-      final String keyName = trimKey(afterDash.substring(0, colonPos));
-      final String remaining = afterDash.substring(colonPos + 1);
-      final String trimmedValue = remaining.trim();
-      keyStack.push(new Key(currentIndent + 1, keyName));
-      if (trimmedValue.startsWith("|")) {
-        multilineStart(multiLineTrimMode(trimmedValue));
-      } else if ("-".equals(trimmedValue) || trimmedValue.startsWith("- ")) {
-        listStart(multiLineTrimMode(trimmedValue));
-      } else if (trimmedValue.isEmpty() || trimmedValue.startsWith("#")) {
+      pushKey(currentIndent, "[" + index + "]");
+      pushKey(currentIndent + 1, trimKey(afterDashStart, colonPos));
+      processValue(colonPos + 1, end);
+    }
+
+    /**
+     * Process the value (or start of a multiLine or list value) after the colon.
+     */
+    private void processValue(int start, int end) {
+      final int valueStart = trimStart(start, end);
+      final int valueEnd = trimEnd(valueStart, end);
+      final int length = valueEnd - valueStart;
+      if (length > 0 && buf[valueStart] == '|') {
+        multilineStart(multiLineTrimMode(valueStart, valueEnd));
+      } else if (length > 0 && buf[valueStart] == '-' && (length == 1 || buf[valueStart + 1] == ' ')) {
+        listStart(multiLineTrimMode(valueStart, valueEnd));
+      } else if (length == 0 || buf[valueStart] == '#') {
         state = State.KeyOrValue;
       } else {
-        addKeyVal(trimValue(trimmedValue));
+        addKeyVal(trimValue(valueStart, valueEnd));
       }
     }
 
-    private MultiLineTrim multiLineTrimMode(String trimmedValue) {
-      if (trimmedValue.length() == 1) {
+    private MultiLineTrim multiLineTrimMode(int start, int end) {
+      if (end - start == 1) {
         return MultiLineTrim.Clip;
       }
-      final char ch = trimmedValue.charAt(1);
+      final char ch = buf[start + 1];
       switch (ch) {
         case '-':
           // the final line break and any trailing empty lines are excluded
@@ -269,23 +327,23 @@ final class YamlLoaderSimple implements YamlLoader {
     }
 
     private void addKeyVal(String value) {
-      keyValues.put(fullKey(), value);
-      keyStack.pop();
+      keyValues.accept(fullKey.toString(), value);
+      popKey();
       state = State.RequireKey;
     }
 
-    private void processNonKey(String line, boolean list) {
+    private void processNonKey(int start, int end, boolean list) {
       if (state == State.RequireKey) {
         state = State.RequireTopKey;
         // drop this value line
         return;
       }
       if (keyStack.isEmpty()) {
-        throw new IllegalStateException("Reading a value but no key at line: " + currentLine + " line[" + line + "]");
+        throw new IllegalStateException("Reading a value but no key at line: " + currentLine + " line[" + line(start, end) + "]");
       }
       final int keyIndent = keyStack.peek().indent;
       if (currentIndent <= keyIndent) {
-        throw new IllegalStateException("Value not indented enough for key " + fullKey() + " at line: " + currentLine + " line[" + line + "]");
+        throw new IllegalStateException("Value not indented enough for key " + fullKey + " at line: " + currentLine + " line[" + line(start, end) + "]");
       }
       if (list) {
         listStart(MultiLineTrim.Implicit);
@@ -293,7 +351,7 @@ final class YamlLoaderSimple implements YamlLoader {
         multilineStart(MultiLineTrim.Implicit);
       }
       multiLineIndent = currentIndent;
-      multiLines.add(line);
+      addMultiLine(start, end);
     }
 
     private void multilineStart(MultiLineTrim trim) {
@@ -311,100 +369,145 @@ final class YamlLoaderSimple implements YamlLoader {
     private void multiLineEnd() {
       state = State.RequireKey;
       multiLineIndent = 0;
-      multiLines.clear();
+      multiLineCount = 0;
     }
 
-    private boolean newDocument(String line) {
-      if (line.startsWith("---")) {
+    private boolean newDocument(int start, int end) {
+      if (end - start >= 3 && buf[start] == '-' && buf[start + 1] == '-' && buf[start + 2] == '-') {
+        ConfigParser.endDocument(keyValues);
         keyStack.clear();
+        fullKey.setLength(0);
         listCounters.clear();
         return true;
       }
       return false;
     }
 
-    private boolean ignoreLine(String line) {
-      final String trimmed = line.trim();
-      return trimmed.isEmpty() || trimmed.startsWith("#");
+    private boolean ignoreLine(int start, int end) {
+      final int trimmed = trimStart(start, end);
+      return trimmed == end || buf[trimmed] == '#';
     }
 
-    private String trimValue(String value) {
-      if (value.startsWith("'")) {
-        return unquoteValue('\'', value);
-      }
-      if (value.startsWith("\"")) {
-        return unquoteValue('"', value);
+    /**
+     * Return the value given the trimmed value range.
+     */
+    private String trimValue(int start, int end) {
+      final char first = buf[start];
+      if (first == '\'' || first == '"') {
+        final int pos = lastIndexOf(first, start, end);
+        return new String(buf, start + 1, pos - start - 1);
       }
       //yaml requires that comments have a space from the value
-      int commentPos = value.indexOf(" #");
-      if (commentPos > -1) {
-        return value.substring(0, commentPos).trim();
+      for (int i = start; i < end - 1; i++) {
+        if (buf[i] == ' ' && buf[i + 1] == '#') {
+          return new String(buf, start, trimEnd(start, i) - start);
+        }
       }
-      return value;
+      return new String(buf, start, end - start);
     }
 
-    private String unquoteValue(char quoteChar, String value) {
-      final int pos = value.lastIndexOf(quoteChar);
-      return value.substring(1, pos);
+    private void pushKey(int indent, String key) {
+      keyStack.push(new Key(indent, key, fullKey.length()));
+      if (fullKey.length() > 0 && !key.startsWith("[")) {
+        fullKey.append('.');
+      }
+      fullKey.append(key);
     }
 
-    private String fullKey() {
-      StringBuilder sb = new StringBuilder();
-      Iterator<Key> it = keyStack.descendingIterator();
-      while (it.hasNext()) {
-        String k = it.next().key();
-        if (sb.length() > 0 && !k.startsWith("[")) {
-          sb.append('.');
-        }
-        sb.append(k);
-      }
-      return sb.toString();
+    private void popKey() {
+      fullKey.setLength(keyStack.pop().prefixLength);
     }
 
     private void popKeys(int indent) {
       while (!keyStack.isEmpty()) {
-        if (keyStack.peek().indent() < indent) {
+        if (keyStack.peek().indent < indent) {
           break;
         }
-        keyStack.pop();
+        popKey();
       }
     }
 
-    private String trimKey(String indentKey) {
-      return unquoteKey(indentKey.trim());
+    private String trimKey(int start, int end) {
+      start = trimStart(start, end);
+      end = trimEnd(start, end);
+      final int length = end - start;
+      if (length > 0) {
+        final char first = buf[start];
+        if ((first == '\'' || first == '"') && buf[end - 1] == first) {
+          return new String(buf, start + 1, length - 2);
+        }
+      }
+      return new String(buf, start, length);
     }
 
-    private String unquoteKey(String value) {
-      if (value.startsWith("'") && value.endsWith("'") || value.startsWith("\"") && value.endsWith("\"")) {
-        return value.substring(1, value.length() - 1);
+    private int indent(int start, int end) {
+      for (int i = start; i < end; i++) {
+        if (!Character.isWhitespace(buf[i])) {
+          return i - start;
+        }
       }
-      return value;
+      return 0;
+    }
+
+    /**
+     * Return true if the line only contains whitespace (as per String.trim()).
+     */
+    private boolean isBlank(int start, int end) {
+      return trimStart(start, end) == end;
     }
 
-    private int indent(String line) {
-      final char[] chars = line.toCharArray();
-      for (int i = 0; i < chars.length; i++) {
-        if (!Character.isWhitespace(chars[i])) {
+    private int trimStart(int start, int end) {
+      while (start < end && buf[start] <= ' ') {
+        start++;
+      }
+      return start;
+    }
+
+    private int trimEnd(int start, int end) {
+      while (end > start && buf[end - 1] <= ' ') {
+        end--;
+      }
+      return end;
+    }
+
+    private int indexOf(char ch, int start, int end) {
+      for (int i = start; i < end; i++) {
+        if (buf[i] == ch) {
           return i;
         }
       }
-      return 0;
+      return -1;
+    }
+
+    private int lastIndexOf(char ch, int start, int end) {
+      for (int i = end - 1; i >= start; i--) {
+        if (buf[i] == ch) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    private String line(int start, int end) {
+      return new String(buf, start, end - start);
     }
 
     private static class Key {
       private final int indent;
       private final String key;
+      /**
+       * The length of the full key prior to this key being pushed.
+       */
+      private final int prefixLength;
 
-      Key(int indent, String key) {
+      Key(int indent, String key, int prefixLength) {
         this.indent = indent;
         this.key = key;
+        this.prefixLength = prefixLength;
       }
 
-      int indent() {
-        return indent;
-      }
-
-      String key() {
+      @Override
+      public String toString() {
         return key;
       }
     }
@@ -2,102 +2,416 @@ package io.avaje.config;
 
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.function.BiConsumer;
 
 import org.jspecify.annotations.NullMarked;
-import org.yaml.snakeyaml.Yaml;
+import org.jspecify.annotations.Nullable;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.constructor.Construct;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.NodeEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.ScalarNode;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.parser.Parser;
+import org.yaml.snakeyaml.parser.ParserImpl;
+import org.yaml.snakeyaml.reader.StreamReader;
+import org.yaml.snakeyaml.reader.UnicodeReader;
+import org.yaml.snakeyaml.resolver.Resolver;
 
 /**
  * Loads configuration from Yml into the load context.
  * <p>
+ * This flattens the SnakeYAML parse events rather than loading the yaml into an
+ * object graph. All parsing state is per parse such that the loader can be used
+ * concurrently.
+ * <p>
  * Note that this ignores 'lists' so just reads 'maps' and scalar values.
  */
 @NullMarked
 final class YamlLoaderSnake implements YamlLoader {
 
-  private final Yaml yaml;
-
-  YamlLoaderSnake() {
-    this.yaml = new Yaml();
-  }
+  private final LoaderOptions options = new LoaderOptions();
+  /**
+   * Immutable after construction so shared by all parsing.
+   */
+  private final Resolver resolver = new Resolver();
 
   @Override
   public Map<String, String> load(Reader reader) {
-    return load(yaml.loadAll(reader));
+    Map<String, String> map = new LinkedHashMap<>();
+    parse(reader, map::put);
+    return map;
   }
 
   @Override
   public Map<String, String> load(InputStream is) {
-    return load(yaml.loadAll(is));
+    Map<String, String> map = new LinkedHashMap<>();
+    parse(is, map::put);
+    return map;
+  }
+
+  @Override
+  public void parse(Reader reader, BiConsumer<String, String> consumer) {
+    new Load(new ParserImpl(new StreamReader(reader), options), consumer).load();
   }
 
-  @SuppressWarnings("unchecked")
-  private Map<String, String> load(Iterable<Object> source) {
-    Load load = new Load();
-    for (Object map : source) {
-      load.loadMap((Map<String, Object>) map, null);
+  @Override
+  public void parse(InputStream is, BiConsumer<String, String> consumer) {
+    parse(new UnicodeReader(is), consumer);
+  }
+
+  /**
+   * Constructs scalar values for the resolved tags (int, float, bool etc).
+   * <p>
+   * Some of these constructors hold state so an instance is used per parse.
+   */
+  private static final class Scalars extends SafeConstructor {
+
+    Scalars(LoaderOptions options) {
+      super(options);
+    }
+
+    @Nullable
+    Object construct(Tag tag, ScalarEvent event) {
+      Construct construct = yamlConstructors.get(tag);
+      if (construct == null) {
+        return event.getValue();
+      }
+      return construct.construct(new ScalarNode(tag, event.getValue(), event.getStartMark(), event.getEndMark(), event.getScalarStyle()));
     }
-    return load.map();
   }
 
-  private static class Load {
+  private final class Load {
+
+    private final Parser parser;
+    private final BiConsumer<String, String> consumer;
+    private final Scalars scalars = new Scalars(options);
+    /**
+     * Events of anchored nodes for replay by aliases.
+     */
+    private final Map<String, List<Event>> anchors = new HashMap<>();
+    private final List<Recording> recordings = new ArrayList<>();
+    private final Deque<Iterator<Event>> replay = new ArrayDeque<>();
+    /**
+     * The keys of each open mapping by depth (reused).
+     */
+    private final List<List<String>> mappingKeys = new ArrayList<>();
+    private int depth;
+    private int aliasCount;
+
+    Load(Parser parser, BiConsumer<String, String> consumer) {
+      this.parser = parser;
+      this.consumer = consumer;
+    }
+
+    void load() {
+      Event event;
+      while ((event = next()).getEventId() != Event.ID.StreamEnd) {
+        switch (event.getEventId()) {
+          case DocumentStart:
+            anchors.clear();
+            break;
+          case MappingStart:
+            loadMap(null);
+            break;
+          case Scalar:
+          case SequenceStart:
+            if (construct(event) != null) {
+              // read to the end of the document such that syntax errors are reported first
+              next();
+              throw new IllegalStateException("Expected a mapping for yaml document " + event.getStartMark());
+            }
+            break;
+          case DocumentEnd:
+            ConfigParser.endDocument(consumer);
+            break;
+          default:
+            // StreamStart
+        }
+      }
+    }
+
+    /**
+     * Return the next event replaying anchored events for aliases and recording
+     * the events of anchored nodes.
+     */
+    private Event next() {
+      Event event = nextEvent();
+      if (event instanceof AliasEvent) {
+        String anchor = ((AliasEvent) event).getAnchor();
+        List<Event> events = anchors.get(anchor);
+        if (events == null) {
+          throw new IllegalStateException("Found undefined alias " + anchor + " " + event.getStartMark());
+        }
+        if (events.size() > 1 && ++aliasCount > options.getMaxAliasesForCollections()) {
+          throw new IllegalStateException("Number of aliases for non-scalar nodes exceeds the specified max=" + options.getMaxAliasesForCollections());
+        }
+        replay.push(events.iterator());
+        event = nextEvent();
+      }
+      record(event);
+      return event;
+    }
+
+    private Event nextEvent() {
+      while (!replay.isEmpty()) {
+        Iterator<Event> it = replay.peek();
+        if (it.hasNext()) {
+          return it.next();
+        }
+        replay.pop();
+      }
+      return parser.getEvent();
+    }
+
+    private void record(Event event) {
+      for (int i = recordings.size() - 1; i >= 0; i--) {
+        Recording recording = recordings.get(i);
+        recording.events.add(event);
+        if (event.is(Event.ID.MappingStart) || event.is(Event.ID.SequenceStart)) {
+          recording.depth++;
+        } else if (event.is(Event.ID.MappingEnd) || event.is(Event.ID.SequenceEnd)) {
+          recording.depth--;
+        }
+        if (recording.depth == 0) {
+          anchors.put(recording.anchor, recording.events);
+          recordings.remove(i);
+        }
+      }
+      if (event instanceof NodeEvent) {
+        String anchor = ((NodeEvent) event).getAnchor();
+        if (anchor != null) {
+          Recording recording = new Recording(anchor, event);
+          if (recording.depth == 0) {
+            anchors.put(anchor, recording.events);
+          } else {
+            recordings.add(recording);
+          }
+        }
+      }
+    }
+
+    private void loadMap(@Nullable String path) {
+      List<String> keys = keysAt(depth++);
+      Map<String, Object> merged = null;
+      Event event;
+      while ((event = next()).getEventId() != Event.ID.MappingEnd) {
+        if (isMerge(event)) {
+          merged = merge(construct(next()));
+          continue;
+        }
+        String name = event instanceof ScalarEvent ? ((ScalarEvent) event).getValue() : String.valueOf(construct(event));
+        keys.add(name);
+        String key = path == null ? name : path + "." + name;
+        loadValue(key, next());
+      }
+      if (merged != null) {
+        // explicit keys take precedence over merged keys
+        for (Map.Entry<String, Object> entry : merged.entrySet()) {
+          if (!keys.contains(entry.getKey())) {
+            flatten(path == null ? entry.getKey() : path + "." + entry.getKey(), entry.getValue());
+          }
+        }
+      }
+      depth--;
+    }
+
+    private List<String> keysAt(int depth) {
+      if (depth == mappingKeys.size()) {
+        mappingKeys.add(new ArrayList<>());
+      }
+      List<String> keys = mappingKeys.get(depth);
+      keys.clear();
+      return keys;
+    }
 
-    private final Map<String, String> map = new LinkedHashMap<>();
+    private void loadValue(String key, Event event) {
+      switch (event.getEventId()) {
+        case MappingStart:
+          loadMap(key);
+          break;
+        case SequenceStart:
+          loadList(key);
+          break;
+        default:
+          addScalar(key, scalar((ScalarEvent) event));
+      }
+    }
 
-    void add(String key, String val) {
-      map.put(key, val);
+    private void loadList(String path) {
+      List<@Nullable Object> values = new ArrayList<>();
+      boolean hasObjects = false;
+      int index = 0;
+      Event event;
+      while ((event = next()).getEventId() != Event.ID.SequenceEnd) {
+        if (event.is(Event.ID.MappingStart)) {
+          if (!hasObjects) {
+            hasObjects = true;
+            for (int i = 0; i < values.size(); i++) {
+              addScalar(path + "[" + i + "]", values.get(i));
+            }
+          }
+          loadMap(path + "[" + index + "]");
+        } else {
+          Object value = construct(event);
+          if (hasObjects) {
+            addScalar(path + "[" + index + "]", value);
+          } else {
+            values.add(value);
+          }
+        }
+        index++;
+      }
+      if (!hasObjects) {
+        List<String> elements = new ArrayList<>(values.size());
+        for (Object value : values) {
+          elements.add(value == null ? "" : value.toString());
+        }
+        ConfigParser.acceptList(consumer, path, elements);
+      }
     }
 
+    private void addScalar(String key, @Nullable Object val) {
+      if (val instanceof String) {
+        consumer.accept(key, (String) val);
+      } else if (val instanceof Number || val instanceof Boolean) {
+        consumer.accept(key, val.toString());
+      }
+    }
+
+    /**
+     * Flatten a constructed value (from a merge key).
+     */
     @SuppressWarnings("unchecked")
-    private void loadMap(Map<String, Object> map, String path) {
-      for (Map.Entry<String, Object> entry : map.entrySet()) {
-        String key = entry.getKey();
-        if (path != null) {
-          key = path + "." + key;
+    private void flatten(String key, @Nullable Object value) {
+      if (value instanceof Map) {
+        for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) value).entrySet()) {
+          flatten(key + "." + entry.getKey(), entry.getValue());
         }
-        Object val = entry.getValue();
-        if (val instanceof Map) {
-          loadMap((Map<String, Object>) val, key);
-        } else if (val instanceof List) {
-          loadList((List<?>) val, key);
+      } else if (value instanceof List) {
+        List<?> list = (List<?>) value;
+        if (list.stream().anyMatch(item -> item instanceof Map)) {
+          for (int i = 0; i < list.size(); i++) {
+            Object item = list.get(i);
+            if (item instanceof Map) {
+              flatten(key + "[" + i + "]", item);
+            } else {
+              addScalar(key + "[" + i + "]", item);
+            }
+          }
         } else {
-          addScalar(key, val);
+          List<String> elements = new ArrayList<>(list.size());
+          for (Object item : list) {
+            elements.add(item == null ? "" : item.toString());
+          }
+          ConfigParser.acceptList(consumer, key, elements);
         }
+      } else {
+        addScalar(key, value);
       }
     }
 
+    /**
+     * Return the merged entries with earlier mappings taking precedence.
+     */
     @SuppressWarnings("unchecked")
-    private void loadList(List<?> list, String path) {
-      boolean hasObjects = list.stream().anyMatch(item -> item instanceof Map);
-      if (hasObjects) {
-        for (int i = 0; i < list.size(); i++) {
-          Object item = list.get(i);
-          if (item instanceof Map) {
-            loadMap((Map<String, Object>) item, path + "[" + i + "]");
-          } else {
-            addScalar(path + "[" + i + "]", item);
+    private Map<String, Object> merge(@Nullable Object value) {
+      Map<String, Object> merged = new LinkedHashMap<>();
+      if (value instanceof Map) {
+        ((Map<Object, Object>) value).forEach((k, v) -> merged.put(String.valueOf(k), v));
+      } else if (value instanceof List) {
+        for (Object item : (List<?>) value) {
+          if (!(item instanceof Map)) {
+            throw new IllegalStateException("Expected a mapping for merging, but found " + item);
           }
+          ((Map<Object, Object>) item).forEach((k, v) -> merged.putIfAbsent(String.valueOf(k), v));
         }
       } else {
-        add(path, list.stream()
-            .map(item -> item == null ? "" : item.toString())
-            .collect(Collectors.joining(",")));
+        throw new IllegalStateException("Expected a mapping or list of mappings for merging, but found " + value);
       }
+      return merged;
     }
 
-    private void addScalar(String key, Object val) {
-      if (val instanceof String) {
-        add(key, (String) val);
-      } else if (val instanceof Number || val instanceof Boolean) {
-        add(key, val.toString());
+    /**
+     * Construct the value of a node. Only used for nested lists and merge keys.
+     */
+    @Nullable
+    private Object construct(Event event) {
+      switch (event.getEventId()) {
+        case Scalar:
+          return scalar((ScalarEvent) event);
+        case SequenceStart:
+          List<Object> list = new ArrayList<>();
+          while (!(event = next()).is(Event.ID.SequenceEnd)) {
+            list.add(construct(event));
+          }
+          return list;
+        case MappingStart:
+          Map<Object, Object> map = new LinkedHashMap<>();
+          Map<String, Object> merged = null;
+          while (!(event = next()).is(Event.ID.MappingEnd)) {
+            if (isMerge(event)) {
+              merged = merge(construct(next()));
+            } else {
+              Object key = construct(event);
+              map.put(key, construct(next()));
+            }
+          }
+          if (merged != null) {
+            merged.forEach(map::putIfAbsent);
+          }
+          return map;
+        default:
+          throw new IllegalStateException("Unexpected yaml event " + event);
       }
     }
 
-    private Map<String, String> map() {
-      return map;
+    private boolean isMerge(Event event) {
+      return event instanceof ScalarEvent
+        && "<<".equals(((ScalarEvent) event).getValue())
+        && Tag.MERGE.equals(tag((ScalarEvent) event));
+    }
+
+    @Nullable
+    private Object scalar(ScalarEvent event) {
+      Tag tag = tag(event);
+      return Tag.STR.equals(tag) ? event.getValue() : scalars.construct(tag, event);
+    }
+
+    private Tag tag(ScalarEvent event) {
+      String tag = event.getTag();
+      if (tag == null || "!".equals(tag)) {
+        return resolver.resolve(NodeId.scalar, event.getValue(), event.getImplicit().canOmitTagInPlainScalar());
+      }
+      return new Tag(tag);
+    }
+  }
+
+  /**
+   * Records the events of an anchored node.
+   */
+  private static final class Recording {
+
+    private final String anchor;
+    private final List<Event> events = new ArrayList<>();
+    private int depth;
+
+    Recording(String anchor, Event start) {
+      this.anchor = anchor;
+      this.events.add(start);
+      this.depth = start.is(Event.ID.MappingStart) || start.is(Event.ID.SequenceStart) ? 1 : 0;
     }
   }
 }
@@ -0,0 +1,141 @@
+package io.avaje.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ConfigTreeSourceTest {
+
+  @TempDir
+  Path dir;
+
+  private CoreConfiguration newConfig() {
+    final var properties = new Properties();
+    properties.setProperty("config.tree.period", "0");
+    return new CoreConfiguration(CoreEntry.newMap(properties, "test"));
+  }
+
+  @Test
+  void load_expect_keysFromFileNames() throws IOException {
+    Files.writeString(dir.resolve("db.user"), "admin\n");
+    Files.createDirectories(dir.resolve("db"));
+    Files.writeString(dir.resolve("db").resolve("password"), "s3cret\r\n");
+    Files.writeString(dir.resolve("multi"), "line1\nline2\n\n");
+    Files.writeString(dir.resolve(".hidden"), "ignored");
+    Files.createDirectories(dir.resolve("..data"));
+    Files.writeString(dir.resolve("..data").resolve("other"), "ignored");
+
+    final var config = newConfig();
+    new ConfigTreeSource(config, dir.toString()).load(config);
+
+    assertThat(config.get("db.user")).isEqualTo("admin");
+    assertThat(config.get("db.password")).isEqualTo("s3cret");
+    assertThat(config.get("multi")).isEqualTo("line1\nline2\n");
+    assertThat(config.getOptional("hidden")).isEmpty();
+    assertThat(config.getOptional(".hidden")).isEmpty();
+    assertThat(config.getOptional("..data.other")).isEmpty();
+    assertThat(config.entry("db.user").orElseThrow().source()).isEqualTo("event:ConfigTree");
+  }
+
+  @Test
+  void paths_withSpacesAndDuplicates_expect_trimmedAndDistinct() throws IOException {
+    final var secrets = Files.createDirectories(dir.resolve("my secrets"));
+    Files.writeString(secrets.resolve("db.user"), "admin");
+
+    final var config = newConfig();
+    new ConfigTreeSource(config, " " + secrets + " ," + secrets + ",,").load(config);
+
+    assertThat(ConfigTreeSource.paths(" " + secrets + " ," + secrets + ",,")).containsExactly(secrets.toAbsolutePath().normalize());
+    assertThat(config.get("db.user")).isEqualTo("admin");
+  }
+
+  @Test
+  void load_expect_contentReadOnFirstAccess() throws IOException {
+    final var file = dir.resolve("token");
+    Files.writeString(file, "one");
+
+    final var config = newConfig();
+    new ConfigTreeSource(config, dir.toString()).load(config);
+
+    // changed after loading but before the first access
+    Files.writeString(file, "two");
+    assertThat(config.get("token")).isEqualTo("two");
+    // held once read
+    Files.writeString(file, "three");
+    assertThat(config.get("token")).isEqualTo("two");
+  }
+
+  @Test
+  void load_removedBeforeFirstAccess_expect_notDefined() throws IOException {
+    final var file = dir.resolve("token");
+    Files.writeString(file, "one");
+
+    final var config = newConfig();
+    new ConfigTreeSource(config, dir.toString()).load(config);
+
+    Files.delete(file);
+    assertThat(config.getOptional("token")).isEmpty();
+    assertThat(config.entry("token")).isEmpty();
+    assertThat(config.asProperties()).doesNotContainKey("token");
+    assertThat(config.get("token", "default")).isEqualTo("default");
+  }
+
+  @Test
+  void load_linkedDirectories_expect_followedWithoutLooping() throws IOException {
+    final var data = Files.createDirectories(dir.resolve("..data").resolve("db"));
+    Files.writeString(data.resolve("password"), "s3cret");
+    Files.createSymbolicLink(dir.resolve("db"), data);
+    // links back to the root of the tree
+    Files.createSymbolicLink(data.resolve("loop"), dir);
+
+    final var config = newConfig();
+    new ConfigTreeSource(config, dir.toString()).load(config);
+
+    assertThat(config.get("db.password")).isEqualTo("s3cret");
+    assertThat(config.keys()).containsExactlyInAnyOrder("config.tree.period", "db.password");
+  }
+
+  @Test
+  void check_expect_changedAddedAndRemovedFiles() throws IOException {
+    Files.writeString(dir.resolve("a"), "1");
+    Files.writeString(dir.resolve("b"), "2");
+
+    final var config = newConfig();
+    final var source = new ConfigTreeSource(config, dir.toString());
+    source.load(config);
+    assertThat(config.get("a")).isEqualTo("1");
+    assertThat(config.get("b")).isEqualTo("2");
+
+    List<ModificationEvent> events = new ArrayList<>();
+    config.onChange(events::add);
+
+    source.check();
+    assertThat(events).isEmpty();
+
+    Files.writeString(dir.resolve("a"), "changed");
+    Files.delete(dir.resolve("b"));
+    Files.writeString(dir.resolve("c"), "3");
+    source.check();
+
+    assertThat(events).hasSize(1);
+    assertThat(events.get(0).name()).isEqualTo("ConfigTree");
+    assertThat(events.get(0).modifiedKeys()).containsExactlyInAnyOrder("a", "b", "c");
+    assertThat(config.get("a")).isEqualTo("changed");
+    assertThat(config.getOptional("b")).isEmpty();
+    assertThat(config.get("c")).isEqualTo("3");
+  }
+
+  @Test
+  void key() {
+    assertThat(ConfigTreeSource.key(dir, dir.resolve("a"))).isEqualTo("a");
+    assertThat(ConfigTreeSource.key(dir, dir.resolve("a").resolve("b.c"))).isEqualTo("a.b.c");
+  }
+}
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.StringReader;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -110,6 +111,18 @@ class CoreConfigurationTest {
     assertThat(foo.getOptional("a")).isEmpty();
   }
 
+  @Test
+  void forPath_close_expect_parentSchedulingContinues() {
+    CoreConfiguration base = createSample();
+    Configuration.Cancellable task = base.schedule(Duration.ofHours(1), Duration.ofHours(1), () -> { });
+
+    base.forPath("foo").close();
+    assertThat(task.isCancelled()).isFalse();
+
+    base.close();
+    assertThat(task.isCancelled()).isTrue();
+  }
+
   @Test
   void forPathUnknown_expect_fullPathInMessage() {
     CoreConfiguration base = createSample();
@@ -151,6 +164,76 @@ class CoreConfigurationTest {
     assertThat(nested2.asProperties()).containsOnlyKeys("", "num", "active", "again.more");
   }
 
+  @Test
+  void listOf() {
+    var conf = createConfig(CoreEntry.newMap());
+    var builder = conf.eventBuilder("yaml");
+    new YamlLoaderSnake().parse(new StringReader("servers:\n" +
+      "  - host: one\n" +
+      "    port: 8080\n" +
+      "    tags: [a, b]\n" +
+      "    tls:\n" +
+      "      - name: x\n" +
+      "  - host: two\n" +
+      "    port: 8081\n" +
+      "other: 1\n"), builder);
+    builder.publish();
+
+    List<Configuration> servers = conf.listOf("servers");
+    assertThat(servers).hasSize(2);
+    assertThat(servers.get(0).keys()).containsOnly("host", "port", "tags", "tls[0].name");
+    assertThat(servers.get(0).get("host")).isEqualTo("one");
+    assertThat(servers.get(0).getInt("port")).isEqualTo(8080);
+    assertThat(servers.get(0).list().of("tags")).containsExactly("a", "b");
+    assertThat(servers.get(0).listOf("tls").get(0).get("name")).isEqualTo("x");
+    assertThat(servers.get(1).get("host")).isEqualTo("two");
+    assertThatThrownBy(() -> servers.get(1).get("missing"))
+      .hasMessageContaining("servers[1].missing");
+
+    assertThat(conf.listOf("servers[0].tls")).hasSize(1);
+    assertThat(conf.forPath("servers[0]").listOf("tls")).hasSize(1);
+    assertThat(conf.listOf("other")).isEmpty();
+    assertThat(conf.listOf("missing")).isEmpty();
+
+    // defaults for missing elements are not included
+    assertThat(conf.getInt("servers[2].port", 80)).isEqualTo(80);
+    assertThat(conf.listOf("servers")).hasSize(2);
+
+    conf.eventBuilder("remove").remove("servers[1].host").remove("servers[1].port").publish();
+    assertThat(conf.listOf("servers")).hasSize(1);
+    conf.setProperty("servers[2].host", "three");
+    assertThat(conf.listOf("servers")).extracting(c -> c.get("host")).containsExactly("one", "three");
+  }
+
+  @Test
+  void listValue_sameJoinedValueDifferentElements_expect_changed() {
+    var conf = createConfig(CoreEntry.newMap());
+    var builder = conf.eventBuilder("list");
+    builder.acceptList("tags", List.of("a", "b"));
+    builder.publish();
+    assertThat(conf.list().of("tags")).containsExactly("a", "b");
+
+    List<ModificationEvent> events = new ArrayList<>();
+    conf.onChange(events::add);
+    var single = conf.eventBuilder("single");
+    single.acceptList("tags", List.of("a,b"));
+    single.publish();
+    assertThat(events).hasSize(1);
+    assertThat(conf.list().of("tags")).containsExactly("a,b");
+
+    var back = conf.eventBuilder("back");
+    back.acceptList("tags", List.of("a", "b"));
+    back.publish();
+    assertThat(events).hasSize(2);
+    assertThat(conf.list().of("tags")).containsExactly("a", "b");
+
+    // same elements again is not a change
+    var same = conf.eventBuilder("same");
+    same.acceptList("tags", List.of("a", "b"));
+    same.publish();
+    assertThat(events).hasSize(2);
+  }
+
   @Test
   void test_toString() {
     data.setWatcher(new FileWatch(createConfig(CoreEntry.newMap(new Properties(), "test")), Collections.emptyList(), null));
@@ -311,6 +394,28 @@ class CoreConfigurationTest {
 
   }
 
+  @Test
+  void getList_structuredElements() {
+    var conf = createConfig(CoreEntry.newMap());
+    var builder = conf.eventBuilder("yaml");
+    new YamlLoaderSnake().parse(new StringReader("hosts: ['a,1', 'b,2']\nports: [80, 81]\nurl: ${hosts}\n"), builder);
+    builder.publish();
+
+    assertThat(conf.get("hosts")).isEqualTo("a,1,b,2");
+    assertThat(conf.list().of("hosts")).containsExactly("a,1", "b,2");
+    assertThat(conf.set().of("hosts")).containsExactly("a,1", "b,2");
+    assertThat(conf.list().ofInt("ports")).containsExactly(80, 81);
+    assertThat(conf.set().ofLong("ports")).containsExactly(80L, 81L);
+
+    var simple = new InitialLoadContext(new DefaultConfigurationLog(), new DefaultResourceLoader());
+    new YamlLoaderSimple().parse(new StringReader("list:\n  - a,1\n  - b\n"), simple.consumer("test"));
+    assertThat(createConfig(simple.entryMap()).list().of("list")).containsExactly("a,1", "b");
+
+    // replaced by a plain value which is split
+    conf.setProperty("hosts", "x,y");
+    assertThat(conf.list().of("hosts")).containsExactly("x", "y");
+  }
+
   enum MyEnum {
     ONE, TWO, THREE
   }
@@ -0,0 +1,82 @@
+package io.avaje.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class CoreSchedulerTest {
+
+  private final CoreScheduler scheduler = new CoreScheduler(new DefaultConfigurationLog(), 10);
+
+  @Test
+  void schedule_expect_runPeriodically() throws InterruptedException {
+    final var latch = new CountDownLatch(3);
+    final var task = scheduler.schedule(10, 10, latch::countDown);
+    assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+    task.cancel();
+    assertThat(task.isCancelled()).isTrue();
+    scheduler.close();
+  }
+
+  @Test
+  void schedule_slowTask_expect_otherTasksNotDelayed() throws InterruptedException {
+    final var slowStarted = new CountDownLatch(1);
+    final var release = new CountDownLatch(1);
+    scheduler.schedule(0, 1000, () -> {
+      slowStarted.countDown();
+      await(release);
+    });
+    assertThat(slowStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+    final var fast = new CountDownLatch(2);
+    scheduler.schedule(0, 10, fast::countDown);
+    assertThat(fast.await(5, TimeUnit.SECONDS)).isTrue();
+    release.countDown();
+    scheduler.close();
+  }
+
+  @Test
+  void cancel_expect_noFurtherRuns() throws InterruptedException {
+    final var count = new AtomicInteger();
+    final var task = scheduler.schedule(10, 10, count::incrementAndGet);
+    Thread.sleep(100);
+    task.cancel();
+    Thread.sleep(50);
+    final int afterCancel = count.get();
+    Thread.sleep(100);
+    assertThat(count.get()).isEqualTo(afterCancel);
+    scheduler.close();
+  }
+
+  @Test
+  void close_expect_tasksCancelledAndScheduleRejected() {
+    final var task = scheduler.schedule(1000, 1000, () -> { });
+    scheduler.close();
+    assertThat(task.isCancelled()).isTrue();
+    assertThat(scheduler.isClosed()).isTrue();
+    assertThatThrownBy(() -> scheduler.schedule(0, 10, () -> { }))
+      .isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void jitter() {
+    assertThat(scheduler.jitter(0)).isEqualTo(0);
+    for (int i = 0; i < 100; i++) {
+      assertThat(scheduler.jitter(1000)).isBetween(1000L, 1100L);
+    }
+    assertThat(new CoreScheduler(new DefaultConfigurationLog(), 0).jitter(1000)).isEqualTo(1000);
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
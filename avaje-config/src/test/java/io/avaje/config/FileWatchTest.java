@@ -2,55 +2,68 @@ package io.avaje.config;
 
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.assertj.core.api.Assertions.fail;
 
 class FileWatchTest {
 
   Logger log = LoggerFactory.getLogger("FileWatchTest");
 
+  @TempDir
+  Path dir;
+
   @Test
   void test_when_notChanged() {
 
     CoreConfiguration config = newConfig();
-    List<File> files = files();
+    List<File> files = files(true);
     final FileWatch watch = fileWatch(config, files);
 
-    assertThat(config.size()).isEqualTo(2);
+    assertThat(config.size()).isEqualTo(3);
     // not touched
     watch.check();
     // no reload
-    assertThat(config.size()).isEqualTo(2);
+    assertThat(config.size()).isEqualTo(3);
+
+    // touched but the content is unchanged
+    touchFiles(files);
+    watch.check();
+    assertThat(config.size()).isEqualTo(3);
   }
 
   @Test
-  void test_check_whenTouched_expect_loaded() {
+  void test_check_whenChanged_expect_loaded() {
 
     CoreConfiguration config = newConfig();
-    List<File> files = files();
+    List<File> files = files(false);
     final FileWatch watch = fileWatch(config, files);
 
-    assertThat(config.size()).isEqualTo(2);
+    assertThat(config.size()).isEqualTo(3);
     assertThat(config.getOptional("one")).isEmpty();
 
-    touchFiles(files);
-    // check after touch means files loaded
+    writeContents();
+    // check after change means files loaded
     watch.check();
 
     // properties loaded as expected
     final int size0 = config.size();
-    assertThat(size0).isGreaterThan(2);
+    assertThat(size0).isGreaterThan(3);
     assertThat(config.get("one")).isEqualTo("a");
     assertThat(config.getInt("my.size", 42)).isEqualTo(17);
     assertThat(config.getBool("c.active", false)).isTrue();
@@ -58,97 +71,326 @@ class FileWatchTest {
   }
 
   @Test
-  void test_check_whenTouchedScheduled_expect_loaded() {
+  void test_check_whenChangedScheduled_expect_loaded() {
 
-    CoreConfiguration config = newConfig();
-    List<File> files = files();
-    for (File file : files) {
-      if (!file.exists()) {
-        fail("File " + file.getAbsolutePath() + " does not exist?");
-      }
-    }
+    final Properties properties = new Properties();
+    properties.setProperty("config.watch.mode", "poll");
+    properties.setProperty("config.watch.delay", "1");
+    properties.setProperty("config.watch.period", "1");
+    CoreConfiguration config = new CoreConfiguration(CoreEntry.newMap(properties, "newConfig"));
+    List<File> files = files(false);
     final FileWatch watch = fileWatch(config, files);
     System.out.println(watch);
 
     // assert not loaded
-    assertThat(config.size()).isEqualTo(2);
-    if (isGithubActions()) {
-      log.info("file change not detected in GithubActions");
-      return;
-    }
-    // touch but scheduled check not run yet
-    touchFiles(files);
+    assertThat(config.size()).isEqualTo(3);
+    // changed but scheduled check not run yet
+    writeContents();
     // wait until scheduled check has been run
     sleep(3000);
 
     // properties loaded as expected
-    assertThat(config.size()).isGreaterThan(2);
+    assertThat(config.size()).isGreaterThan(3);
     assertThat(config.get("one")).isEqualTo("a");
     assertThat(config.getInt("my.size", 42)).isEqualTo(17);
     assertThat(config.getBool("c.active", false)).isTrue();
   }
 
   @Test
-  void test_check_whenFileWritten() throws Exception {
+  void test_check_whenFileWritten() {
     log.info("test_check_whenFileWritten");
     CoreConfiguration config = newConfig();
-    List<File> files = files();
+    List<File> files = files(false);
+    final FileWatch watch = fileWatch(config, files);
+
+    writeContents();
+    watch.check();
+    assertThat(config.get("one")).isEqualTo("a");
+
+    // same size and likely the same lastModified
+    write("a.properties", "one=b");
+    watch.check();
+    assertThat(config.get("one")).isEqualTo("b");
+
+    write("a.properties", "one=a");
+    watch.check();
+    assertThat(config.get("one")).isEqualTo("a");
+  }
+
+  @Test
+  void check_sameModifiedAndLength_expect_notRead() {
+    CoreConfiguration config = newConfig();
+    List<File> files = files(false);
+    final FileWatch watch = fileWatch(config, files);
+    writeContents();
+    final File file = dir.resolve("a.properties").toFile();
+    final long lastModified = System.currentTimeMillis() - 60_000;
+    assertThat(file.setLastModified(lastModified)).isTrue();
+    watch.check();
+    assertThat(config.get("one")).isEqualTo("a");
+
+    // same size and lastModified is not read (not racy as last modified well before the read)
+    write("a.properties", "one=b");
+    assertThat(file.setLastModified(lastModified)).isTrue();
+    watch.check();
+    assertThat(config.get("one")).isEqualTo("a");
 
+    assertThat(file.setLastModified(lastModified + 1000)).isTrue();
+    watch.check();
+    assertThat(config.get("one")).isEqualTo("b");
+  }
+
+  @Test
+  void check_expect_onlyAddedChangedAndRemovedKeys() {
+    CoreConfiguration config = newConfig();
+    List<File> files = files(false);
     final FileWatch watch = fileWatch(config, files);
+    writeContents();
+    watch.check();
 
-    if (isGithubActions()) {
-      File aFile = files.get(0);
-      log.info("file change detection in GithubActions via change in length from {}", aFile.length());
-      assertThat(config.getOptional("one")).isEmpty();
+    List<Set<String>> events = new ArrayList<>();
+    config.onChange(event -> events.add(event.modifiedKeys()));
 
-      writeContent("one=NotAReally");
-      sleep(20);
-      log.info("file length now {}", aFile.length());
-      watch.check();
-      assertThat(config.get("one")).isEqualTo("NotAReally");
+    write("b.yaml", "my:\n  color: blue\n  size: 17\n  shape: round\n");
+    write("c.yml", "other: 1\n");
+    watch.check();
+
+    assertThat(events).hasSize(1);
+    assertThat(events.get(0)).containsOnly("my.color", "my.shape", "c.active", "other");
+    assertThat(config.get("my.color")).isEqualTo("blue");
+    assertThat(config.getOptional("c.active")).isEmpty();
+    assertThat(config.get("one")).isEqualTo("a");
+
+    // no change in content, no event
+    watch.check();
+    assertThat(events).hasSize(1);
+  }
 
-      writeContent("one=a");
+  @Test
+  void nativeWatch_whenFileWritten_expect_reloaded() throws Exception {
+    Path file = dir.resolve("native.properties");
+    Files.writeString(file, "native.key=a");
+    CoreConfiguration config = new CoreConfiguration(CoreEntry.newMap(new Properties(), "test"));
+    FileWatch watch = fileWatch(config, List.of(file.toFile()));
+    if (!watch.toString().contains("mode:native")) {
+      log.info("native watch not supported");
+      return;
+    }
+    Files.writeString(file, "native.key=b");
+    for (int i = 0; i < 100 && config.getOptional("native.key").isEmpty(); i++) {
       sleep(20);
-      log.info("file length now {}", aFile.length());
-      watch.check();
-      assertThat(config.get("one")).isEqualTo("a");
+    }
+    assertThat(config.get("native.key")).isEqualTo("b");
+  }
+
+  @Test
+  void configMap_whenDataLinkSwapped_expect_allFilesReloaded() throws Exception {
+    Path mount = configMap("..2024_01_01_v1", "one=a", "two: b");
+    CoreConfiguration config = newConfig();
+    final FileWatch watch = fileWatch(config, List.of(mount.resolve("a.properties").toFile(), mount.resolve("b.yaml").toFile()));
+    watch.check();
+    assertThat(config.getOptional("one")).isEmpty();
+
+    List<Set<String>> events = new ArrayList<>();
+    config.onChange(event -> events.add(event.modifiedKeys()));
+    swap(mount, "..2024_01_01_v2", "one=a2", "two: b2\nthree: c");
+    watch.check();
+
+    assertThat(events).hasSize(1);
+    assertThat(events.get(0)).containsOnly("one", "two", "three");
+    assertThat(config.get("one")).isEqualTo("a2");
+    assertThat(config.get("two")).isEqualTo("b2");
+  }
+
+  @Test
+  void configMap_nativeWatch_whenDataLinkSwapped_expect_reloaded() throws Exception {
+    Path mount = configMap("..2024_01_01_v1", "one=a", "two: b");
+    CoreConfiguration config = new CoreConfiguration(CoreEntry.newMap(new Properties(), "test"));
+    final FileWatch watch = fileWatch(config, List.of(mount.resolve("a.properties").toFile(), mount.resolve("b.yaml").toFile()));
+    if (!watch.toString().contains("mode:native")) {
+      log.info("native watch not supported");
       return;
     }
+    swap(mount, "..2024_01_01_v2", "one=a2", "two: b2");
+    for (int i = 0; i < 100 && config.getOptional("two").isEmpty(); i++) {
+      sleep(20);
+    }
+    assertThat(config.get("one")).isEqualTo("a2");
+    assertThat(config.get("two")).isEqualTo("b2");
+  }
 
-    touchFiles(files);
+  /**
+   * Create a directory laid out like a Kubernetes ConfigMap volume.
+   */
+  private Path configMap(String version, String a, String b) throws IOException {
+    Path mount = Files.createDirectory(dir.resolve("configmap"));
+    writeVersion(mount, version, a, b);
+    Files.createSymbolicLink(mount.resolve("..data"), Path.of(version));
+    Files.createSymbolicLink(mount.resolve("a.properties"), Path.of("..data", "a.properties"));
+    Files.createSymbolicLink(mount.resolve("b.yaml"), Path.of("..data", "b.yaml"));
+    return mount;
+  }
+
+  /**
+   * Update the ConfigMap volume the way Kubernetes does by atomically swapping the ..data link.
+   */
+  private void swap(Path mount, String version, String a, String b) throws IOException {
+    Path old = Files.readSymbolicLink(mount.resolve("..data"));
+    writeVersion(mount, version, a, b);
+    Path tmp = Files.createSymbolicLink(mount.resolve("..data_tmp"), Path.of(version));
+    Files.move(tmp, mount.resolve("..data"), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    Path oldDir = mount.resolve(old);
+    Files.delete(oldDir.resolve("a.properties"));
+    Files.delete(oldDir.resolve("b.yaml"));
+    Files.delete(oldDir);
+  }
+
+  private static void writeVersion(Path mount, String version, String a, String b) throws IOException {
+    Path versionDir = Files.createDirectory(mount.resolve(version));
+    Files.writeString(versionDir.resolve("a.properties"), a);
+    Files.writeString(versionDir.resolve("b.yaml"), b);
+  }
+
+  @Test
+  void configDir_expect_onlyFragmentChangesApplied() throws Exception {
+    Path configDir = Files.createDirectory(dir.resolve("conf.d"));
+    Files.writeString(configDir.resolve("10-a.properties"), "k=a\nonly.a=1");
+    Files.writeString(configDir.resolve("20-b.yaml"), "k: b");
+    CoreConfiguration config = newConfig();
+    config.putAll(Map.of("k", "b", "only.a", "1"));
+    final FileWatch watch = new FileWatch(config, List.of(), List.of(configDir.toFile()), new Parsers(Collections.emptyList()));
+    assertThat(watch.toString()).contains("dirs:[" + configDir.toAbsolutePath());
+
+    List<Set<String>> events = new ArrayList<>();
+    config.onChange(event -> events.add(event.modifiedKeys()));
+
+    // k is overridden by the later fragment
+    Files.writeString(configDir.resolve("10-a.properties"), "k=a2\nonly.a=2");
     watch.check();
+    assertThat(events).containsExactly(Set.of("only.a"));
+    assertThat(config.get("k")).isEqualTo("b");
 
-    // properties loaded as expected
-    final int size0 = config.size();
-    assertThat(size0).isGreaterThan(2);
-    assertThat(config.get("one")).isEqualTo("a");
+    // k reverts to the earlier fragment
+    Files.delete(configDir.resolve("20-b.yaml"));
+    watch.check();
+    assertThat(config.get("k")).isEqualTo("a2");
 
-    writeContent("one=NotA");
-    sleep(20);
-    //assertThat(watch.changed()).isTrue();
+    Files.writeString(configDir.resolve("30-c.properties"), "k=c\nnew.key=1");
+    Files.writeString(configDir.resolve(".hidden.properties"), "hidden=1");
     watch.check();
-    assertThat(watch.changed()).isFalse();
+    assertThat(events.get(events.size() - 1)).containsOnly("k", "new.key");
+    assertThat(config.get("k")).isEqualTo("c");
+    assertThat(config.getOptional("hidden")).isEmpty();
 
-    assertThat(config.get("one")).isEqualTo("NotA");
-    writeContent("one=a");
-    sleep(20);
+    Files.delete(configDir.resolve("10-a.properties"));
     watch.check();
-    assertThat(config.get("one")).isEqualTo("a");
+    assertThat(events.get(events.size() - 1)).containsOnly("only.a");
+    assertThat(config.getOptional("only.a")).isEmpty();
+    assertThat(config.get("k")).isEqualTo("c");
+  }
+
+  @Test
+  void removedKey_definedByEarlierFile_expect_earlierValueRestored() {
+    write("x.properties", "shared=x\nearly=x\n");
+    write("y.properties", "shared=y\nearly=y\n");
+    File x = dir.resolve("x.properties").toFile();
+    File y = dir.resolve("y.properties").toFile();
+    var loadOrder = new LoadOrder();
+    loadOrder.put("resource:application.properties", "early", "resource");
+    loadOrder.put("resource:application.properties", "base", "resource");
+    loadOrder.file(x, "file:x.properties");
+    loadOrder.put("file:x.properties", "shared", "x");
+    loadOrder.file(y, "file:y.properties");
+    loadOrder.put("file:y.properties", "shared", "y");
+    CoreConfiguration config = newConfig();
+    config.putAll(Map.of("shared", "y", "early", "y", "base", "resource"));
+    final FileWatch watch = new FileWatch(config, List.of(x, y), List.of(), loadOrder, new Parsers(Collections.emptyList()));
+
+    // removed from the later file, the earlier file value comes back
+    write("y.properties", "early=y\n");
+    watch.check();
+    assertThat(config.get("shared")).isEqualTo("x");
+
+    // removed from the earlier file while the later file still defines it
+    write("x.properties", "other=x\n");
+    watch.check();
+    assertThat(config.get("early")).isEqualTo("y");
+    assertThat(config.getOptional("shared")).isEmpty();
+
+    // removed from both files, the value of the resource comes back
+    write("y.properties", "other=y\n");
+    watch.check();
+    assertThat(config.get("early")).isEqualTo("resource");
+    assertThat(config.get("base")).isEqualTo("resource");
+    assertThat(config.get("other")).isEqualTo("y");
+  }
+
+  @Test
+  void configDir_expect_precedenceOfAllLoadedSources() throws Exception {
+    Path configDir = Files.createDirectory(dir.resolve("conf.d"));
+    Files.writeString(configDir.resolve("10-a.properties"), "base=fragment\ncmd=fragment\n");
+    File cmdFile = dir.resolve("cmd.properties").toFile();
+    Files.writeString(cmdFile.toPath(), "cmd=cmd\n");
+    var loadOrder = new LoadOrder();
+    loadOrder.put("resource:application.yaml", "base", "yaml");
+    loadOrder.add("file:" + configDir.toFile().getPath());
+    loadOrder.put("file:" + new File(configDir.toFile(), "10-a.properties").getPath(), "base", "fragment");
+    loadOrder.file(cmdFile, "file:cmd.properties");
+    loadOrder.put("file:cmd.properties", "cmd", "cmd");
+    CoreConfiguration config = newConfig();
+    config.putAll(Map.of("base", "fragment", "cmd", "cmd"));
+    final FileWatch watch = new FileWatch(config, List.of(cmdFile), List.of(configDir.toFile()), loadOrder, new Parsers(Collections.emptyList()));
+
+    // the command line file loaded after the config dir takes precedence
+    Files.writeString(configDir.resolve("10-a.properties"), "base=fragment\ncmd=fragment2\n");
+    watch.check();
+    assertThat(config.get("cmd")).isEqualTo("cmd");
+
+    // reverts to the value of application.yaml loaded before the config dir
+    Files.writeString(configDir.resolve("10-a.properties"), "cmd=fragment2\n");
+    watch.check();
+    assertThat(config.get("base")).isEqualTo("yaml");
+
+    // a new fragment is ordered with the config dir, before the command line file
+    Files.writeString(configDir.resolve("20-b.properties"), "base=b\ncmd=b\n");
+    watch.check();
+    assertThat(config.get("base")).isEqualTo("b");
+    assertThat(config.get("cmd")).isEqualTo("cmd");
+  }
+
+  @Test
+  void pollMode_expect_scheduled() {
+    final Properties properties = new Properties();
+    properties.setProperty("config.watch.mode", "poll");
+    CoreConfiguration config = new CoreConfiguration(CoreEntry.newMap(properties, "test"));
+    FileWatch watch = fileWatch(config, files(true));
+    assertThat(watch.toString()).contains("period:10 delay:60");
   }
 
   private static FileWatch fileWatch(CoreConfiguration config, List<File> files) {
     return new FileWatch(config, files, new Parsers(Collections.emptyList()));
   }
 
-  private void writeContent(String content) throws IOException {
-    sleep(20);
-    File aProps = new File("./src/test/resources/watch/a.properties");
-    if (!aProps.exists()) {
-      throw new IllegalStateException("a.properties does not exist?");
+  private void writeContents() {
+    for (String name : List.of("a.properties", "b.yaml", "c.yml")) {
+      write(name, resource(name));
+    }
+  }
+
+  private void write(String name, String content) {
+    try {
+      Files.writeString(dir.resolve(name), content);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static String resource(String name) {
+    try {
+      return Files.readString(Path.of("./src/test/resources/watch", name));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
     }
-    FileWriter fw = new FileWriter(aProps);
-    fw.write(content);
-    fw.close();
   }
 
   private void sleep(int millis) {
@@ -160,18 +402,26 @@ class FileWatchTest {
     }
   }
 
+  /**
+   * Configuration where checks are only run by the test.
+   */
   private CoreConfiguration newConfig() {
     final Properties properties = new Properties();
-    properties.setProperty("config.watch.delay", "1");
-    properties.setProperty("config.watch.period", "1");
+    properties.setProperty("config.watch.mode", "poll");
+    properties.setProperty("config.watch.delay", "600");
+    properties.setProperty("config.watch.period", "600");
     return new CoreConfiguration(CoreEntry.newMap(properties, "newConfig"));
   }
 
-  private List<File> files() {
+  /**
+   * Return copies of the watch files in the temp directory (empty unless withContent).
+   */
+  private List<File> files(boolean withContent) {
     List<File> files = new ArrayList<>();
-    files.add(new File("./src/test/resources/watch/a.properties"));
-    files.add(new File("./src/test/resources/watch/b.yaml"));
-    files.add(new File("./src/test/resources/watch/c.yml"));
+    for (String name : List.of("a.properties", "b.yaml", "c.yml")) {
+      write(name, withContent ? resource(name) : "");
+      files.add(dir.resolve(name).toFile());
+    }
     return files;
   }
 
@@ -183,8 +433,4 @@ class FileWatchTest {
       }
     }
   }
-
-  private boolean isGithubActions() {
-    return "true".equals(System.getenv("GITHUB_ACTIONS"));
-  }
 }
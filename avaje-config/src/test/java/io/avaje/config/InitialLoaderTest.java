@@ -1,6 +1,13 @@
 package io.avaje.config;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 import static io.avaje.config.CoreExpressionEval.evalFor;
 import static io.avaje.config.InitialLoader.Source.RESOURCE;
@@ -152,4 +159,84 @@ class InitialLoaderTest {
     assertThat(properties.get("value.e").value()).isEqualTo("true");
     assertThat(properties.get("override").value()).isEqualTo("e");
   }
+
+  @Test
+  void load_withProfileDocuments() {
+    InitialLoader loader = newInitialLoader();
+    loader.loadWithExtensionCheck("yaml/profile-docs.yaml");
+    var properties = evalFor(loader.load());
+    assertThat(properties.get("app.profiled").value()).isEqualTo("local");
+    assertThat(properties.get("app.other").value()).isEqualTo("base");
+    assertThat(properties.get("app.hosts").value()).isEqualTo("a,b");
+    assertThat(properties.get("app.prodOnly")).isNull();
+    assertThat(properties.get(ProfileDocuments.ACTIVATE_ON_PROFILE)).isNull();
+  }
+
+  @Test
+  void load_profileLoadFilesFalse_expect_profileFilesNotProbed() {
+    List<String> probed = new ArrayList<>();
+    ResourceLoader resourceLoader = resourcePath -> {
+      probed.add(resourcePath);
+      return new DefaultResourceLoader().getResourceAsStream(resourcePath);
+    };
+    System.setProperty("config.profiles", "one,two");
+    try {
+      new InitialLoader(new CoreComponents(), resourceLoader).load();
+      assertThat(probed).contains("application-one.properties", "application-two.yaml");
+
+      probed.clear();
+      System.setProperty("config.profiles.loadFiles", "false");
+      new InitialLoader(new CoreComponents(), resourceLoader).load();
+      assertThat(probed).isNotEmpty().noneMatch(path -> path.startsWith("application-one") || path.startsWith("application-two"));
+    } finally {
+      System.clearProperty("config.profiles");
+      System.clearProperty("config.profiles.loadFiles");
+    }
+  }
+
+  @Test
+  void load_withConfigDir(@TempDir Path dir) throws IOException {
+    Files.writeString(dir.resolve("20-b.yaml"), "fragment:\n  key: b\n  b: true\n");
+    Files.writeString(dir.resolve("10-a.properties"), "fragment.key=a\nfragment.a=true");
+    Files.writeString(dir.resolve("30-c.yaml"), "config.activate.on-profile: other\nfragment.key: c\n");
+    Files.writeString(dir.resolve(".hidden.properties"), "fragment.hidden=true");
+    Files.writeString(dir.resolve("notes.txt"), "fragment.notes=true");
+    System.setProperty("config.dir", dir.toString());
+    try {
+      InitialLoader loader = newInitialLoader();
+      var properties = evalFor(loader.load());
+      assertThat(properties.get("fragment.key").value()).isEqualTo("b");
+      assertThat(properties.get("fragment.a").value()).isEqualTo("true");
+      assertThat(properties.get("fragment.b").value()).isEqualTo("true");
+      assertThat(properties.get("fragment.hidden")).isNull();
+      assertThat(properties.get("fragment.notes")).isNull();
+      assertThat(properties.get("fragment.a").source()).endsWith("10-a.properties");
+      assertThat(loader.loadedFrom()).contains("file:" + dir);
+    } finally {
+      System.clearProperty("config.dir");
+    }
+  }
+
+  @Test
+  void load_profileDocumentInConfigDir_expect_commandLineLast(@TempDir Path dir) throws IOException {
+    Path fragments = Files.createDirectory(dir.resolve("fragments"));
+    Files.writeString(fragments.resolve("10-a.yaml"), "config.activate.on-profile: cli\nprecedence.key: fragment\n");
+    Path cli = Files.writeString(dir.resolve("cli.properties"), "precedence.key=cli\n");
+    String command = System.getProperty("sun.java.command");
+    System.setProperty("config.dir", fragments.toString());
+    System.setProperty("config.profiles", "cli");
+    System.setProperty("sun.java.command", "Main -P " + cli);
+    try {
+      var properties = evalFor(newInitialLoader().load());
+      assertThat(properties.get("precedence.key").value()).isEqualTo("cli");
+    } finally {
+      System.clearProperty("config.dir");
+      System.clearProperty("config.profiles");
+      if (command == null) {
+        System.clearProperty("sun.java.command");
+      } else {
+        System.setProperty("sun.java.command", command);
+      }
+    }
+  }
 }
@@ -1,10 +1,15 @@
 package io.avaje.config;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -47,4 +52,39 @@ class PropertiesParserTest {
     assertThat(map).containsEntry("one.key2", "b");
     assertThat(map).containsEntry("key3", "c");
   }
+
+  private static String escapes() {
+    return "! bang comment\n" +
+      "  # indented comment\n" +
+      "tab\\tkey:a\\tb\n" +
+      "uni = \\u0041\\u00e9\n" +
+      "spaced\\ key\\=x value\n" +
+      "cont = one, \\\r\n" +
+      "       two, \\\n" +
+      "       three\n" +
+      "empty\n";
+  }
+
+  private static void assertEscapes(Map<String, String> map) {
+    assertThat(map).containsOnlyKeys("tab\tkey", "uni", "spaced key=x", "cont", "empty");
+    assertThat(map).containsEntry("tab\tkey", "a\tb");
+    assertThat(map).containsEntry("uni", "A\u00e9");
+    assertThat(map).containsEntry("spaced key=x", "value");
+    assertThat(map).containsEntry("cont", "one, two, three");
+    assertThat(map).containsEntry("empty", "");
+  }
+
+  @Test
+  void load_reader_escapesAndContinuations() {
+    assertEscapes(new PropertiesParser().load(new StringReader(escapes())));
+  }
+
+  @Test
+  void load_fileInputStream_escapesAndContinuations(@TempDir Path dir) throws IOException {
+    Path file = dir.resolve("test.properties");
+    Files.writeString(file, escapes(), StandardCharsets.ISO_8859_1);
+    try (var is = new FileInputStream(file.toFile())) {
+      assertEscapes(new PropertiesParser().load(is));
+    }
+  }
 }
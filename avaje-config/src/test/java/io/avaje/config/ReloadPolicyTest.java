@@ -0,0 +1,154 @@
+package io.avaje.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class ReloadPolicyTest {
+
+  private final CoreConfiguration config = newConfig();
+  private final CoreScheduler scheduler = new CoreScheduler(new DefaultConfigurationLog(), 0);
+
+  private static CoreConfiguration newConfig() {
+    final var properties = new Properties();
+    properties.setProperty("a", "1");
+    properties.setProperty("b", "1");
+    return new CoreConfiguration(CoreEntry.newMap(properties, "test"));
+  }
+
+  private StartupLoader.Step step(String name, boolean independent, Runnable action) {
+    return new StartupLoader.Step(name, independent, 0, action);
+  }
+
+  @Test
+  void reload_expect_oneCombinedEvent() {
+    List<ModificationEvent> events = new ArrayList<>();
+    config.onChange(events::add);
+
+    final var policy = new ReloadPolicy(config, scheduler, 0);
+    policy.reload(List.of(
+      step("one", true, () -> config.eventBuilder("One").put("a", "2").put("b", "2").publish()),
+      step("two", false, () -> config.eventBuilder("Two").put("b", "3").put("c", "3").publish()),
+      step("none", true, () -> config.eventBuilder("None").put("a", "1").publish())));
+
+    assertThat(events).hasSize(1);
+    assertThat(events.get(0).name()).isEqualTo("One,Two,None");
+    // as if loaded sequentially, None puts a back to 1
+    assertThat(events.get(0).modifiedKeys()).containsExactlyInAnyOrder("b", "c");
+    assertThat(config.get("a")).isEqualTo("1");
+    // later source takes precedence
+    assertThat(config.get("b")).isEqualTo("3");
+    assertThat(config.get("c")).isEqualTo("3");
+    scheduler.close();
+  }
+
+  @Test
+  void reload_publishOnApplied_expect_runOnceCombinedEventApplied() {
+    List<String> applied = new ArrayList<>();
+    final var policy = new ReloadPolicy(config, scheduler, 0);
+    policy.reload(List.of(
+      step("one", true, () -> config.eventBuilder("One").put("a", "2")
+        .publish(() -> applied.add("one:" + config.get("a")))),
+      step("none", true, () -> config.eventBuilder("None").put("b", "1")
+        .publish(() -> applied.add("none:" + config.get("a"))))));
+
+    // including the event without changes
+    assertThat(applied).containsExactly("one:2", "none:2");
+    scheduler.close();
+  }
+
+  @Test
+  void reload_slowSourceThenReset_expect_laterSourceWins() {
+    List<ModificationEvent> events = new ArrayList<>();
+    config.onChange(events::add);
+
+    final var policy = new ReloadPolicy(config, scheduler, 0);
+    policy.reload(List.of(
+      step("slow", true, () -> {
+        try {
+          Thread.sleep(100);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        config.eventBuilder("Slow").put("a", "2").publish();
+      }),
+      step("reset", true, () -> config.eventBuilder("Reset").put("a", "1").publish())));
+
+    assertThat(config.get("a")).isEqualTo("1");
+    assertThat(events).isEmpty();
+    scheduler.close();
+  }
+
+  @Test
+  void reload_withError_expect_otherSourcesApplied() {
+    final var policy = new ReloadPolicy(config, scheduler, 0);
+    policy.reload(List.of(
+      step("fail", true, () -> { throw new IllegalStateException("fail"); }),
+      step("ok", false, () -> config.eventBuilder("Ok").put("a", "5").publish())));
+
+    assertThat(config.get("a")).isEqualTo("5");
+    scheduler.close();
+  }
+
+  @Test
+  void reload_withinMinInterval_expect_skipped() {
+    final var count = new AtomicInteger();
+    final var policy = new ReloadPolicy(config, scheduler, 60_000);
+    final var steps = List.of(step("count", false, count::incrementAndGet));
+    policy.reload(steps);
+    policy.reload(steps);
+    assertThat(count.get()).isEqualTo(1);
+
+    final var noInterval = new ReloadPolicy(config, scheduler, 0);
+    noInterval.reload(steps);
+    noInterval.reload(steps);
+    assertThat(count.get()).isEqualTo(3);
+    scheduler.close();
+  }
+
+  @Test
+  void reload_concurrent_expect_singleFlight() throws InterruptedException {
+    final var count = new AtomicInteger();
+    final var started = new CountDownLatch(1);
+    final var release = new CountDownLatch(1);
+    final var policy = new ReloadPolicy(config, scheduler, 0);
+    final var steps = List.of(step("slow", false, () -> {
+      count.incrementAndGet();
+      started.countDown();
+      await(release);
+    }));
+
+    final var first = new Thread(() -> policy.reload(steps));
+    first.start();
+    assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+    final var joined = new CountDownLatch(1);
+    final var second = new Thread(() -> {
+      policy.reload(steps);
+      joined.countDown();
+    });
+    second.start();
+    // the second waits for the reload in progress
+    assertThat(joined.await(100, TimeUnit.MILLISECONDS)).isFalse();
+    release.countDown();
+    assertThat(joined.await(5, TimeUnit.SECONDS)).isTrue();
+    first.join();
+    assertThat(count.get()).isEqualTo(1);
+    scheduler.close();
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package io.avaje.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class StartupLoaderTest {
+
+  private final CoreConfiguration config = new CoreConfiguration(CoreEntry.newMap());
+
+  @Test
+  void independent_appliedInDeclaredOrder() {
+    var slow = new StartupLoader.Step("slow", true, 0, () -> {
+      sleep(100);
+      config.setProperty("key", "slow");
+      config.setProperty("slow", "yes");
+    });
+    var fast = new StartupLoader.Step("fast", true, 0, () -> {
+      config.setProperty("key", "fast");
+      config.setProperty("fast", "yes");
+    });
+
+    new StartupLoader(config, "ConfigurationSource").run(List.of(slow, fast));
+
+    // fast completes first but is applied after slow as declared
+    assertThat(config.get("key")).isEqualTo("fast");
+    assertThat(config.get("slow")).isEqualTo("yes");
+    assertThat(config.get("fast")).isEqualTo("yes");
+  }
+
+  @Test
+  void independent_laterResetToOriginal_expect_sameAsSequential() {
+    config.setProperty("x", "a");
+    var slow = new StartupLoader.Step("slow", true, 0, () -> {
+      sleep(100);
+      config.setProperty("x", "b");
+    });
+    var reset = new StartupLoader.Step("reset", true, 0, () -> config.setProperty("x", "a"));
+
+    new StartupLoader(config, "ConfigurationSource").run(List.of(slow, reset));
+
+    assertThat(config.get("x")).isEqualTo("a");
+  }
+
+  @Test
+  void independent_expressions_evaluatedInDeclaredOrder() {
+    var first = new StartupLoader.Step("first", true, 0, () -> {
+      sleep(50);
+      config.setProperty("host", "one");
+    });
+    var second = new StartupLoader.Step("second", true, 0, () -> config.setProperty("url", "http://${host}"));
+
+    new StartupLoader(config, "ConfigurationSource").run(List.of(first, second));
+
+    assertThat(config.get("url")).isEqualTo("http://one");
+  }
+
+  @Test
+  void dependent_seesPriorIndependent() {
+    var first = new StartupLoader.Step("first", true, 0, () -> {
+      sleep(50);
+      config.setProperty("first", "42");
+    });
+    var second = new StartupLoader.Step("second", false, 0,
+      () -> config.setProperty("second", config.get("first") + "!"));
+
+    new StartupLoader(config, "ConfigurationSource").run(List.of(first, second));
+
+    assertThat(config.get("second")).isEqualTo("42!");
+  }
+
+  @Test
+  void timeout_expect_appliedWhenCompleted() throws InterruptedException {
+    var release = new CountDownLatch(1);
+    var applied = new CountDownLatch(1);
+    config.onChange(event -> applied.countDown(), "late");
+    var late = new StartupLoader.Step("late", true, 20, () -> {
+      await(release);
+      config.setProperty("late", "arrived");
+    });
+    var other = new StartupLoader.Step("other", true, 0, () -> config.setProperty("other", "yes"));
+
+    new StartupLoader(config, "ConfigurationSource").run(List.of(late, other));
+
+    assertThat(config.get("other")).isEqualTo("yes");
+    assertThat(config.getOptional("late")).isEmpty();
+
+    release.countDown();
+    assertThat(applied.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(config.get("late")).isEqualTo("arrived");
+  }
+
+  @Test
+  void independent_publishOnApplied_expect_runWhenApplied() {
+    List<String> applied = new CopyOnWriteArrayList<>();
+    var slow = new StartupLoader.Step("slow", true, 0, () -> {
+      sleep(100);
+      config.setProperty("key", "slow");
+    });
+    var fast = new StartupLoader.Step("fast", true, 0, () -> config.eventBuilder("fast")
+      .put("key", "fast")
+      .publish(() -> applied.add(config.get("key"))));
+
+    new StartupLoader(config, "ConfigurationSource").run(List.of(slow, fast));
+
+    // run when the staged change is applied after slow, not when published
+    assertThat(applied).containsExactly("fast");
+  }
+
+  @Test
+  void error_expect_thrown() {
+    var failing = new StartupLoader.Step("failing", true, 0, () -> {
+      throw new IllegalArgumentException("bad");
+    });
+    assertThatThrownBy(() -> new StartupLoader(config, "ConfigurationSource").run(List.of(failing)))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("bad");
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void sleep(int millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
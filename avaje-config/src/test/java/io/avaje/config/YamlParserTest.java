@@ -4,7 +4,13 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
 
 import org.junit.jupiter.api.Test;
 
@@ -24,6 +30,26 @@ class YamlParserTest {
     assertThat(load2).containsOnlyKeys("k1","k2","k3", "k4");
   }
 
+  @Test
+  void simpleYamlParser_crlfAndBlankListLines() {
+    var content = "a:\r\n  b: 1\r\n  list:\r\n    - x\r\n\r\n    - y\r\nc: |\r\n  l0\r\n  l1\r\n";
+    Map<String, String> map = new YamlLoaderSimple().load(new StringReader(content));
+    assertThat(map).containsOnlyKeys("a.b", "a.list", "c");
+    assertThat(map.get("a.b")).isEqualTo("1");
+    assertThat(map.get("a.list")).isEqualTo("x,y");
+    assertThat(map.get("c")).isEqualTo("l0\nl1\n");
+  }
+
+  @Test
+  void parse_streamsInOrder() {
+    var content = "a: 1\nb:\n  c: 2\n  d: 3\n";
+    for (YamlLoader loader : List.of(new YamlLoaderSimple(), load)) {
+      List<String> pairs = new ArrayList<>();
+      loader.parse(new StringReader(content), (key, value) -> pairs.add(key + "=" + value));
+      assertThat(pairs).containsExactly("a=1", "b.c=2", "b.d=3");
+    }
+  }
+
   @Test
   void basic() {
     basic(parseYaml2("/yaml/basic.yaml"));
@@ -258,6 +284,43 @@ class YamlParserTest {
     assertThat(parseYaml("/yaml/list.yaml")).isEqualTo(list);
   }
 
+  @Test
+  void snake_anchorsAndMergeKeys() {
+    var content = "base: &base\n" +
+      "  a: 1\n" +
+      "  b: [x, y]\n" +
+      "child:\n" +
+      "  a: 0\n" +
+      "  <<: *base\n" +
+      "flags: {on: yes, off: off, hex: 0x1F, none: ~}\n";
+    Map<String, String> map = load.load(new StringReader(content));
+    assertThat(map).containsOnlyKeys("base.a", "base.b", "child.a", "child.b", "flags.on", "flags.off", "flags.hex");
+    assertThat(map.get("child.a")).isEqualTo("0");
+    assertThat(map.get("child.b")).isEqualTo("x,y");
+    assertThat(map.get("flags.on")).isEqualTo("true");
+    assertThat(map.get("flags.off")).isEqualTo("false");
+    assertThat(map.get("flags.hex")).isEqualTo("31");
+  }
+
+  @Test
+  void snake_concurrentParse() throws Exception {
+    var content = "a:\n  b: 1\n  list: [x, y]\nservers:\n  - host: h0\n  - host: h1\n";
+    var expected = load.load(new StringReader(content));
+    var executor = Executors.newFixedThreadPool(4);
+    try {
+      var tasks = new ArrayList<Callable<Map<String, String>>>();
+      for (int i = 0; i < 200; i++) {
+        tasks.add(() -> load.load(new StringReader(content)));
+      }
+      for (var future : executor.invokeAll(tasks)) {
+        assertThat(future.get()).isEqualTo(expected);
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertThat(expected).containsOnlyKeys("a.b", "a.list", "servers[0].host", "servers[1].host");
+  }
+
   private Map<String, String> parseYaml2(String s) {
     return load.load(res(s));
   }
@@ -270,4 +333,46 @@ class YamlParserTest {
   private InputStream res(String path) {
     return YamlLoaderSimple.class.getResourceAsStream(path);
   }
+
+  @Test
+  void profiles_duplicates_expect_distinctInDeclaredOrder() {
+    assertThat(ProfileDocuments.profiles("dev,dev")).containsExactly("dev");
+    assertThat(ProfileDocuments.profiles(" prod; dev,prod local ")).containsExactly("prod", "dev", "local");
+    assertThat(ProfileDocuments.profiles(" ")).isEmpty();
+  }
+
+  @Test
+  void parse_profileDocuments() {
+    parse_profileDocuments(new YamlLoaderSnake());
+    parse_profileDocuments(new YamlLoaderSimple());
+  }
+
+  private void parse_profileDocuments(YamlLoader parser) {
+    Map<String, String> map = new LinkedHashMap<>();
+    List<ProfileDocuments.Document> documents = new ArrayList<>();
+    ConfigParser.ListConsumer target = new ConfigParser.ListConsumer() {
+      @Override
+      public void acceptList(String key, List<String> elements) {
+        map.put(key, String.join("|", elements));
+      }
+
+      @Override
+      public void accept(String key, String value) {
+        map.put(key, value);
+      }
+    };
+    parser.parse(res("/yaml/profile-docs.yaml"), new ProfileDocuments(target, documents::add));
+
+    assertThat(map).containsOnlyKeys("config.profiles", "app.profiled", "app.other");
+    assertThat(map).containsEntry("app.profiled", "base");
+    assertThat(documents).hasSize(2);
+    assertThat(documents.get(0).activeFor(List.of("prod"))).isFalse();
+    assertThat(documents.get(0).activeFor(List.of("x", "local"))).isTrue();
+    assertThat(documents.get(1).activeFor(List.of("prod"))).isTrue();
+
+    documents.get(0).applyTo(target);
+    assertThat(map).containsEntry("app.profiled", "local");
+    assertThat(map).containsEntry("app.hosts", "a|b");
+    assertThat(map).doesNotContainKeys("app.prodOnly", ProfileDocuments.ACTIVATE_ON_PROFILE);
+  }
 }
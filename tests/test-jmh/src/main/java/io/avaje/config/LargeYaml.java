@@ -0,0 +1,43 @@
+package io.avaje.config;
+
+/**
+ * Generates large yaml content using the features supported by both yaml loaders.
+ */
+final class LargeYaml {
+
+  private LargeYaml() {
+  }
+
+  static String content(int minLength) {
+    StringBuilder sb = new StringBuilder(minLength + 1024);
+    int section = 0;
+    while (sb.length() < minLength) {
+      sb.append("section").append(section).append(":\n");
+      sb.append("  name: Section ").append(section).append('\n');
+      sb.append("  enabled: true\n");
+      sb.append("  'quoted-key': 'quoted value ").append(section).append("'\n");
+      sb.append("  timeout: ").append(section * 10).append(" # in seconds\n");
+      sb.append("  database:\n");
+      sb.append("    url: jdbc:postgresql://localhost:5432/db").append(section).append('\n');
+      sb.append("    username: user").append(section).append('\n');
+      sb.append("    pool:\n");
+      sb.append("      min: 2\n");
+      sb.append("      max: 20\n");
+      sb.append("  hosts:\n");
+      for (int i = 0; i < 4; i++) {
+        sb.append("    - host").append(i).append(".example.com\n");
+      }
+      sb.append("  servers:\n");
+      for (int i = 0; i < 2; i++) {
+        sb.append("    - host: server").append(i).append('\n');
+        sb.append("      port: ").append(8080 + i).append('\n');
+      }
+      sb.append("  description: |\n");
+      sb.append("    First line of section ").append(section).append('\n');
+      sb.append("    second line of the description\n");
+      sb.append('\n');
+      section++;
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,54 @@
+package io.avaje.config;
+
+import java.io.StringReader;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compare YamlLoaderSimple with YamlLoaderSnake on large yaml content.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class YamlLoaderBenchmark {
+
+  /**
+   * Approximate size of the yaml content in KB.
+   */
+  @Param({"1024", "4096"})
+  int sizeKb;
+
+  private String content;
+  private final YamlLoaderSimple simple = new YamlLoaderSimple();
+  private final YamlLoaderSnake snake = new YamlLoaderSnake();
+
+  @Setup
+  public void setup() {
+    content = LargeYaml.content(sizeKb * 1024);
+  }
+
+  @Benchmark
+  public Map<String, String> simple() {
+    return simple.load(new StringReader(content));
+  }
+
+  @Benchmark
+  public Map<String, String> snake() {
+    return snake.load(new StringReader(content));
+  }
+}
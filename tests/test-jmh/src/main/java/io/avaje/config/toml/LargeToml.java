@@ -0,0 +1,35 @@
+package io.avaje.config.toml;
+
+/**
+ * Generates large toml content with tables, arrays and arrays of tables.
+ */
+final class LargeToml {
+
+  private LargeToml() {
+  }
+
+  static String content(int minLength) {
+    StringBuilder sb = new StringBuilder(minLength + 1024);
+    int section = 0;
+    while (sb.length() < minLength) {
+      sb.append("[section").append(section).append("]\n");
+      sb.append("name = \"Section ").append(section).append("\"\n");
+      sb.append("enabled = true\n");
+      sb.append("timeout = ").append(section * 10).append(" # in seconds\n");
+      sb.append("hosts = [\"host0.example.com\", \"host1.example.com\", \"host2.example.com\"]\n");
+      sb.append("started = 2024-09-09T15:30:00+02:00\n");
+      sb.append("\n[section").append(section).append(".database]\n");
+      sb.append("url = \"jdbc:postgresql://localhost:5432/db").append(section).append("\"\n");
+      sb.append("username = \"user").append(section).append("\"\n");
+      sb.append("pool = { min = 2, max = 20 }\n");
+      for (int i = 0; i < 2; i++) {
+        sb.append("\n[[section").append(section).append(".servers]]\n");
+        sb.append("host = \"server").append(i).append("\"\n");
+        sb.append("port = ").append(8080 + i).append('\n');
+      }
+      sb.append('\n');
+      section++;
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,62 @@
+package io.avaje.config.toml;
+
+import java.io.StringReader;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.tomlj.Toml;
+
+/**
+ * Compare TomlParser with parsing via tomlj and collecting the dottedEntrySet().
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TomlParserBenchmark {
+
+  /**
+   * Approximate size of the toml content in KB.
+   */
+  @Param({"1024", "4096"})
+  int sizeKb;
+
+  private String content;
+  private final TomlParser parser = new TomlParser();
+
+  @Setup
+  public void setup() {
+    content = LargeToml.content(sizeKb * 1024);
+  }
+
+  @Benchmark
+  public void parse(Blackhole blackhole) {
+    parser.parse(new StringReader(content), (key, value) -> blackhole.consume(value));
+  }
+
+  @Benchmark
+  public Map<String, String> load() {
+    return parser.load(new StringReader(content));
+  }
+
+  @Benchmark
+  public Map<String, String> tomlj() throws Exception {
+    return Toml.parse(new StringReader(content)).dottedEntrySet().stream()
+      .collect(Collectors.toMap(Map.Entry::getKey, e -> String.valueOf(e.getValue()), (a, b) -> b));
+  }
+}